@@ -0,0 +1,116 @@
+package com.google.sitebricks.benchmarks;
+
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A page with a little of everything, for the template benchmarks. Its template is
+ * {@link #TEMPLATE}, which {@link DecoratedCatalog} decorates with {@link #DECORATION}.
+ */
+public class Catalog {
+  static final String TEMPLATE = "<!doctype html>\n"
+      + "<html>\n"
+      + "<head>\n"
+      + "  <title>${title}</title>\n"
+      + "  <link rel=\"stylesheet\" href=\"/css/catalog.css\"/>\n"
+      + "</head>\n"
+      + "<body>\n"
+      + "  <h1 class=\"${style}\">${title}</h1>\n"
+      + "  @ShowIf(showBanner)\n"
+      + "  <div class=\"banner\">Welcome back, ${user.name}!</div>\n"
+      + "  <table>\n"
+      + "    @Repeat(items=products, var=\"product\")\n"
+      + "    <tr>\n"
+      + "      <td><a href=\"/products/${product.id}\">${product.name}</a></td>\n"
+      + "      <td>${product.price}</td>\n"
+      + "      @ShowIf(product.onSale)\n"
+      + "      <td class=\"sale\">On sale</td>\n"
+      + "    </tr>\n"
+      + "  </table>\n"
+      + "  @Decorated\n"
+      + "  <div>Replaced by the decorating page</div>\n"
+      + "  <p>${products.size()} products</p>\n"
+      + "</body>\n"
+      + "</html>\n";
+
+  static final String DECORATION = "<html><body><div class=\"extra\">${user.name} ${user.email}</div>"
+      + "</body></html>";
+
+  private final List<Product> products = new ArrayList<Product>();
+  private final User user = new User("Dhanji", "dhanji@example.com");
+
+  public Catalog() {
+    for (int i = 0; i < 20; i++) {
+      products.add(new Product(i, "Product " + i, 9.99 + i, i % 3 == 0));
+    }
+  }
+
+  public String getTitle() {
+    return "Catalog";
+  }
+
+  public String getStyle() {
+    return "title";
+  }
+
+  public boolean isShowBanner() {
+    return true;
+  }
+
+  public User getUser() {
+    return user;
+  }
+
+  public List<Product> getProducts() {
+    return products;
+  }
+
+  public static class User {
+    private final String name;
+    private final String email;
+
+    public User(String name, String email) {
+      this.name = name;
+      this.email = email;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+  }
+
+  public static class Product {
+    private final int id;
+    private final String name;
+    private final double price;
+    private final boolean onSale;
+
+    public Product(int id, String name, double price, boolean onSale) {
+      this.id = id;
+      this.name = name;
+      this.price = price;
+      this.onSale = onSale;
+    }
+
+    public int getId() {
+      return id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public double getPrice() {
+      return price;
+    }
+
+    public boolean isOnSale() {
+      return onSale;
+    }
+  }
+}
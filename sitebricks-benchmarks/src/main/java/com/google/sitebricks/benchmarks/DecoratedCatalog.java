@@ -0,0 +1,10 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.rendering.Decorated;
+
+/**
+ * Renders {@link Catalog#DECORATION} into the {@code @Decorated} slot of the catalog.
+ */
+@Decorated
+public class DecoratedCatalog extends Catalog {
+}
@@ -0,0 +1,100 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.AccessorEvaluator;
+import com.google.sitebricks.Evaluator;
+import com.google.sitebricks.MvelEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the default MVEL evaluator with generated property accessors, for
+ * plain property paths and for an expression the latter hands back to MVEL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvaluatorBenchmark {
+  @Param({ "name", "${address.city}", "address.zip.length()", "name + ' ' + age" })
+  public String expression;
+
+  private final Evaluator mvel = new MvelEvaluator();
+  private final Evaluator accessors = new AccessorEvaluator();
+  private Person person;
+
+  @Setup
+  public void setUp() {
+    Stubs.useReflectiveMvel();
+
+    person = new Person("Dhanji", 27, new Address("Sydney", "2000"));
+
+    // Both evaluators compile (or generate) on first use.
+    mvel.evaluate(expression, person);
+    accessors.evaluate(expression, person);
+  }
+
+  @Benchmark
+  public Object mvel() {
+    return mvel.evaluate(expression, person);
+  }
+
+  @Benchmark
+  public Object generatedAccessors() {
+    return accessors.evaluate(expression, person);
+  }
+
+  public static class Person {
+    private final String name;
+    private final int age;
+    private final Address address;
+
+    public Person(String name, int age, Address address) {
+      this.name = name;
+      this.age = age;
+      this.address = address;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getAge() {
+      return age;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+  }
+
+  public static class Address {
+    private final String city;
+    private final String zip;
+
+    public Address(String city, String zip) {
+      this.city = city;
+      this.zip = zip;
+    }
+
+    public String getCity() {
+      return city;
+    }
+
+    public String getZip() {
+      return zip;
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.client.transport.Json;
+import com.google.sitebricks.headless.Reply;
+import com.google.sitebricks.headless.ReplyBasedHeadlessRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a JSON reply from a headless web service, as for a typical REST call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeadlessRenderBenchmark {
+  private ReplyBasedHeadlessRenderer renderer;
+  private Catalog catalog;
+
+  @Setup
+  public void setUp() {
+    renderer = Stubs.injector("/catalog")
+        .getInstance(ReplyBasedHeadlessRenderer.class);
+    catalog = new Catalog();
+  }
+
+  @Benchmark
+  public HttpServletResponse json() throws IOException {
+    HttpServletResponse response = Stubs.response();
+    renderer.render(response, Reply.with(catalog).as(Json.class));
+    return response;
+  }
+}
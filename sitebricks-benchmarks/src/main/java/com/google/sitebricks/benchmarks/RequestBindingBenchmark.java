@@ -0,0 +1,121 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
+import com.google.sitebricks.binding.RequestBinder;
+import com.google.sitebricks.headless.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binds a typical form post (including a parameter the page does not have) onto a page object.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RequestBindingBenchmark {
+  private RequestBinder<String> binder;
+  private Request<String> request;
+
+  @Setup
+  public void setUp() {
+    binder = Stubs.injector("/signup")
+        .getInstance(Key.get(new TypeLiteral<RequestBinder<String>>() {}));
+
+    request = Stubs.request("POST", "/signup", ImmutableMultimap.<String, String>builder()
+        .put("name", "Dhanji")
+        .put("age", "27")
+        .put("alive", "true")
+        .put("id", "12")
+        .put("height", "6.0")
+        .put("address.city", "Sydney")
+        .put("submit", "Sign up")
+        .build());
+  }
+
+  @Benchmark
+  public Form bind() {
+    Form form = new Form();
+    binder.bind(request, form);
+    return form;
+  }
+
+  public static class Form {
+    private String name;
+    private int age;
+    private boolean alive;
+    private Long id;
+    private double height;
+    private Address address = new Address();
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public int getAge() {
+      return age;
+    }
+
+    public void setAge(int age) {
+      this.age = age;
+    }
+
+    public boolean isAlive() {
+      return alive;
+    }
+
+    public void setAlive(boolean alive) {
+      this.alive = alive;
+    }
+
+    public Long getId() {
+      return id;
+    }
+
+    public void setId(Long id) {
+      this.id = id;
+    }
+
+    public double getHeight() {
+      return height;
+    }
+
+    public void setHeight(double height) {
+      this.height = height;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+  }
+
+  public static class Address {
+    private String city;
+
+    public String getCity() {
+      return city;
+    }
+
+    public void setCity(String city) {
+      this.city = city;
+    }
+  }
+}
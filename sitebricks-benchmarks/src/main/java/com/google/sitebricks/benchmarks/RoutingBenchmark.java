@@ -0,0 +1,56 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.routing.PageBook;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves uris against a page book of a couple of hundred static and templated pages.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RoutingBenchmark {
+  static final int PAGES = 100;
+
+  @Param({ "/static/42", "/section42/12", "/users/dhanji/posts/7", "/wiki/title/edit", "/no/such/page" })
+  public String uri;
+
+  private PageBook pageBook;
+
+  @Setup
+  public void setUp() {
+    pageBook = Stubs.injector("/")
+        .getInstance(PageBook.class);
+
+    for (int i = 0; i < PAGES; i++) {
+      pageBook.at("/static/" + i, Page.class);
+      pageBook.at("/section" + i + "/:id", Page.class);
+    }
+    pageBook.at("/users/:user/posts/:post", Page.class);
+    pageBook.at("/wiki/:title", Page.class);
+    pageBook.at("/wiki/:title/edit", Page.class);
+  }
+
+  @Benchmark
+  public PageBook.Page get() {
+    return pageBook.get(uri);
+  }
+
+  public static class Page {
+  }
+}
@@ -0,0 +1,177 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Stage;
+import com.google.inject.TypeLiteral;
+import com.google.inject.util.Modules;
+import com.google.sitebricks.SitebricksModule;
+import com.google.sitebricks.headless.Request;
+import org.mvel2.optimizers.OptimizerFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * In-memory stand-ins for the servlet request and response, so that the request
+ * pipeline can be driven without a servlet container.
+ */
+final class Stubs {
+  private Stubs() {
+  }
+
+  /**
+   * A production-stage Sitebricks injector, in which the current request is always
+   * a GET of the given uri.
+   */
+  static Injector injector(String uri) {
+    final Request<String> request = request("GET", uri, ImmutableMultimap.<String, String>of());
+
+    useReflectiveMvel();
+    return Guice.createInjector(Stage.PRODUCTION,
+        Modules.override(new SitebricksModule()).with(new AbstractModule() {
+          @Override
+          protected void configure() {
+            bind(new TypeLiteral<Request<String>>() {}).toInstance(request);
+          }
+        }));
+  }
+
+  /**
+   * MVEL 2.1's JIT emits accessors that Java 8 fails to verify, so benchmarks run
+   * MVEL with its reflective optimizer instead.
+   */
+  static void useReflectiveMvel() {
+    OptimizerFactory.setDefaultOptimizer(OptimizerFactory.SAFE_REFLECTIVE);
+  }
+
+  static Request<String> request(String method, String uri, Multimap<String, String> params) {
+    return new StubRequest(method, uri, params);
+  }
+
+  /**
+   * A response that keeps its content type and discards everything written to it.
+   */
+  static HttpServletResponse response() {
+    return (HttpServletResponse) Proxy.newProxyInstance(Stubs.class.getClassLoader(),
+        new Class<?>[] { HttpServletResponse.class }, new InvocationHandler() {
+          private final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+          };
+          private final PrintWriter writer = new PrintWriter(new Writer() {
+            @Override
+            public void write(char[] buffer, int off, int len) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+          });
+          private String contentType;
+
+          public Object invoke(Object proxy, Method method, Object[] args) {
+            String name = method.getName();
+            if ("getOutputStream".equals(name))
+              return out;
+            if ("getWriter".equals(name))
+              return writer;
+            if ("getContentType".equals(name))
+              return contentType;
+            if ("setContentType".equals(name))
+              contentType = (String) args[0];
+            else if (boolean.class == method.getReturnType())
+              return false;
+            else if (int.class == method.getReturnType())
+              return 0;
+
+            return null;
+          }
+        });
+  }
+
+  private static class StubRequest implements Request<String> {
+    private final String method;
+    private final String uri;
+    private final Multimap<String, String> params;
+
+    StubRequest(String method, String uri, Multimap<String, String> params) {
+      this.method = method;
+      this.uri = uri;
+      this.params = params;
+    }
+
+    public <E> RequestRead<E> read(Class<E> type) {
+      throw new UnsupportedOperationException();
+    }
+
+    public <E> RequestRead<E> read(TypeLiteral<E> type) {
+      throw new UnsupportedOperationException();
+    }
+
+    public void readTo(OutputStream out) throws IOException {
+    }
+
+    public Multimap<String, String> headers() {
+      return ImmutableMultimap.of();
+    }
+
+    public Multimap<String, String> params() {
+      return params;
+    }
+
+    public Multimap<String, String> matrix() {
+      return ImmutableMultimap.of();
+    }
+
+    public String matrixParam(String name) {
+      return null;
+    }
+
+    public String param(String name) {
+      return params.containsKey(name) ? params.get(name).iterator().next() : null;
+    }
+
+    public String header(String name) {
+      return null;
+    }
+
+    public String uri() {
+      return uri;
+    }
+
+    public String path() {
+      return uri;
+    }
+
+    public String context() {
+      return "";
+    }
+
+    public String method() {
+      return method;
+    }
+
+    public void validate(Object obj) {
+    }
+  }
+}
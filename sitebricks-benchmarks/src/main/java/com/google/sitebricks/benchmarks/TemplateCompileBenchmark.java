@@ -0,0 +1,47 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Injector;
+import com.google.sitebricks.Renderable;
+import com.google.sitebricks.Template;
+import com.google.sitebricks.compiler.HtmlTemplateCompiler;
+import com.google.sitebricks.rendering.control.WidgetRegistry;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.SystemMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compiles the catalog page's html template, i.e. what each page costs at startup
+ * (or on every request, in development mode).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TemplateCompileBenchmark {
+  private HtmlTemplateCompiler compiler;
+
+  @Setup
+  public void setUp() {
+    Injector injector = Stubs.injector("/catalog");
+    compiler = new HtmlTemplateCompiler(injector.getInstance(WidgetRegistry.class),
+        injector.getInstance(PageBook.class), injector.getInstance(SystemMetrics.class));
+  }
+
+  @Benchmark
+  public Renderable compile() {
+    return compiler.compile(Catalog.class, new Template(Catalog.TEMPLATE));
+  }
+}
@@ -0,0 +1,62 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.sitebricks.conversion.TypeConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts request strings to the property types they are bound to, and back.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypeConversionBenchmark {
+  private TypeConverter converter;
+  private Date date;
+
+  @Setup
+  public void setUp() {
+    converter = Stubs.injector("/")
+        .getInstance(TypeConverter.class);
+    date = new Date();
+  }
+
+  @Benchmark
+  public Integer stringToInteger() {
+    return converter.convert("42", Integer.class);
+  }
+
+  @Benchmark
+  public Object stringToPrimitive() {
+    return converter.convert("6.5", double.class);
+  }
+
+  @Benchmark
+  public String integerToString() {
+    return converter.convert(42, String.class);
+  }
+
+  @Benchmark
+  public String dateToString() {
+    return converter.convert(date, String.class);
+  }
+
+  @Benchmark
+  public Object unchanged() {
+    return converter.convert("42", String.class);
+  }
+}
@@ -0,0 +1,81 @@
+package com.google.sitebricks.benchmarks;
+
+import com.google.inject.Injector;
+import com.google.sitebricks.Renderable;
+import com.google.sitebricks.StringBuilderRespond;
+import com.google.sitebricks.Template;
+import com.google.sitebricks.compiler.ExpressionCompileException;
+import com.google.sitebricks.compiler.HtmlTemplateCompiler;
+import com.google.sitebricks.compiler.MvelEvaluatorCompiler;
+import com.google.sitebricks.rendering.control.WidgetRegistry;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.SystemMetrics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders individual widgets (and the whole catalog page) into a respond, as the
+ * routing dispatcher does once a page has been compiled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WidgetRenderBenchmark {
+  @Param({ "text", "repeat", "showIf", "decorate", "page" })
+  public String widget;
+
+  private Renderable renderable;
+  private Catalog page;
+
+  @Setup
+  public void setUp() throws ExpressionCompileException {
+    Injector injector = Stubs.injector("/catalog");
+    WidgetRegistry registry = injector.getInstance(WidgetRegistry.class);
+    PageBook pageBook = injector.getInstance(PageBook.class);
+    HtmlTemplateCompiler compiler = new HtmlTemplateCompiler(registry, pageBook,
+        injector.getInstance(SystemMetrics.class));
+
+    page = new DecoratedCatalog();
+    pageBook.decorate(DecoratedCatalog.class)
+        .apply(compiler.compile(DecoratedCatalog.class, new Template(Catalog.DECORATION)));
+
+    if ("text".equals(widget))
+      renderable = registry.textWidget("${title} for ${user.name} <${user.email}>,"
+          + " ${products.size()} products", new MvelEvaluatorCompiler(Catalog.class));
+    else if ("repeat".equals(widget))
+      renderable = compiler.compile(Catalog.class, new Template("<table>"
+          + "@Repeat(items=products, var=\"product\")<tr><td>${product.name}</td></tr></table>"));
+    else if ("showIf".equals(widget))
+      renderable = compiler.compile(Catalog.class, new Template("<div>"
+          + "@ShowIf(showBanner)<p>Welcome back, ${user.name}!</p></div>"));
+    else if ("decorate".equals(widget))
+      renderable = compiler.compile(Catalog.class, new Template("<div>"
+          + "@Decorated<div>Replaced by the decorating page</div></div>"));
+    else
+      renderable = compiler.compile(Catalog.class, new Template(Catalog.TEMPLATE));
+  }
+
+  @Benchmark
+  public int render() {
+    StringBuilderRespond respond = new StringBuilderRespond(page);
+    renderable.render(page, respond);
+
+    int length = respond.length();
+    respond.release();
+    return length;
+  }
+}
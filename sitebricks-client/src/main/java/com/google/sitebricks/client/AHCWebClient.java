@@ -1,12 +1,17 @@
 package com.google.sitebricks.client;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closeables;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.inject.Injector;
 import com.google.inject.TypeLiteral;
 import com.ning.http.client.AsyncHttpClient;
-import com.ning.http.client.AsyncHttpClientConfig;
 import com.ning.http.client.Realm;
 import com.ning.http.client.RequestBuilder;
 import com.ning.http.client.Response;
@@ -32,25 +37,33 @@ class AHCWebClient<T> implements WebClient<T> {
   private final AsyncHttpClient httpClient;
   private final Transport transport;
   private final Injector injector;
+  private final Realm realm;
 
-  public AHCWebClient(Injector injector, Transport transport, Web.Auth authType, String username, String password, boolean usePreemptiveAuth, String url, Map<String, String> headers, TypeLiteral<T> typeToTransform) {
+  // Streams request bodies on these threads when set, otherwise bodies are buffered.
+  private final Executor bodyWriters;
+
+  // How long an I/O thread may wait on a streamed body (either way) before failing it.
+  private final long stallMillis;
+
+  public AHCWebClient(Injector injector, AsyncHttpClient httpClient, Executor bodyWriters, long stallMillis, Transport transport, Web.Auth authType, String username, String password, boolean usePreemptiveAuth, String url, Map<String, String> headers, TypeLiteral<T> typeToTransform) {
     this.injector = injector;
+    this.httpClient = httpClient;
+    this.bodyWriters = bodyWriters;
+    this.stallMillis = stallMillis;
     this.url = url;
     this.headers = (null == headers) ? null : ImmutableMap.copyOf(headers);
     this.typeToTransform = typeToTransform;
     this.transport = transport;
 
-    // configure auth
-    AsyncHttpClientConfig.Builder c = new AsyncHttpClientConfig.Builder();
+    // configure auth, per request since the http client is shared
     if (null != authType) {
       Realm.RealmBuilder b = new Realm.RealmBuilder();
       // TODO: Add support for Kerberos and SPNEGO
       Realm.AuthScheme scheme = authType.equals(Web.Auth.BASIC) ? Realm.AuthScheme.BASIC : Realm.AuthScheme.DIGEST;
       b.setPrincipal(username).setPassword(password).setScheme(scheme).setUsePreemptiveAuth(usePreemptiveAuth);
-      c.setRealm(b.build());
-    }
-
-    this.httpClient = new AsyncHttpClient(c.build());
+      this.realm = b.build();
+    } else
+      this.realm = null;
   }
 
   private WebResponse simpleRequest(RequestBuilder requestBuilder) {
@@ -81,9 +94,10 @@ class AHCWebClient<T> implements WebClient<T> {
           try {
             future.set(new WebResponseImpl(injector, responseFuture.get()));
           } catch (InterruptedException e) {
-            throw new TransportException(e);
+            future.setException(new TransportException(e));
           } catch (ExecutionException e) {
-            throw new TransportException(e);
+            // Fail the future, rather than the listener thread, so callers hear of it.
+            future.setException(new TransportException(e.getCause()));
           }
         }
       }, executor);
@@ -98,20 +112,24 @@ class AHCWebClient<T> implements WebClient<T> {
     requestBuilder = addHeadersToRequestBuilder(requestBuilder);
 
     try {
-      //
-      // Read the entity from the transport plugin.
-      //
-      final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-      transport.out(stream, typeToTransform.getRawType(), t);
+      if (null != bodyWriters) {
+        requestBuilder.setBody(streamingBody(t));
+      } else {
+        //
+        // Read the entity from the transport plugin.
+        //
+        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        transport.out(stream, typeToTransform.getRawType(), t);
 
-      // TODO worry about endian issues? Or will Content-Encoding be sufficient?
-      // OOM if the stream is too bug
-      final byte[] outBuffer = stream.toByteArray();
+        // TODO worry about endian issues? Or will Content-Encoding be sufficient?
+        // OOM if the stream is too bug, use streaming() for large entities
+        final byte[] outBuffer = stream.toByteArray();
 
-      //
-      // Set request body
-      //
-      requestBuilder.setBody(outBuffer);
+        //
+        // Set request body
+        //
+        requestBuilder.setBody(outBuffer);
+      }
       Response r = httpClient.executeRequest(requestBuilder.build()).get();
       return new WebResponseImpl(injector, r);
     } catch (IOException e) {
@@ -135,21 +153,20 @@ class AHCWebClient<T> implements WebClient<T> {
       //
       // Read the entity from the transport plugin.
       //
-      InputStream in;
       if (t instanceof InputStream)
-        in = (InputStream) t;
+        requestBuilder.setBody((InputStream) t);
+      else if (null != bodyWriters)
+        requestBuilder.setBody(streamingBody(t));
       else {
         final ByteArrayOutputStream stream = new ByteArrayOutputStream();
         transport.out(stream, typeToTransform.getRawType(), t);
 
-        in = new ByteArrayInputStream(stream.toByteArray());
+        //
+        // Set request body
+        //
+        requestBuilder.setBody(new ByteArrayInputStream(stream.toByteArray()));
       }
 
-      //
-      // Set request body
-      //
-      requestBuilder.setBody(in);
-
       final com.ning.http.client.ListenableFuture<Response> responseFuture = httpClient.executeRequest(
           requestBuilder.build());
       responseFuture.addListener(new Runnable() {
@@ -158,9 +175,10 @@ class AHCWebClient<T> implements WebClient<T> {
           try {
             future.set(new WebResponseImpl(injector, responseFuture.get()));
           } catch (InterruptedException e) {
-            throw new TransportException(e);
+            future.setException(new TransportException(e));
           } catch (ExecutionException e) {
-            throw new TransportException(e);
+            // Fail the future, rather than the listener thread, so callers hear of it.
+            future.setException(new TransportException(e.getCause()));
           }
         }
       }, executor);
@@ -170,7 +188,17 @@ class AHCWebClient<T> implements WebClient<T> {
     }
   }
 
+  @SuppressWarnings("unchecked")
+  private StreamingBodyGenerator<T> streamingBody(T t) {
+    return new StreamingBodyGenerator<T>(bodyWriters, transport,
+        (Class<T>) typeToTransform.getRawType(), t, stallMillis);
+  }
+
   private RequestBuilder addHeadersToRequestBuilder(RequestBuilder requestBuilder) {
+    if (null != realm) {
+      requestBuilder.setRealm(realm);
+    }
+
     //
     // The user may wish to override the Content-Type header for whatever reason. If they do so we just honour that header and make
     // sure we don't trample that header with the default Content-Type header as provided by the Transport.
@@ -242,8 +270,57 @@ class AHCWebClient<T> implements WebClient<T> {
     return simpleAsyncRequest(new RequestBuilder("DELETE").setUrl(url), executor);
   }
 
+  @Override
+  public <E> WebResponse getEach(Class<E> elementType, ElementHandler<? super E> handler) {
+    return getEach(TypeLiteral.get(elementType), handler);
+  }
+
+  @Override
+  public <E> WebResponse getEach(TypeLiteral<E> elementType, ElementHandler<? super E> handler) {
+    RequestBuilder requestBuilder = addHeadersToRequestBuilder(new RequestBuilder("GET").setUrl(url));
+
+    StreamingResponseHandler response = new StreamingResponseHandler(stallMillis);
+    InputStream body = response.body();
+    try {
+      com.ning.http.client.ListenableFuture<Void> future =
+          httpClient.executeRequest(requestBuilder.build(), response);
+      response.awaitHeaders();
+
+      byte[] kept = new byte[0];
+      if (response.status() / 100 == 2) {
+        ObjectMapper mapper = injector.getInstance(ObjectMapper.class);
+        JsonParser parser = mapper.getFactory().createParser(body);
+        if (parser.nextToken() != JsonToken.START_ARRAY)
+          throw new TransportException("Expected a JSON array from " + url);
+
+        JavaType type = mapper.getTypeFactory().constructType(elementType.getType());
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          handler.element(mapper.<E>readValue(parser, type));
+        }
+
+        // Let the rest of the response (trailing whitespace, say) finish arriving.
+        byte[] rest = new byte[256];
+        while (body.read(rest) >= 0);
+      } else {
+        kept = ByteStreams.toByteArray(body);
+      }
+
+      future.get();
+      return new StreamedWebResponse(injector, response.status(), response.headers(), kept);
+    } catch (IOException e) {
+      throw new TransportException(e);
+    } catch (InterruptedException e) {
+      throw new TransportException(e);
+    } catch (ExecutionException e) {
+      throw new TransportException(e);
+    } finally {
+      // Abandons whatever is left, if we stopped early.
+      Closeables.closeQuietly(body);
+    }
+  }
+
   @Override
   public void close() {
-    httpClient.close();
+    // Nothing to do, connections belong to the shared client.
   }
 }
@@ -0,0 +1,48 @@
+package com.google.sitebricks.client;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many requests, run together over the shared connection pool, but no more than a given
+ * number at a time. For example, to fan out from a page:
+ *
+ * <pre>
+ *   ListenableFuture&lt;List&lt;WebResponse&gt;&gt; responses = web.batch(8)
+ *       .deadline(500, TimeUnit.MILLISECONDS)
+ *       .get(web.clientOf(profileUrl).transportsText())
+ *       .post(web.clientOf(searchUrl).transports(Query.class).over(Json.class), query)
+ *       .execute();
+ * </pre>
+ *
+ * Requests start in the order they were added. Timings for every batched request are
+ * recorded in {@link BatchMetrics}.
+ */
+public interface Batch {
+  /**
+   * Requests added after this must complete within the given time of the batch being
+   * executed, including any time spent waiting for their turn. Requests that miss their
+   * deadline count as failed.
+   */
+  Batch deadline(long timeout, TimeUnit unit);
+
+  <T> Batch get(WebClient<T> client);
+
+  <T> Batch post(WebClient<T> client, T entity);
+
+  <T> Batch put(WebClient<T> client, T entity);
+
+  <T> Batch patch(WebClient<T> client, T entity);
+
+  <T> Batch delete(WebClient<T> client);
+
+  /**
+   * Starts the batch. A batch may only be executed once.
+   *
+   * @return The responses, in the order their requests were added. Requests that failed or
+   *  missed their deadline have a null response, so one slow backend does not sink the rest.
+   */
+  ListenableFuture<List<WebResponse>> execute();
+}
@@ -0,0 +1,80 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.Singleton;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Running totals for batched requests, splitting the time each spent queued behind its
+ * batch's concurrency limit from the time it spent on the wire. A batch that is mostly
+ * queueing wants more concurrency, or fewer requests.
+ */
+@ThreadSafe
+@Singleton
+public class BatchMetrics {
+  private final AtomicLong requests = new AtomicLong();
+  private final AtomicLong failures = new AtomicLong();
+  private final AtomicLong timeouts = new AtomicLong();
+  private final AtomicLong queueNanos = new AtomicLong();
+  private final AtomicLong wireNanos = new AtomicLong();
+
+  void started(long queuedNanos) {
+    requests.incrementAndGet();
+    queueNanos.addAndGet(queuedNanos);
+  }
+
+  void finished(long onWireNanos, boolean failed) {
+    wireNanos.addAndGet(onWireNanos);
+    if (failed)
+      failures.incrementAndGet();
+  }
+
+  void timedOut() {
+    timeouts.incrementAndGet();
+  }
+
+  /**
+   * @return The number of batched requests sent.
+   */
+  public long requests() {
+    return requests.get();
+  }
+
+  /**
+   * @return The number of batched requests that failed, not counting those that missed
+   *  their deadline.
+   */
+  public long failures() {
+    return failures.get();
+  }
+
+  /**
+   * @return The number of batched requests that missed their deadline, whether waiting
+   *  for their turn or on the wire.
+   */
+  public long timeouts() {
+    return timeouts.get();
+  }
+
+  public long averageQueueTime(TimeUnit unit) {
+    return average(queueNanos, unit);
+  }
+
+  public long averageWireTime(TimeUnit unit) {
+    return average(wireNanos, unit);
+  }
+
+  private long average(AtomicLong total, TimeUnit unit) {
+    long count = requests.get();
+    return (count == 0) ? 0 : unit.convert(total.get() / count, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString() {
+    return "requests=" + requests() + ", failures=" + failures() + ", timeouts=" + timeouts()
+        + ", queue=" + averageQueueTime(TimeUnit.MICROSECONDS) + "us"
+        + ", wire=" + averageWireTime(TimeUnit.MICROSECONDS) + "us";
+  }
+}
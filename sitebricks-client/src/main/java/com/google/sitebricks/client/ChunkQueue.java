@@ -0,0 +1,100 @@
+package com.google.sitebricks.client;
+
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Hands chunks of a body from the thread producing them to the thread consuming them, holding
+ * no more than a fixed number at a time. Streamed request and response bodies both go through
+ * one, with the http client's I/O thread on one side or the other.
+ * <p>
+ * Since an I/O thread must never be held up for long, either side can wait with a limit.
+ * Ending the body never waits, and a consumer that gives up releases a waiting producer.
+ */
+@ThreadSafe
+class ChunkQueue {
+  /**
+   * How long the I/O threads wait on a streamed body by default, before failing its request.
+   */
+  static final long STALL_MILLIS = 30 * 1000;
+
+  /**
+   * Taken from the queue at the end of the body, whether or not it arrived whole.
+   */
+  static final byte[] END = new byte[0];
+
+  private final BlockingQueue<byte[]> chunks = new LinkedBlockingQueue<byte[]>();
+  private final Semaphore room;
+  private final int capacity;
+  private final AtomicBoolean ended = new AtomicBoolean();
+
+  private volatile Throwable failure;
+  private volatile boolean abandoned;
+
+  ChunkQueue(int capacity) {
+    this.capacity = capacity;
+    this.room = new Semaphore(capacity);
+  }
+
+  /**
+   * Queues a chunk, waiting up to the given time for room.
+   *
+   * @return false if there was no room in time, or the consumer gave up (see
+   *  {@link #isAbandoned()}), in which case the chunk was not queued.
+   */
+  boolean offer(byte[] chunk, long limitMillis) throws InterruptedException {
+    if (abandoned || !room.tryAcquire(limitMillis, TimeUnit.MILLISECONDS) || abandoned)
+      return false;
+
+    chunks.add(chunk);
+    return true;
+  }
+
+  /**
+   * Ends the body, with the reason it did not arrive whole, if it did not. Only the first
+   * call counts.
+   */
+  void end(Throwable failure) {
+    if (ended.compareAndSet(false, true)) {
+      this.failure = failure;
+      chunks.add(END);
+    }
+  }
+
+  /**
+   * Waits up to the given time for the next chunk.
+   *
+   * @return The next chunk, {@link #END}, or null if none arrived in time.
+   */
+  byte[] take(long limitMillis) throws InterruptedException {
+    byte[] chunk = chunks.poll(limitMillis, TimeUnit.MILLISECONDS);
+    if (null != chunk && END != chunk)
+      room.release();
+    return chunk;
+  }
+
+  /**
+   * @return Why the body did not arrive whole, or null. Only set once {@link #END} is taken.
+   */
+  Throwable failure() {
+    return failure;
+  }
+
+  /**
+   * Called by the consumer to drop the rest of the body. The producer stops waiting for room.
+   */
+  void abandon() {
+    abandoned = true;
+    chunks.clear();
+    room.release(capacity);
+  }
+
+  boolean isAbandoned() {
+    return abandoned;
+  }
+}
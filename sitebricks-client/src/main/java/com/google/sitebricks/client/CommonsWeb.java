@@ -12,10 +12,15 @@ import java.util.Map;
 @Immutable
 class CommonsWeb implements Web {
     private final Provider<WebClientBuilder> builder;
+    private final SharedHttpClient httpClient;
+    private final BatchMetrics metrics;
 
     @Inject
-    public CommonsWeb(Provider<WebClientBuilder> builder) {
+    public CommonsWeb(Provider<WebClientBuilder> builder, SharedHttpClient httpClient,
+                      BatchMetrics metrics) {
         this.builder = builder;
+        this.httpClient = httpClient;
+        this.metrics = metrics;
     }
 
     public FormatBuilder clientOf(String url) {
@@ -25,4 +30,8 @@ class CommonsWeb implements Web {
     public FormatBuilder clientOf(String url, Map<String, String> headers) {
         return builder.get().clientOf(url, headers);
     }
+
+    public Batch batch(int concurrency) {
+        return new WebBatch(concurrency, httpClient, metrics);
+    }
 }
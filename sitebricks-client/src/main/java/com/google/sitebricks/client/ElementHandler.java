@@ -0,0 +1,9 @@
+package com.google.sitebricks.client;
+
+/**
+ * Receives the elements of a streamed JSON array, one at a time, in the order they arrive.
+ * See {@link WebClient#getEach(Class, ElementHandler)}.
+ */
+public interface ElementHandler<E> {
+  void element(E element);
+}
@@ -0,0 +1,107 @@
+package com.google.sitebricks.client;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * The one http client (and so the one connection pool) that all web clients made by an
+ * injector share. It is started when first used, and connections are kept alive between
+ * requests until {@link #shutdown()}. Sitebricks shuts it down along with the app, anyone
+ * else using web clients should call {@link #shutdown()} themselves when done.
+ * <p>
+ * To tune the pool, install a {@link WebClientModule}, or bind this class to an instance
+ * made with your own config.
+ */
+@ThreadSafe
+@Singleton
+public class SharedHttpClient {
+  private final AsyncHttpClientConfig config;
+
+  private volatile AsyncHttpClient client;
+  private ExecutorService workers;
+  private ScheduledExecutorService timer;
+  private boolean shutdown;
+
+  @Inject
+  public SharedHttpClient() {
+    this(new AsyncHttpClientConfig.Builder().setAllowPoolingConnection(true).build());
+  }
+
+  public SharedHttpClient(AsyncHttpClientConfig config) {
+    Preconditions.checkArgument(null != config, "Client config cannot be null.");
+    this.config = config;
+  }
+
+  AsyncHttpClient client() {
+    AsyncHttpClient client = this.client;
+    if (null == client) {
+      synchronized (this) {
+        Preconditions.checkState(!shutdown, "Web clients have been shut down.");
+        client = this.client;
+        if (null == client)
+          this.client = client = new AsyncHttpClient(config);
+      }
+    }
+
+    return client;
+  }
+
+  /**
+   * Threads for work that must stay off the client's own I/O threads, such as writing
+   * streamed request bodies, or starting batched requests (connecting blocks).
+   */
+  synchronized Executor workers() {
+    Preconditions.checkState(!shutdown, "Web clients have been shut down.");
+    if (null == workers)
+      workers = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+          .setNameFormat("sitebricks-client-worker-%d")
+          .setDaemon(true)
+          .build());
+
+    return workers;
+  }
+
+  /**
+   * A thread for timing out batched requests.
+   */
+  synchronized ScheduledExecutorService timer() {
+    Preconditions.checkState(!shutdown, "Web clients have been shut down.");
+    if (null == timer)
+      timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+          .setNameFormat("sitebricks-client-timer-%d")
+          .setDaemon(true)
+          .build());
+
+    return timer;
+  }
+
+  /**
+   * Closes every pooled connection and stops the client's threads. Web clients cannot be
+   * used after this.
+   */
+  public synchronized void shutdown() {
+    shutdown = true;
+    if (null != client) {
+      client.close();
+      client = null;
+    }
+    if (null != workers) {
+      workers.shutdownNow();
+      workers = null;
+    }
+    if (null != timer) {
+      timer.shutdownNow();
+      timer = null;
+    }
+  }
+}
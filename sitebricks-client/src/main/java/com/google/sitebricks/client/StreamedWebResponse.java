@@ -0,0 +1,63 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import net.jcip.annotations.Immutable;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * The response to a request whose body was streamed. Only bodies that were not streamed,
+ * such as those of error responses, are kept.
+ */
+@Immutable
+class StreamedWebResponse implements WebResponse {
+  private final Injector injector;
+  private final int status;
+  private final Map<String, String> headers;
+  private final byte[] body;
+
+  StreamedWebResponse(Injector injector, int status, Map<String, String> headers, byte[] body) {
+    this.injector = injector;
+    this.status = status;
+    this.headers = Collections.unmodifiableMap(headers);
+    this.body = body;
+  }
+
+  public Map<String, String> getHeaders() {
+    return headers;
+  }
+
+  public int status() {
+    return status;
+  }
+
+  public <T> ResponseTransportBuilder<T> to(Class<T> data) {
+    return to(TypeLiteral.get(data));
+  }
+
+  public <T> ResponseTransportBuilder<T> to(final TypeLiteral<T> data) {
+    return new ResponseTransportBuilder<T>() {
+      public T using(Class<? extends Transport> transport) {
+        try {
+          return injector.getInstance(transport).in(new ByteArrayInputStream(body), data);
+        } catch (IOException e) {
+          throw new TransportException(e);
+        }
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    try {
+      return new String(body, "UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -0,0 +1,207 @@
+package com.google.sitebricks.client;
+
+import com.ning.http.client.Body;
+import com.ning.http.client.BodyGenerator;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.concurrent.Executor;
+
+/**
+ * Sends a request entity as the transport writes it, in chunks, rather than buffering it
+ * whole. The transport writes on a thread of its own, into a {@link ChunkQueue} that the
+ * http client drains as it sends. So the transport waits whenever the connection falls
+ * behind, and no more than {@link #QUEUED_CHUNKS} chunks are ever held in memory.
+ * <p>
+ * The http client marks bodies of unknown length {@code Transfer-Encoding: chunked} but
+ * sends them as given, so chunks are framed here.
+ * <p>
+ * Note that the http client reads the body on its I/O threads, and has no way to be told
+ * "nothing yet, come back later" (an empty read has it spin). So a read waits for the
+ * transport's next chunk, holding up the other connections on that I/O thread meanwhile.
+ * Transports that serialize from memory keep that wait short; one that stalls for longer
+ * than the client's stall limit fails the request rather than the I/O thread.
+ */
+@ThreadSafe
+class StreamingBodyGenerator<T> implements BodyGenerator {
+  static final int CHUNK_SIZE = 8192;
+  static final int QUEUED_CHUNKS = 8;
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+  private static final byte[] CRLF = "\r\n".getBytes(ASCII);
+  private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(ASCII);
+
+  private final Executor writers;
+  private final Transport transport;
+  private final Class<T> type;
+  private final T entity;
+  private final long stallMillis;
+
+  StreamingBodyGenerator(Executor writers, Transport transport, Class<T> type, T entity,
+                         long stallMillis) {
+    this.writers = writers;
+    this.transport = transport;
+    this.type = type;
+    this.entity = entity;
+    this.stallMillis = stallMillis;
+  }
+
+  @Override
+  public Body createBody() throws IOException {
+    final ChunkedBody body = new ChunkedBody(stallMillis);
+    writers.execute(new Runnable() {
+      @Override
+      public void run() {
+        ChunkOutputStream out = new ChunkOutputStream(body);
+        IOException failure = null;
+        try {
+          transport.out(out, type, entity);
+          out.close();
+        } catch (IOException e) {
+          failure = e;
+        } catch (RuntimeException e) {
+          failure = new IOException("Transport could not write request body", e);
+        } finally {
+          body.chunks.end(failure);
+        }
+      }
+    });
+
+    return body;
+  }
+
+  private static class ChunkedBody implements Body {
+    private final ChunkQueue chunks = new ChunkQueue(QUEUED_CHUNKS);
+    private final long stallMillis;
+
+    // Only touched by the reading thread.
+    private byte[] chunk;
+    private int position;
+    private boolean ended;
+
+    private ChunkedBody(long stallMillis) {
+      this.stallMillis = stallMillis;
+    }
+
+    @Override
+    public long getContentLength() {
+      return -1;
+    }
+
+    @Override
+    public long read(ByteBuffer buffer) throws IOException {
+      if (null == chunk || position == chunk.length) {
+        if (ended)
+          return -1;
+
+        // This is an I/O thread of the http client, so never wait on the transport for long.
+        try {
+          chunk = chunks.take(stallMillis);
+          position = 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted waiting for request body");
+        }
+
+        if (null == chunk) {
+          ended = true;
+          throw new IOException("Transport stalled writing request body for more than "
+              + stallMillis + "ms");
+        }
+
+        if (ChunkQueue.END == chunk) {
+          ended = true;
+          if (null != chunks.failure())
+            throw (IOException) chunks.failure();
+          return -1;
+        }
+      }
+
+      int length = Math.min(buffer.remaining(), chunk.length - position);
+      buffer.put(chunk, position, length);
+      position += length;
+      return length;
+    }
+
+    // The transport has a thread of its own, so it may wait as long as the connection does.
+    void put(byte[] chunk) throws IOException {
+      try {
+        if (!chunks.offer(chunk, Long.MAX_VALUE))
+          throw new IOException("Request body was abandoned before it was sent");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted writing request body");
+      }
+    }
+
+    @Override
+    public void close() {
+      chunks.abandon();
+    }
+  }
+
+  private static class ChunkOutputStream extends OutputStream {
+    private final ChunkedBody body;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private int count;
+    private boolean closed;
+
+    private ChunkOutputStream(ChunkedBody body) {
+      this.body = body;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      if (count == buffer.length)
+        flushChunk();
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+      while (length > 0) {
+        if (count == buffer.length)
+          flushChunk();
+
+        int written = Math.min(length, buffer.length - count);
+        System.arraycopy(bytes, offset, buffer, count, written);
+        count += written;
+        offset += written;
+        length -= written;
+      }
+    }
+
+    // Transports may flush as often as they like, chunks only go out when full.
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed)
+        return;
+      closed = true;
+
+      flushChunk();
+      body.put(LAST_CHUNK);
+    }
+
+    private void flushChunk() throws IOException {
+      if (count == 0)
+        return;
+
+      byte[] size = Integer.toHexString(count).getBytes(ASCII);
+      byte[] chunk = new byte[size.length + CRLF.length + count + CRLF.length];
+      System.arraycopy(size, 0, chunk, 0, size.length);
+      System.arraycopy(CRLF, 0, chunk, size.length, CRLF.length);
+      System.arraycopy(buffer, 0, chunk, size.length + CRLF.length, count);
+      System.arraycopy(CRLF, 0, chunk, chunk.length - CRLF.length, CRLF.length);
+
+      body.put(chunk);
+      count = 0;
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package com.google.sitebricks.client;
+
+import com.ning.http.client.AsyncHandler;
+import com.ning.http.client.HttpResponseBodyPart;
+import com.ning.http.client.HttpResponseHeaders;
+import com.ning.http.client.HttpResponseStatus;
+import net.jcip.annotations.ThreadSafe;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Hands a response body to a reading thread as it arrives, rather than buffering it whole.
+ * Body parts wait in a {@link ChunkQueue}, so the connection is only read as fast as the
+ * body is consumed, and no more than {@link #QUEUED_PARTS} parts are held in memory.
+ * <p>
+ * Parts arrive on an I/O thread of the http client, which waits for room in the queue and
+ * holds up the other connections on that thread meanwhile. A reader that falls behind by
+ * more than the stall limit fails the response, rather than the I/O thread.
+ */
+@ThreadSafe
+class StreamingResponseHandler implements AsyncHandler<Void> {
+  static final int QUEUED_PARTS = 16;
+
+  private final CountDownLatch headersReceived = new CountDownLatch(1);
+  private final ChunkQueue parts = new ChunkQueue(QUEUED_PARTS);
+  private final BodyStream body = new BodyStream();
+  private final long stallMillis;
+
+  private volatile int status;
+  private volatile Map<String, String> headers;
+  private volatile Throwable failure;
+
+  StreamingResponseHandler(long stallMillis) {
+    this.stallMillis = stallMillis;
+  }
+
+  /**
+   * Blocks until the status and headers have arrived.
+   *
+   * @throws TransportException if the request failed before then.
+   */
+  void awaitHeaders() {
+    try {
+      headersReceived.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      body.close();
+      throw new TransportException(e);
+    }
+
+    if (null == headers)
+      throw new TransportException(failure);
+  }
+
+  int status() {
+    return status;
+  }
+
+  Map<String, String> headers() {
+    return headers;
+  }
+
+  /**
+   * The response body, as it arrives. Closing it early abandons the rest of the response.
+   */
+  InputStream body() {
+    return body;
+  }
+
+  @Override
+  public STATE onStatusReceived(HttpResponseStatus responseStatus) {
+    status = responseStatus.getStatusCode();
+    return STATE.CONTINUE;
+  }
+
+  @Override
+  public STATE onHeadersReceived(HttpResponseHeaders responseHeaders) {
+    // translate from ahc http client headers
+    Map<String, String> headers = new HashMap<String, String>();
+    for (Map.Entry<String, List<String>> header : responseHeaders.getHeaders().entrySet()) {
+      for (String value : header.getValue()) {
+        headers.put(header.getKey(), value);
+      }
+    }
+
+    this.headers = headers;
+    headersReceived.countDown();
+    return STATE.CONTINUE;
+  }
+
+  @Override
+  public STATE onBodyPartReceived(HttpResponseBodyPart bodyPart) throws InterruptedException {
+    byte[] part = bodyPart.getBodyPartBytes();
+    if (part.length == 0)
+      return STATE.CONTINUE;
+
+    if (parts.offer(part, stallMillis))
+      return STATE.CONTINUE;
+
+    // Free the I/O thread, and tell the reader why the rest of the body never came.
+    if (!parts.isAbandoned())
+      parts.end(new IOException("Consumer stalled: the response body was not read for more"
+          + " than " + stallMillis + "ms, so the rest of it was abandoned"));
+    return STATE.ABORT;
+  }
+
+  @Override
+  public Void onCompleted() {
+    parts.end(null);
+    return null;
+  }
+
+  @Override
+  public void onThrowable(Throwable t) {
+    failure = t;
+    headersReceived.countDown();
+    parts.end(t);
+  }
+
+  private class BodyStream extends InputStream {
+    // Only touched by the reading thread.
+    private byte[] part;
+    private int position;
+    private boolean ended;
+
+    @Override
+    public int read() throws IOException {
+      if (!fill())
+        return -1;
+
+      return part[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      if (length == 0)
+        return 0;
+      if (!fill())
+        return -1;
+
+      int read = Math.min(length, part.length - position);
+      System.arraycopy(part, position, bytes, offset, read);
+      position += read;
+      return read;
+    }
+
+    @Override
+    public int available() {
+      return (null == part) ? 0 : part.length - position;
+    }
+
+    // Returns false at the end of the body.
+    private boolean fill() throws IOException {
+      while (null == part || position == part.length) {
+        if (ended)
+          return false;
+
+        try {
+          part = parts.take(Long.MAX_VALUE);
+          position = 0;
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IOException("Interrupted waiting for response body");
+        }
+
+        if (ChunkQueue.END == part) {
+          ended = true;
+          if (null != parts.failure())
+            throw new IOException("Response body did not arrive whole", parts.failure());
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public void close() {
+      ended = true;
+      parts.abandon();
+    }
+  }
+}
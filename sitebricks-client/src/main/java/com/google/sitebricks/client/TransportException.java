@@ -7,4 +7,8 @@ public final class TransportException extends RuntimeException {
     public TransportException(Throwable cause) {
         super(cause);
     }
+
+    public TransportException(String message) {
+        super(message);
+    }
 }
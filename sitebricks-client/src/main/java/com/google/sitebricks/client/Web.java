@@ -4,6 +4,7 @@ import com.google.inject.ImplementedBy;
 import com.google.inject.TypeLiteral;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
@@ -18,6 +19,12 @@ public interface Web {
 
   FormatBuilder clientOf(String url, Map<String, String> headers);
 
+  /**
+   * Starts a batch of requests, which runs no more than {@code concurrency} of them at
+   * a time.
+   */
+  Batch batch(int concurrency);
+
   static interface FormatBuilder {
     <T> ReadAsBuilder<T> transports(Class<T> clazz);
 
@@ -28,6 +35,24 @@ public interface Web {
     FormatBuilder auth(Auth auth, String username, String password);
       
     FormatBuilder auth(Auth auth, String username, String password, boolean usePreemptiveAuth);
+
+    /**
+     * Send request entities as the transport writes them, chunked, rather than buffering
+     * each whole entity in memory first. Use this for large uploads, so long as the server
+     * accepts chunked requests.
+     * <p>
+     * The http client reads the entity on its shared I/O threads, which wait on the transport
+     * for each chunk. So stream entities the transport can write without blocking (e.g. from
+     * memory), not ones fed from a slow source. A transport that stalls fails the request.
+     */
+    FormatBuilder streaming();
+
+    /**
+     * How long the shared I/O threads may wait on a streamed body before failing its
+     * request: on the transport, for {@link #streaming()} requests, and on the element
+     * handler, for {@link WebClient#getEach}. Thirty seconds, unless set.
+     */
+    FormatBuilder stallLimit(long time, TimeUnit unit);
   }
 
   static interface ReadAsBuilder<T> {
@@ -0,0 +1,207 @@
+package com.google.sitebricks.client;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import net.jcip.annotations.NotThreadSafe;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Starts the next queued request whenever one on the wire completes, so no more than
+ * {@code concurrency} are ever in flight. A request that misses its deadline is given up
+ * on, but keeps its place in flight until it actually completes, so the connection pool
+ * never sees more than the limit.
+ */
+@NotThreadSafe
+class WebBatch implements Batch {
+  private final int concurrency;
+  private final SharedHttpClient httpClient;
+  private final BatchMetrics metrics;
+
+  // Requests are started from whichever worker saw the last one complete.
+  private final Executor workers;
+
+  private final List<Call> calls = Lists.newArrayList();
+  private long deadlineNanos = -1;
+  private boolean executed;
+
+  WebBatch(int concurrency, SharedHttpClient httpClient, BatchMetrics metrics) {
+    Preconditions.checkArgument(concurrency > 0, "Concurrency must be positive: %s", concurrency);
+    this.concurrency = concurrency;
+    this.httpClient = httpClient;
+    this.metrics = metrics;
+    this.workers = httpClient.workers();
+  }
+
+  @Override
+  public Batch deadline(long timeout, TimeUnit unit) {
+    Preconditions.checkArgument(timeout > 0, "Deadline must be positive: %s", timeout);
+    deadlineNanos = unit.toNanos(timeout);
+    return this;
+  }
+
+  @Override
+  public <T> Batch get(final WebClient<T> client) {
+    return add(new Call(deadlineNanos) {
+      @Override
+      ListenableFuture<WebResponse> start() {
+        return client.get(workers);
+      }
+    });
+  }
+
+  @Override
+  public <T> Batch post(final WebClient<T> client, final T entity) {
+    return add(new Call(deadlineNanos) {
+      @Override
+      ListenableFuture<WebResponse> start() {
+        return client.post(entity, workers);
+      }
+    });
+  }
+
+  @Override
+  public <T> Batch put(final WebClient<T> client, final T entity) {
+    return add(new Call(deadlineNanos) {
+      @Override
+      ListenableFuture<WebResponse> start() {
+        return client.put(entity, workers);
+      }
+    });
+  }
+
+  @Override
+  public <T> Batch patch(final WebClient<T> client, final T entity) {
+    return add(new Call(deadlineNanos) {
+      @Override
+      ListenableFuture<WebResponse> start() {
+        return client.patch(entity, workers);
+      }
+    });
+  }
+
+  @Override
+  public <T> Batch delete(final WebClient<T> client) {
+    return add(new Call(deadlineNanos) {
+      @Override
+      ListenableFuture<WebResponse> start() {
+        return client.delete(workers);
+      }
+    });
+  }
+
+  private Batch add(Call call) {
+    Preconditions.checkState(!executed, "Batch has already been executed.");
+    calls.add(call);
+    return this;
+  }
+
+  @Override
+  public ListenableFuture<List<WebResponse>> execute() {
+    Preconditions.checkState(!executed, "Batch has already been executed.");
+    executed = true;
+
+    long now = System.nanoTime();
+    List<ListenableFuture<WebResponse>> results = Lists.newArrayListWithCapacity(calls.size());
+    for (Call call : calls) {
+      call.queuedAt = now;
+      if (call.deadlineNanos > 0)
+        call.timeout = httpClient.timer().schedule(call, call.deadlineNanos, TimeUnit.NANOSECONDS);
+      results.add(call.result);
+    }
+
+    Queue<Call> queue = new ConcurrentLinkedQueue<Call>(calls);
+    for (int i = 0; i < concurrency; i++) {
+      startNext(queue);
+    }
+
+    return Futures.successfulAsList(results);
+  }
+
+  // Starts the next request that is still wanted. Loops rather than recursing past the
+  // ones skipped, as a long queue may have expired (or failed to start) all at once.
+  private void startNext(final Queue<Call> queue) {
+    for (Call call = queue.poll(); null != call; call = queue.poll()) {
+      // Skip requests that missed their deadline waiting, their turn goes to the next.
+      if (call.result.isDone())
+        continue;
+
+      if (start(queue, call))
+        return;
+    }
+  }
+
+  // Returns false if the request failed to start, so that its turn goes to the next.
+  private boolean start(final Queue<Call> queue, final Call call) {
+    final long started = System.nanoTime();
+    metrics.started(started - call.queuedAt);
+
+    final ListenableFuture<WebResponse> response;
+    try {
+      response = call.start();
+    } catch (RuntimeException e) {
+      metrics.finished(System.nanoTime() - started, call.finish(null, e));
+      return false;
+    }
+
+    response.addListener(new Runnable() {
+      @Override
+      public void run() {
+        boolean failed;
+        try {
+          call.finish(response.get(), null);
+          failed = false;
+        } catch (ExecutionException e) {
+          failed = call.finish(null, e.getCause());
+        } catch (InterruptedException e) {
+          failed = call.finish(null, e);
+        } catch (RuntimeException e) {
+          failed = call.finish(null, e);
+        }
+
+        metrics.finished(System.nanoTime() - started, failed);
+        startNext(queue);
+      }
+    }, workers);
+    return true;
+  }
+
+  // Runs at the deadline.
+  private abstract class Call implements Runnable {
+    private final long deadlineNanos;
+    private final SettableFuture<WebResponse> result = SettableFuture.create();
+    private long queuedAt;
+    private ScheduledFuture<?> timeout;
+
+    Call(long deadlineNanos) {
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    abstract ListenableFuture<WebResponse> start();
+
+    @Override
+    public void run() {
+      if (result.setException(new TimeoutException("Request missed its deadline of "
+          + TimeUnit.NANOSECONDS.toMillis(deadlineNanos) + "ms")))
+        metrics.timedOut();
+    }
+
+    // Returns false if the request had already missed its deadline.
+    boolean finish(WebResponse response, Throwable failure) {
+      if (null != timeout)
+        timeout.cancel(false);
+
+      return (null == failure) ? result.set(response) : result.setException(failure);
+    }
+  }
+}
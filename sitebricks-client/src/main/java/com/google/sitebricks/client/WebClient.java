@@ -1,6 +1,7 @@
 package com.google.sitebricks.client;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.inject.TypeLiteral;
 
 import java.util.concurrent.Executor;
 
@@ -31,7 +32,28 @@ public interface WebClient<T> {
     ListenableFuture<WebResponse> delete(Executor executor);
 
     /**
-     * Close the underlying client.
+     * GETs a JSON array, decoding its elements one at a time as the response arrives and
+     * handing each to the given handler, on this thread. The body is never held in memory
+     * whole, so this suits arrays of any size. A handler that throws abandons the rest of
+     * the response.
+     * <p>
+     * Handlers run against a live connection, and must keep up with it. While a handler is
+     * busy, the response fills a small buffer and then holds up a shared I/O thread (and so
+     * other clients' connections). If it is held up for longer than the stall limit (see
+     * {@link Web.FormatBuilder#stallLimit}), the rest of the response is abandoned and this
+     * throws a {@link TransportException}. Hand slow work, such as writing each element to a
+     * database, to another thread.
+     *
+     * @return The response status and headers. Successful response bodies are streamed and
+     *  not kept, others are kept as usual and their elements are not handled.
+     */
+    <E> WebResponse getEach(Class<E> elementType, ElementHandler<? super E> handler);
+
+    <E> WebResponse getEach(TypeLiteral<E> elementType, ElementHandler<? super E> handler);
+
+    /**
+     * Release this client. Connections are pooled and shared by all clients, so they stay
+     * open until {@link SharedHttpClient#shutdown()}.
      */
     void close();
 }
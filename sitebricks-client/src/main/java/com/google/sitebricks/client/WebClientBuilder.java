@@ -9,6 +9,7 @@ import com.google.sitebricks.client.transport.Text;
 import net.jcip.annotations.NotThreadSafe;
 
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
@@ -17,6 +18,7 @@ import java.util.Map;
 class WebClientBuilder implements Web.FormatBuilder {
 
   private final Injector injector;
+  private final SharedHttpClient httpClient;
 
   private String url;
   private Map<String, String> headers;
@@ -25,10 +27,13 @@ class WebClientBuilder implements Web.FormatBuilder {
   private String username;
   private String password;
   private boolean usePreemptiveAuth;
+  private boolean streaming;
+  private long stallMillis = ChunkQueue.STALL_MILLIS;
 
   @Inject
-  public WebClientBuilder(Injector injector) {
+  public WebClientBuilder(Injector injector, SharedHttpClient httpClient) {
     this.injector = injector;
+    this.httpClient = httpClient;
   }
 
   public Web.FormatBuilder clientOf(String url) {
@@ -76,6 +81,17 @@ class WebClientBuilder implements Web.FormatBuilder {
     return this;
   }
 
+  public Web.FormatBuilder streaming() {
+    this.streaming = true;
+    return this;
+  }
+
+  public Web.FormatBuilder stallLimit(long time, TimeUnit unit) {
+    Preconditions.checkArgument(time > 0, "Stall limit must be positive: %s", time);
+    this.stallMillis = unit.toMillis(time);
+    return this;
+  }
+
   private class InternalReadAsBuilder<T> implements Web.ReadAsBuilder<T> {
     private final TypeLiteral<T> transporting;
 
@@ -84,7 +100,9 @@ class WebClientBuilder implements Web.FormatBuilder {
     }
 
     public WebClient<T> over(Class<? extends Transport> transport) {
-      return new AHCWebClient<T>(injector, injector.getInstance(transport), authType, username, password, 
+      return new AHCWebClient<T>(injector, httpClient.client(),
+                                 streaming ? httpClient.workers() : null, stallMillis,
+                                 injector.getInstance(transport), authType, username, password,
                                  usePreemptiveAuth, url, headers, transporting);
     }
   }
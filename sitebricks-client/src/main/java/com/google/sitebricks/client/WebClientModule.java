@@ -0,0 +1,67 @@
+package com.google.sitebricks.client;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.AbstractModule;
+import com.ning.http.client.AsyncHttpClientConfig;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sizes the connection pool shared by web clients. Without this module, web clients share
+ * a pool with the http client's defaults. For example:
+ *
+ * <pre>
+ *   install(new WebClientModule()
+ *       .maxConnectionsPerHost(20)
+ *       .idleTimeout(30, TimeUnit.SECONDS));
+ * </pre>
+ */
+public class WebClientModule extends AbstractModule {
+  private final AsyncHttpClientConfig.Builder config =
+      new AsyncHttpClientConfig.Builder().setAllowPoolingConnection(true);
+
+  /**
+   * The most connections to keep open at once, across all hosts.
+   */
+  public WebClientModule maxConnections(int max) {
+    config.setMaximumConnectionsTotal(max);
+    return this;
+  }
+
+  /**
+   * The most connections to keep open at once to any one host.
+   */
+  public WebClientModule maxConnectionsPerHost(int max) {
+    config.setMaximumConnectionsPerHost(max);
+    return this;
+  }
+
+  /**
+   * How long a pooled connection may sit unused before it is closed.
+   */
+  public WebClientModule idleTimeout(long timeout, TimeUnit unit) {
+    config.setIdleConnectionInPoolTimeoutInMs(millis(timeout, unit));
+    return this;
+  }
+
+  public WebClientModule connectTimeout(long timeout, TimeUnit unit) {
+    config.setConnectionTimeoutInMs(millis(timeout, unit));
+    return this;
+  }
+
+  public WebClientModule requestTimeout(long timeout, TimeUnit unit) {
+    config.setRequestTimeoutInMs(millis(timeout, unit));
+    return this;
+  }
+
+  private static int millis(long timeout, TimeUnit unit) {
+    long millis = unit.toMillis(timeout);
+    Preconditions.checkArgument(millis <= Integer.MAX_VALUE, "Timeout is too long: %s ms", millis);
+    return (int) millis;
+  }
+
+  @Override
+  protected void configure() {
+    bind(SharedHttpClient.class).toInstance(new SharedHttpClient(config.build()));
+  }
+}
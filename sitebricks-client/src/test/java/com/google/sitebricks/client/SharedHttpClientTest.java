@@ -0,0 +1,59 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.ning.http.client.AsyncHttpClient;
+import com.ning.http.client.AsyncHttpClientConfig;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks that web clients share one http client, and that it can be tuned and shut down.
+ */
+public class SharedHttpClientTest {
+
+  @Test
+  public final void webClientsShareOneHttpClient() {
+    Injector injector = Guice.createInjector();
+    SharedHttpClient shared = injector.getInstance(SharedHttpClient.class);
+
+    Web web = injector.getInstance(Web.class);
+    web.clientOf("http://localhost:4040/a").transportsText().close();
+    web.clientOf("http://localhost:4040/b").transportsText();
+
+    AsyncHttpClient client = shared.client();
+    assert client == shared.client();
+    assert !client.isClosed();
+
+    shared.shutdown();
+    assert client.isClosed();
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public final void noClientsAfterShutdown() {
+    SharedHttpClient shared = new SharedHttpClient();
+    shared.shutdown();
+
+    shared.client();
+  }
+
+  @Test
+  public final void moduleTunesThePool() {
+    SharedHttpClient shared = Guice.createInjector(new WebClientModule()
+        .maxConnections(100)
+        .maxConnectionsPerHost(10)
+        .idleTimeout(30, TimeUnit.SECONDS))
+        .getInstance(SharedHttpClient.class);
+
+    try {
+      AsyncHttpClientConfig config = shared.client().getConfig();
+      assert 100 == config.getMaxTotalConnections();
+      assert 10 == config.getMaxConnectionPerHost();
+      assert 30000 == config.getIdleConnectionInPoolTimeoutInMs();
+      assert config.getAllowPoolingConnection();
+    } finally {
+      shared.shutdown();
+    }
+  }
+}
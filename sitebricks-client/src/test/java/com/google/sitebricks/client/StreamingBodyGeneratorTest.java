@@ -0,0 +1,189 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.TypeLiteral;
+import com.ning.http.client.Body;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+
+/**
+ * Streams request bodies to a bare socket, which checks their chunking byte for byte.
+ */
+public class StreamingBodyGeneratorTest {
+  private Injector injector;
+  private ServerSocket server;
+  private Thread serverThread;
+  private volatile String received;
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    injector = Guice.createInjector();
+    server = new ServerSocket(0);
+    serverThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Socket socket = server.accept();
+          try {
+            received = readChunkedRequest(new DataInputStream(socket.getInputStream()));
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes("US-ASCII"));
+            out.flush();
+          } finally {
+            socket.close();
+          }
+        } catch (IOException e) {
+          received = e.toString();
+        }
+      }
+    });
+    serverThread.start();
+  }
+
+  @AfterMethod
+  public final void post() throws Exception {
+    injector.getInstance(SharedHttpClient.class).shutdown();
+    server.close();
+    serverThread.join(5000);
+  }
+
+  @Test
+  public final void streamsLargeBodiesInChunks() throws Exception {
+    StringBuilder expected = new StringBuilder();
+    for (int i = 0; expected.length() < StreamingBodyGenerator.CHUNK_SIZE * 20; i++) {
+      expected.append(i).append(',');
+    }
+
+    WebResponse response = injector.getInstance(Web.class)
+        .clientOf("http://localhost:" + server.getLocalPort() + "/upload")
+        .streaming()
+        .transports(String.class)
+        .over(DribblingTransport.class)
+        .post(expected.toString());
+
+    serverThread.join(5000);
+    assert 200 == response.status() : response.status();
+    assert expected.toString().equals(received) : received;
+  }
+
+  @Test
+  public final void transportFailuresEndTheBody() throws Exception {
+    Body body = new StreamingBodyGenerator<String>(Executors.newSingleThreadExecutor(),
+        new DribblingTransport(), String.class, "fail", ChunkQueue.STALL_MILLIS).createBody();
+
+    ByteBuffer buffer = ByteBuffer.allocate(StreamingBodyGenerator.CHUNK_SIZE);
+    try {
+      while (body.read(buffer) >= 0) {
+        buffer.clear();
+      }
+      assert false : "Body ended without failing";
+    } catch (IOException expected) {
+      assert "fail".equals(expected.getMessage()) : expected;
+    }
+  }
+
+  @Test
+  public final void stalledTransportsFailTheBody() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    Body body = new StreamingBodyGenerator<String>(Executors.newSingleThreadExecutor(),
+        new DribblingTransport() {
+          @Override
+          public <T> void out(OutputStream out, Class<T> type, T data) throws IOException {
+            try {
+              release.await();
+            } catch (InterruptedException e) {
+              throw new IOException(e.toString());
+            }
+          }
+        }, String.class, "stall", 100).createBody();
+
+    try {
+      body.read(ByteBuffer.allocate(StreamingBodyGenerator.CHUNK_SIZE));
+      assert false : "Read waited out a stalled transport";
+    } catch (IOException expected) {
+      assert expected.getMessage().contains("stalled") : expected;
+    } finally {
+      body.close();
+      release.countDown();
+    }
+  }
+
+  // Decodes a chunked request body, failing on any framing the spec does not allow.
+  private static String readChunkedRequest(DataInputStream in) throws IOException {
+    boolean chunked = false;
+    for (String line = readLine(in); !line.isEmpty(); line = readLine(in)) {
+      if (line.equalsIgnoreCase("Transfer-Encoding: chunked"))
+        chunked = true;
+    }
+    if (!chunked)
+      return "not chunked";
+
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    for (int size = Integer.parseInt(readLine(in), 16); size > 0;
+         size = Integer.parseInt(readLine(in), 16)) {
+      byte[] chunk = new byte[size];
+      in.readFully(chunk);
+      body.write(chunk);
+      if (!readLine(in).isEmpty())
+        return "chunk not terminated";
+    }
+    if (!readLine(in).isEmpty())
+      return "body not terminated";
+
+    return body.toString("UTF-8");
+  }
+
+  private static String readLine(InputStream in) throws IOException {
+    StringBuilder line = new StringBuilder();
+    for (int c = in.read(); c != '\n'; c = in.read()) {
+      if (c < 0)
+        throw new IOException("Connection closed early");
+      if (c != '\r')
+        line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  // Writes a byte at a time, flushing as it goes, the worst a transport could do.
+  public static class DribblingTransport implements Transport {
+    @Override
+    public <T> T in(InputStream in, Class<T> type) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> T in(InputStream in, TypeLiteral<T> type) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> void out(OutputStream out, Class<T> type, T data) throws IOException {
+      if ("fail".equals(data))
+        throw new IOException("fail");
+
+      for (byte b : data.toString().getBytes("UTF-8")) {
+        out.write(b);
+        out.flush();
+      }
+    }
+
+    @Override
+    public String contentType() {
+      return "text/plain";
+    }
+  }
+}
@@ -0,0 +1,219 @@
+package com.google.sitebricks.client;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.client.transport.Text;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Streams JSON arrays from a bare socket, which holds back the end of each array until the
+ * client has handled its first element.
+ */
+public class StreamingResponseHandlerTest {
+  private static final int ELEMENTS = 5000;
+
+  private Injector injector;
+  private ServerSocket server;
+  private final CountDownLatch firstElementHandled = new CountDownLatch(1);
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    injector = Guice.createInjector();
+    server = new ServerSocket(0);
+  }
+
+  @AfterMethod
+  public final void post() throws IOException {
+    injector.getInstance(SharedHttpClient.class).shutdown();
+    server.close();
+  }
+
+  @Test
+  public final void elementsAreHandledAsTheyArrive() throws Exception {
+    serve("200 OK", "[{\"name\":\"item0\",\"size\":0}", true);
+
+    final List<Item> items = Lists.newArrayList();
+    WebResponse response = client().getEach(Item.class, new ElementHandler<Item>() {
+      @Override
+      public void element(Item item) {
+        items.add(item);
+        firstElementHandled.countDown();
+      }
+    });
+
+    assert 200 == response.status() : response;
+    assert "application/json".equals(response.getHeaders().get("Content-Type"));
+    assert ELEMENTS == items.size() : items.size();
+    for (int i = 0; i < ELEMENTS; i++) {
+      assert ("item" + i).equals(items.get(i).name) : items.get(i).name;
+      assert i == items.get(i).size;
+    }
+  }
+
+  @Test
+  public final void typeLiteralsAreSupported() throws Exception {
+    serve("200 OK", "[[1,2],[3]]", false);
+
+    final List<List<Integer>> lists = Lists.newArrayList();
+    client().getEach(new com.google.inject.TypeLiteral<List<Integer>>() {},
+        new ElementHandler<List<Integer>>() {
+          @Override
+          public void element(List<Integer> list) {
+            lists.add(list);
+          }
+        });
+
+    assert "[[1, 2], [3]]".equals(lists.toString()) : lists;
+  }
+
+  @Test
+  public final void errorBodiesAreKept() throws Exception {
+    serve("404 Not Found", "no such export", false);
+
+    WebResponse response = client().getEach(Map.class, new ElementHandler<Map>() {
+      @Override
+      public void element(Map element) {
+        assert false : "Handled an element of an error response";
+      }
+    });
+
+    assert 404 == response.status();
+    assert "no such export".equals(response.toString()) : response;
+    assert "no such export".equals(response.to(String.class).using(Text.class));
+  }
+
+  @Test
+  public final void handlersThatFallBehindFailTheResponse() throws Exception {
+    serve("200 OK", "[{\"name\":\"item0\",\"size\":0}", true);
+
+    WebClient<String> client = injector.getInstance(Web.class)
+        .clientOf("http://localhost:" + server.getLocalPort() + "/export")
+        .stallLimit(200, TimeUnit.MILLISECONDS)
+        .transportsText();
+    try {
+      client.getEach(Item.class, new ElementHandler<Item>() {
+        @Override
+        public void element(Item item) {
+          firstElementHandled.countDown();
+
+          // Far slower than the connection, the rest of the array backs up meanwhile.
+          if (0 == item.size) {
+            try {
+              Thread.sleep(1500);
+            } catch (InterruptedException e) {
+              throw new IllegalStateException(e);
+            }
+          }
+        }
+      });
+      assert false : "A stalled handler held up the connection until it was done";
+    } catch (TransportException expected) {
+      Throwable cause = expected;
+      while (null != cause.getCause())
+        cause = cause.getCause();
+      assert cause.getMessage().startsWith("Consumer stalled") : expected;
+    }
+  }
+
+  @Test(expectedExceptions = TransportException.class)
+  public final void bodiesMustBeArrays() throws Exception {
+    serve("200 OK", "{\"name\":\"item0\"}", false);
+
+    client().getEach(Item.class, new ElementHandler<Item>() {
+      @Override
+      public void element(Item element) {
+      }
+    });
+  }
+
+  private WebClient<String> client() {
+    return injector.getInstance(Web.class)
+        .clientOf("http://localhost:" + server.getLocalPort() + "/export")
+        .transportsText();
+  }
+
+  // Serves one chunked response. Unless told otherwise, the rest of an array is only sent
+  // once its first element has been handled, which a buffering client never does.
+  private void serve(final String status, final String first, final boolean rest) {
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Socket socket = server.accept();
+          try {
+            readRequest(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            out.write(ascii("HTTP/1.1 " + status + "\r\nContent-Type: application/json\r\n"
+                + "Transfer-Encoding: chunked\r\nConnection: close\r\n\r\n"));
+            chunk(out, first);
+
+            if (rest) {
+              if (!firstElementHandled.await(10, TimeUnit.SECONDS))
+                return;
+
+              StringBuilder elements = new StringBuilder();
+              for (int i = 1; i < ELEMENTS; i++) {
+                elements.append(",{\"name\":\"item").append(i).append("\",\"size\":").append(i).append('}');
+                if (elements.length() > 1000) {
+                  chunk(out, elements.toString());
+                  elements.setLength(0);
+                }
+              }
+              chunk(out, elements.append("]\n").toString());
+            }
+            out.write(ascii("0\r\n\r\n"));
+            out.flush();
+          } finally {
+            socket.close();
+          }
+        } catch (Exception e) {
+          // The test will fail on its own.
+        }
+      }
+    }).start();
+  }
+
+  private static void readRequest(InputStream in) throws IOException {
+    // Requests here have no body, so they end with the first blank line.
+    int newlines = 0;
+    while (newlines < 2) {
+      int c = in.read();
+      if (c < 0)
+        throw new IOException("Connection closed early");
+      if (c == '\n')
+        newlines++;
+      else if (c != '\r')
+        newlines = 0;
+    }
+  }
+
+  private static void chunk(OutputStream out, String text) throws IOException {
+    byte[] bytes = ascii(text);
+    out.write(ascii(Integer.toHexString(bytes.length) + "\r\n"));
+    out.write(bytes);
+    out.write(ascii("\r\n"));
+    out.flush();
+  }
+
+  private static byte[] ascii(String text) throws IOException {
+    return text.getBytes("US-ASCII");
+  }
+
+  public static class Item {
+    public String name;
+    public int size;
+  }
+}
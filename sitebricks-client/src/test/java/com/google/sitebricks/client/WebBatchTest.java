@@ -0,0 +1,172 @@
+package com.google.sitebricks.client;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs batches against a bare socket that echoes the path it was asked for, and keeps
+ * track of how many requests it is serving at once.
+ */
+public class WebBatchTest {
+  private Injector injector;
+  private ServerSocket server;
+  private final AtomicInteger serving = new AtomicInteger();
+  private final AtomicInteger mostServing = new AtomicInteger();
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    injector = Guice.createInjector();
+    server = new ServerSocket(0);
+    new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            final Socket socket = server.accept();
+            new Thread(new Runnable() {
+              @Override
+              public void run() {
+                serve(socket);
+              }
+            }).start();
+          }
+        } catch (SocketException e) {
+          // Closed after the test.
+        } catch (IOException e) {
+          throw new RuntimeException(e);
+        }
+      }
+    }).start();
+  }
+
+  @AfterMethod
+  public final void post() throws IOException {
+    injector.getInstance(SharedHttpClient.class).shutdown();
+    server.close();
+  }
+
+  @Test
+  public final void concurrencyIsLimited() throws Exception {
+    Batch batch = injector.getInstance(Web.class).batch(3);
+    for (int i = 0; i < 12; i++) {
+      batch.get(client("/" + i));
+    }
+
+    List<WebResponse> responses = batch.execute().get(10, TimeUnit.SECONDS);
+
+    assert 12 == responses.size();
+    for (int i = 0; i < 12; i++) {
+      assert ("/" + i).equals(responses.get(i).toString()) : responses.get(i);
+    }
+    assert mostServing.get() <= 3 : mostServing;
+    assert mostServing.get() > 1 : mostServing;
+
+    BatchMetrics metrics = injector.getInstance(BatchMetrics.class);
+    assert 12 == metrics.requests() : metrics;
+    assert 0 == metrics.failures() : metrics;
+  }
+
+  @Test
+  public final void requestsThatMissTheirDeadlineAreGivenUpOn() throws Exception {
+    List<WebResponse> responses = injector.getInstance(Web.class).batch(1)
+        .get(client("/slow"))
+        .deadline(100, TimeUnit.MILLISECONDS)
+        .get(client("/late"))
+        .execute()
+        .get(10, TimeUnit.SECONDS);
+
+    assert "/slow".equals(responses.get(0).toString()) : responses;
+    assert null == responses.get(1) : responses;
+
+    BatchMetrics metrics = injector.getInstance(BatchMetrics.class);
+    assert 1 == metrics.timeouts() : metrics;
+    assert 1 == metrics.requests() : "Started a request after its deadline: " + metrics;
+  }
+
+  @Test
+  public final void longRunsOfExpiredRequestsAreSkipped() throws Exception {
+    Batch batch = injector.getInstance(Web.class).batch(1)
+        .get(client("/slow"))
+        .deadline(100, TimeUnit.MILLISECONDS);
+
+    // All of these expire while the slow one holds the only slot.
+    WebClient<String> late = client("/late");
+    for (int i = 0; i < 50000; i++) {
+      batch.get(late);
+    }
+    List<WebResponse> responses = batch.deadline(1, TimeUnit.HOURS)
+        .get(client("/last"))
+        .execute()
+        .get(10, TimeUnit.SECONDS);
+
+    assert "/slow".equals(responses.get(0).toString()) : responses.get(0);
+    assert null == responses.get(1);
+    assert "/last".equals(responses.get(responses.size() - 1).toString());
+  }
+
+  @Test
+  public final void failedRequestsDoNotSinkTheBatch() throws Exception {
+    ServerSocket closed = new ServerSocket(0);
+    closed.close();
+
+    Web web = injector.getInstance(Web.class);
+    List<WebResponse> responses = web.batch(2)
+        .get(client("/fine"))
+        .get(web.clientOf("http://localhost:" + closed.getLocalPort() + "/").transportsText())
+        .execute()
+        .get(10, TimeUnit.SECONDS);
+
+    assert "/fine".equals(responses.get(0).toString()) : responses;
+    assert null == responses.get(1) : responses;
+    assert 1 == injector.getInstance(BatchMetrics.class).failures();
+  }
+
+  private WebClient<String> client(String path) {
+    return injector.getInstance(Web.class)
+        .clientOf("http://localhost:" + server.getLocalPort() + path)
+        .transportsText();
+  }
+
+  private void serve(Socket socket) {
+    int now = serving.incrementAndGet();
+    try {
+      synchronized (mostServing) {
+        mostServing.set(Math.max(mostServing.get(), now));
+      }
+
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), "US-ASCII"));
+      String path = in.readLine().split(" ")[1];
+      for (String line = in.readLine(); null != line && !line.isEmpty(); line = in.readLine());
+
+      Thread.sleep(path.equals("/slow") ? 500 : 50);
+
+      OutputStream out = socket.getOutputStream();
+      out.write(("HTTP/1.1 200 OK\r\nContent-Length: " + path.length()
+          + "\r\nConnection: close\r\n\r\n" + path).getBytes("US-ASCII"));
+      out.flush();
+    } catch (Exception e) {
+      // The test will fail on its own.
+    } finally {
+      serving.decrementAndGet();
+      try {
+        socket.close();
+      } catch (IOException e) {
+        // Nothing to be done.
+      }
+    }
+  }
+}
@@ -1,6 +1,8 @@
 package com.google.sitebricks.conversion;
 
 import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Multimap;
 import com.google.common.primitives.Primitives;
 import com.google.inject.Inject;
@@ -11,7 +13,9 @@ import java.lang.reflect.Type;
 import java.lang.reflect.TypeVariable;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.google.sitebricks.conversion.generics.Generics.erase;
 import static com.google.sitebricks.conversion.generics.Generics.getExactSuperType;
@@ -29,6 +33,12 @@ public class StandardTypeConverter implements TypeConverter, ConverterRegistry {
   private static final TypeVariable<? extends Class<?>> sourceTypeParameter = Converter.class.getTypeParameters()[0];
   private static final TypeVariable<? extends Class<?>> targetTypeParameter = Converter.class.getTypeParameters()[1];
 
+  // Resolved conversions, by source class then target type. Weakly keyed (by identity) so
+  // that webapp classes can be unloaded; a generic target type is only found again if the
+  // caller passes the same instance.
+  private final ConcurrentMap<Class<?>, ConcurrentMap<Type, Plan>> plans =
+      new MapMaker().weakKeys().makeMap();
+
   @Inject
   public StandardTypeConverter(@SuppressWarnings("rawtypes") Set<Converter> converters) {
 	  for (Converter<?, ?> converter : converters) {
@@ -37,13 +47,16 @@ public class StandardTypeConverter implements TypeConverter, ConverterRegistry {
   }
 
   @Override
-  public void register(Converter<?, ?> converter) {
+  public synchronized void register(Converter<?, ?> converter) {
     // get the source and target types
     Type sourceType = sourceType(converter);
     Type targetType = targetType(converter);
     convertersBySource.put(sourceType, converter);
     convertersByTarget.put(targetType, converter);
     convertersBySourceAndTarget.put(new SourceAndTarget(sourceType, targetType), converter);
+
+    // a new converter may change how anything converts
+    plans.clear();
   }
 
   public static Type targetType(Converter<?, ?> converter) {
@@ -67,72 +80,86 @@ public class StandardTypeConverter implements TypeConverter, ConverterRegistry {
     if (source.getClass() == type) {
       return (T) source;
     }
-    
+
+    Plan plan = planFor(source.getClass(), type);
+
     // check if we already have a sub type
-    if (Generics.isSuperType(type, source.getClass()))
-    {
+    if (plan == Plan.IDENTITY) {
       return (T) source;
     }
-    
+
     // special case for handling empty string
     if ("".equals(source) && type != String.class && isEmptyStringNull()) {
     	return null;
     }
-    
-    Type sourceType = source.getClass();
-    Class<?> sourceClass = Generics.erase(sourceType);
-    
+
+    return (T) plan.apply(source, type);
+  }
+
+  private Plan planFor(Class<?> sourceClass, Type type) {
+    ConcurrentMap<Type, Plan> byTarget = plans.get(sourceClass);
+    if (byTarget == null) {
+      byTarget = new MapMaker().weakKeys().makeMap();
+      ConcurrentMap<Type, Plan> existing = plans.putIfAbsent(sourceClass, byTarget);
+      if (existing != null)
+        byTarget = existing;
+    }
+
+    Plan plan = byTarget.get(type);
+    if (plan == null) {
+      plan = resolve(sourceClass, type);
+      byTarget.put(type, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * Works out how to convert instances of the given class to the given type, once. Negative
+   * results are kept too, as a plan with no steps.
+   */
+  private synchronized Plan resolve(Class<?> sourceClass, Type type) {
+    if (Generics.isSuperType(type, sourceClass)) {
+      return Plan.IDENTITY;
+    }
+
     // conversion of all array types to collections
     if (sourceClass.isArray() && Generics.isSuperType(Collection.class, type)) {
-      return (T) Arrays.asList(source);
+      return Plan.AS_LIST;
     }
-	  
+
     // conversion of all collections to arrays
     Class<?> targetClass = Generics.erase(type);
     if (Collection.class.isAssignableFrom(sourceClass) && targetClass.isArray()) {
       // TODO: convert collections to arrays
-      throw new UnsupportedOperationException("Not implemented yet");
+      return Plan.UNSUPPORTED;
     }
-    
+
     // use primitive wrapper types
     if (type instanceof Class<?> && ((Class<?>) type).isPrimitive()) {
       type = Primitives.wrap((Class<?>) type);
     }
 
-    
-    // look for converters for exact types or super types  
-    Object result = null;
-    do {
-      
-      // first try to find a converter in the forward direction 
+    // collect converters for exact types or super types, in the order they should be tried
+    List<Step> steps = Lists.newArrayList();
+    Type sourceType = sourceClass;
+    while (true) {
       SourceAndTarget key = new SourceAndTarget(sourceType, type);
-      Collection<Converter<?, ?>> forwards = convertersBySourceAndTarget.get(key);
-      
-      // stop at the first converter that returns non-null
-      for (Converter<?, ?> forward : forwards)
-        if ((result = typeSafeTo(forward, source)) != null) break;
-        
-      if (result == null) {
-        // try the reverse direction (target to source)
-        Collection<Converter<?,?>> reverses = convertersBySourceAndTarget.get(key.reverse());
-
-        // stop at the first converter that returns non-null
-        for (Converter<?, ?> reverse : reverses)
-          if ((result = typeSafeFrom(reverse, source)) != null) break;
-      }
-      
+      for (Converter<?, ?> forward : convertersBySourceAndTarget.get(key))
+        steps.add(new Step(forward, true));
+
+      // then the reverse direction (target to source)
+      for (Converter<?, ?> reverse : convertersBySourceAndTarget.get(key.reverse()))
+        steps.add(new Step(reverse, false));
+
       // we have no more super classes to try
       if (sourceType == Object.class) break;
-      
+
       // try every super type of the source
       Class<?> superClass = erase(sourceType).getSuperclass();
       sourceType = getExactSuperType(sourceType, superClass);
-    } while (result == null);
-    
-    if (result == null)
-      throw new IllegalStateException("Cannot convert " + source.getClass() + " to " + type);
-    
-    return (T) result;
+    }
+
+    return new Plan(steps.toArray(new Step[steps.size()]));
   }
 
   @Override
@@ -172,6 +199,54 @@ public class StandardTypeConverter implements TypeConverter, ConverterRegistry {
     return convertersByTarget;
   }
 
+  /**
+   * The converters to try, in order, for one source class and target type. The first to
+   * return non-null wins, so plans keep every candidate rather than just the first.
+   */
+  private static class Plan {
+    static final Plan IDENTITY = new Plan(new Step[0]);
+    static final Plan AS_LIST = new Plan(new Step[0]) {
+      @Override
+      Object apply(Object source, Type type) {
+        return Arrays.asList(source);
+      }
+    };
+    static final Plan UNSUPPORTED = new Plan(new Step[0]) {
+      @Override
+      Object apply(Object source, Type type) {
+        throw new UnsupportedOperationException("Not implemented yet");
+      }
+    };
+
+    private final Step[] steps;
+
+    Plan(Step[] steps) {
+      this.steps = steps;
+    }
+
+    Object apply(Object source, Type type) {
+      for (Step step : steps) {
+        Object result = step.forward
+            ? typeSafeTo(step.converter, source)
+            : typeSafeFrom(step.converter, source);
+        if (result != null)
+          return result;
+      }
+
+      throw new IllegalStateException("Cannot convert " + source.getClass() + " to " + type);
+    }
+  }
+
+  private static final class Step {
+    private final Converter<?, ?> converter;
+    private final boolean forward;
+
+    Step(Converter<?, ?> converter, boolean forward) {
+      this.converter = converter;
+      this.forward = forward;
+    }
+  }
+
   private static final class SourceAndTarget {
     private Type source;
     private Type target;
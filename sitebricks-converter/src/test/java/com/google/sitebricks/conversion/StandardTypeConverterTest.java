@@ -12,6 +12,7 @@ import org.testng.annotations.Test;
 import java.math.BigDecimal;
 import java.text.SimpleDateFormat;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.Date;
 
 /**
@@ -91,4 +92,53 @@ public class StandardTypeConverterTest {
     Calendar answer = converter.convert(sdf.format(calendar.getTime()), Calendar.class);
     assert sdf.format(answer.getTime()).equals(sdf.format(calendar.getTime()));
   }
+
+  @Test
+  public void registeringConvertersInvalidatesCachedConversions() {
+    StandardTypeConverter converter = new StandardTypeConverter(Collections.<Converter>emptySet());
+    Point point = new Point();
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        converter.convert(point, String.class);
+        assert false : "Converted without a converter";
+      } catch (IllegalStateException expected) {
+      }
+    }
+
+    converter.register(new ConverterAdaptor<Point, String>() {
+      @Override
+      public String to(Point source) {
+        return "point";
+      }
+    });
+    assert "point".equals(converter.convert(point, String.class));
+    assert "point".equals(converter.convert(new Point() {}, String.class));
+  }
+
+  @Test
+  public void laterConvertersAreTriedWhenEarlierOnesGiveUp() {
+    StandardTypeConverter converter = new StandardTypeConverter(Collections.<Converter>emptySet());
+    converter.register(new ConverterAdaptor<Point, String>() {
+      @Override
+      public String to(Point source) {
+        return source.x == 0 ? null : "x";
+      }
+    });
+    converter.register(new ConverterAdaptor<Point, String>() {
+      @Override
+      public String to(Point source) {
+        return "origin";
+      }
+    });
+
+    Point point = new Point();
+    assert "origin".equals(converter.convert(point, String.class));
+    point.x = 1;
+    assert "x".equals(converter.convert(point, String.class));
+  }
+
+  public static class Point {
+    int x;
+  }
 }
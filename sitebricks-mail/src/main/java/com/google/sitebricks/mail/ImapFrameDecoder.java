@@ -0,0 +1,137 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.collect.Lists;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * Splits the bytes read from an IMAP server into responses, without first turning them
+ * into strings. A response that carries literals ({@code {n}} followed by n bytes, such as
+ * a message body in a FETCH) is passed up whole once all of it has arrived, so nothing in
+ * a literal is ever mistaken for the start of another one.
+ * <p>
+ * Each response is passed up as a list of its lines. Lines end at LF and CRs are dropped.
+ * A line is only decoded once all of it is here, so no character is cut in two by a read.
+ */
+class ImapFrameDecoder extends FrameDecoder {
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+
+  // Longer lengths than this can't be real, and would overflow.
+  private static final int MAX_LITERAL_DIGITS = 18;
+
+  private final Charset charset;
+
+  // How far into the current response (from the reader index) we have already looked.
+  private int scanned;
+
+  // Bytes still to come of the literal we are in, if any.
+  private long literal;
+
+  public ImapFrameDecoder() {
+    // Same as the netty StringDecoder that this replaces.
+    this(Charset.defaultCharset());
+  }
+
+  public ImapFrameDecoder(Charset charset) {
+    this.charset = charset;
+  }
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) {
+    int start = buffer.readerIndex();
+    int end = buffer.writerIndex();
+
+    while (true) {
+      int position = start + scanned;
+      if (literal > 0) {
+        int skip = (int) Math.min(literal, end - position);
+        scanned += skip;
+        literal -= skip;
+        if (literal > 0)
+          return null;
+        position += skip;
+      }
+
+      int lf = buffer.indexOf(position, end, LF);
+      if (lf < 0) {
+        scanned = end - start;
+        return null;
+      }
+      scanned = lf + 1 - start;
+
+      long size = literalAt(buffer, position, lf);
+      if (size < 0)
+        break;
+      literal = size;
+    }
+
+    ChannelBuffer response = buffer.readSlice(scanned);
+    scanned = 0;
+    return lines(response);
+  }
+
+  /**
+   * Returns the length of the literal announced at the end of the given line, or -1 if
+   * the line doesn't end in one.
+   */
+  private static long literalAt(ChannelBuffer buffer, int start, int lf) {
+    int end = lf;
+    if (end > start && buffer.getByte(end - 1) == CR)
+      end--;
+    if (end - start < 3 || buffer.getByte(end - 1) != '}')
+      return -1;
+
+    long size = 0;
+    long place = 1;
+    int i = end - 2;
+    for (; i > start && i >= end - 1 - MAX_LITERAL_DIGITS; i--) {
+      byte digit = buffer.getByte(i);
+      if (digit < '0' || digit > '9')
+        break;
+      size += (digit - '0') * place;
+      place *= 10;
+    }
+
+    // There must be at least one digit, and nothing but digits between the braces.
+    if (i == end - 2 || buffer.getByte(i) != '{')
+      return -1;
+    return size;
+  }
+
+  private List<String> lines(ChannelBuffer response) {
+    List<String> lines = Lists.newArrayList();
+    int start = response.readerIndex();
+    int end = response.writerIndex();
+    while (start < end) {
+      // Always found, a response ends with a line end.
+      int lf = response.indexOf(start, end, LF);
+      lines.add(line(response, start, lf));
+      start = lf + 1;
+    }
+    return lines;
+  }
+
+  private String line(ChannelBuffer buffer, int start, int end) {
+    int cr = buffer.indexOf(start, end, CR);
+    if (cr < 0)
+      return buffer.toString(start, end - start, charset);
+    if (cr == end - 1)
+      return buffer.toString(start, cr - start, charset);
+
+    // Rare, a stray CR in the middle of the line.
+    byte[] bytes = new byte[end - start];
+    int length = 0;
+    for (int i = start; i < end; i++) {
+      byte b = buffer.getByte(i);
+      if (b != CR)
+        bytes[length++] = b;
+    }
+    return new String(bytes, 0, length, charset);
+  }
+}
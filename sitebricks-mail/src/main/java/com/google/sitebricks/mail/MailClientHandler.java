@@ -1,9 +1,5 @@
 package com.google.sitebricks.mail;
 
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Lists;
 import com.google.sitebricks.util.BoundedDiscardingList;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ExceptionEvent;
@@ -72,7 +68,6 @@ class MailClientHandler extends SimpleChannelHandler {
 
   private final BoundedDiscardingList<String> commandTrace = new BoundedDiscardingList<String>(10);
   private final BoundedDiscardingList<String> wireTrace = new BoundedDiscardingList<String>(25);
-  private final InputBuffer inputBuffer = new InputBuffer();
 
 
   public MailClientHandler(Idler idler, MailClientConfig config) {
@@ -124,9 +119,9 @@ class MailClientHandler extends SimpleChannelHandler {
   }
 
   @Override
+  @SuppressWarnings("unchecked") // The lines of a response, from ImapFrameDecoder.
   public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-    String message = e.getMessage().toString();
-    for (String input : inputBuffer.processMessage(message)) {
+    for (String input : (List<String>) e.getMessage()) {
       processMessage(input);
     }
   }
@@ -398,27 +393,4 @@ class MailClientHandler extends SimpleChannelHandler {
       return sout.toString();
     }
   }
-
-  @VisibleForTesting
-  static class InputBuffer {
-    volatile private StringBuilder buffer = new StringBuilder();
-
-    @VisibleForTesting
-    List<String> processMessage(String message) {
-      // Nuke all CR characters, and we'll only count LF.
-      message = message.replaceAll("\r", "");
-      // Split leaves a trailing empty line if there's a terminating newline.
-      ArrayList<String> split = Lists.newArrayList(message.split("\n", -1));
-      Preconditions.checkArgument(split.size() > 0);
-
-      synchronized (this) {
-        buffer.append(split.get(0));
-        if (split.size() == 1) // no newlines.
-          return ImmutableList.of();
-        split.set(0, buffer.toString());
-        buffer = new StringBuilder().append(split.remove(split.size() - 1));
-      }
-      return split;
-    }
-  }
 }
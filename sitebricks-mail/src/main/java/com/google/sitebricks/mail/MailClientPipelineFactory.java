@@ -4,7 +4,6 @@ import com.google.sitebricks.mail.Mail.Auth;
 import org.jboss.netty.channel.ChannelPipeline;
 import org.jboss.netty.channel.ChannelPipelineFactory;
 import org.jboss.netty.channel.Channels;
-import org.jboss.netty.handler.codec.string.StringDecoder;
 import org.jboss.netty.handler.codec.string.StringEncoder;
 import org.jboss.netty.handler.ssl.SslHandler;
 
@@ -35,7 +34,7 @@ class MailClientPipelineFactory implements ChannelPipelineFactory {
       pipeline.addLast("ssl", sslHandler);
     }
 
-    pipeline.addLast("decoder", new StringDecoder());
+    pipeline.addLast("decoder", new ImapFrameDecoder());
     pipeline.addLast("encoder", new StringEncoder());
 
     // and then business logic.
@@ -0,0 +1,66 @@
+package com.google.sitebricks.mail;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+public class ImapFrameDecoderTest {
+  private DecoderEmbedder<List<String>> decoder;
+
+  @BeforeMethod
+  public final void pre() {
+    decoder = new DecoderEmbedder<List<String>>(new ImapFrameDecoder(Charsets.UTF_8));
+  }
+
+  private void assertDecode(String read, List<?>... responses) {
+    decoder.offer(ChannelBuffers.copiedBuffer(read, Charsets.UTF_8));
+    for (List<?> response : responses) {
+      assertEquals(decoder.poll(), response);
+    }
+    assertNull(decoder.poll());
+  }
+
+  @Test
+  public final void testSplitsLines() {
+    // The decoder is stateful.
+    assertDecode("hi ");
+    assertDecode("bob\r\nhow\n\r", ImmutableList.of("hi bob"), ImmutableList.of("how"));
+    assertDecode("\nis\n\r\n", ImmutableList.of(""), ImmutableList.of("is"), ImmutableList.of(""));
+    assertDecode("your snake\nfeeling ", ImmutableList.of("your snake"));
+    assertDecode("after\neating\nthat", ImmutableList.of("feeling after"),
+        ImmutableList.of("eating"));
+    assertDecode(" mush\rroom?\r\n", ImmutableList.of("that mushroom?"));
+  }
+
+  @Test
+  public final void testLiteralsArePassedUpWhole() {
+    assertDecode("* 1 FETCH (UID 7 BODY[] {22}\r\n");
+    assertDecode("Subject: {4}\r\n\r\nbod");
+    assertDecode("y\r\n)\r\n* 2 FETCH (UID 8)\r\n",
+        ImmutableList.of("* 1 FETCH (UID 7 BODY[] {22}", "Subject: {4}", "", "body", ")"),
+        ImmutableList.of("* 2 FETCH (UID 8)"));
+  }
+
+  @Test
+  public final void testLiteralsMayFollowEachOther() {
+    assertDecode("* 1 FETCH (BODY[1] {3}\r\none BODY[2] {0}\r\n BODY[3] {}\r\n",
+        ImmutableList.of("* 1 FETCH (BODY[1] {3}", "one BODY[2] {0}", " BODY[3] {}"));
+  }
+
+  @Test
+  public final void testCharactersSplitAcrossReads() {
+    byte[] bytes = "caf\u00e9\r\n".getBytes(Charsets.UTF_8);
+    decoder.offer(ChannelBuffers.copiedBuffer(bytes, 0, 4));
+    assertNull(decoder.poll());
+    decoder.offer(ChannelBuffers.copiedBuffer(bytes, 4, bytes.length - 4));
+    assertEquals(decoder.poll(), ImmutableList.of("caf\u00e9"));
+  }
+}
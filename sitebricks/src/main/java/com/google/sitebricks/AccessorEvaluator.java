@@ -0,0 +1,312 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.google.inject.Singleton;
+import com.google.sitebricks.compiler.Parsing;
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+import org.mvel2.MVEL;
+import org.mvel2.asm.ClassWriter;
+import org.mvel2.asm.MethodVisitor;
+import org.mvel2.asm.Opcodes;
+import org.mvel2.asm.Type;
+
+import java.lang.ref.SoftReference;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * An {@link Evaluator} that reads plain property paths, such as {@code person.address.city},
+ * through accessor classes generated for them. The accessor is generated the first time a path
+ * is evaluated against a given class of bean, and thereafter reads the path with straight
+ * getter calls, without any reflection or interpretation.
+ * <p>
+ * Anything other than a plain property path (method calls, operators, literals, collection
+ * or map properties, and so on) is handed to {@link MvelEvaluator}, as are paths that cannot be
+ * resolved to public getters or fields. Writes always go through {@link MvelEvaluator}, so that
+ * values are converted, and failures reported, exactly as before.
+ * <p>
+ * Accessors are held softly, so that they never keep a bean class (or its class loader) from
+ * being unloaded. One that has been reclaimed is simply generated again.
+ *
+ * @see SitebricksModule#enableGeneratedAccessors(boolean)
+ */
+@ThreadSafe
+@Singleton
+public class AccessorEvaluator implements Evaluator {
+  private static final Logger log = Logger.getLogger(AccessorEvaluator.class.getName());
+
+  private static final Pattern PROPERTY_PATH =
+      Pattern.compile("[a-zA-Z_$][\\w$]*(\\.[a-zA-Z_$][\\w$]*)*");
+
+  // Identifiers that mean something else to MVEL.
+  private static final Set<String> RESERVED =
+      ImmutableSet.of("true", "false", "null", "nil", "empty", "this", "new", "def", "isdef");
+
+  private static final AtomicInteger accessorCount = new AtomicInteger();
+
+  // Marks a path that cannot be read with an accessor for a given class of bean.
+  private static final Accessor UNRESOLVABLE = new Accessor() {
+    public Object get(Object bean) {
+      throw new UnsupportedOperationException();
+    }
+  };
+
+  private final MvelEvaluator mvel = new MvelEvaluator();
+
+  private final ConcurrentMap<String, PropertyPath> paths = new MapMaker().makeMap();
+
+  /**
+   * Reads one property path from a bean. Implemented by generated classes only.
+   */
+  public static interface Accessor {
+    Object get(Object bean);
+  }
+
+  @Nullable
+  public Object evaluate(String expr, Object bean) {
+    PropertyPath path = pathOf(expr);
+    Accessor accessor = (null == path || null == bean) ? null : path.accessorFor(bean.getClass());
+
+    if (null == accessor)
+      return mvel.evaluate(expr, bean);
+
+    try {
+      return accessor.get(bean);
+    } catch (NullPointerException npe) {
+      throw new IllegalArgumentException(
+          String.format("Evaluation of property expression [%s] resulted in a NullPointerException",
+              expr), npe);
+    }
+  }
+
+  public void write(String expr, Object bean, Object value) {
+    mvel.write(expr, bean, value);
+  }
+
+  public Object read(String property, Object contextObject) {
+    PropertyPath path = pathOf(property);
+    Accessor accessor = (null == path || null == contextObject)
+        ? null
+        : path.accessorFor(contextObject.getClass());
+
+    if (null == accessor)
+      return MVEL.getProperty(property, contextObject);
+
+    return accessor.get(contextObject);
+  }
+
+  // Returns the compiled property path for the given expression, or null if it is not one.
+  @Nullable
+  private PropertyPath pathOf(String expr) {
+    PropertyPath path = paths.get(expr);
+    if (null != path)
+      return (PropertyPath.NONE == path) ? null : path;
+
+    String stripped = Parsing.isExpression(expr) ? Parsing.stripExpression(expr).trim() : expr;
+    if (PROPERTY_PATH.matcher(stripped).matches()
+        && !RESERVED.contains(stripped.substring(0, indexOrLength(stripped, '.'))))
+      path = new PropertyPath(stripped.split("\\."));
+    else
+      path = PropertyPath.NONE;
+
+    paths.putIfAbsent(expr, path);
+    return (PropertyPath.NONE == path) ? null : path;
+  }
+
+  private static int indexOrLength(String string, char c) {
+    int index = string.indexOf(c);
+    return (index < 0) ? string.length() : index;
+  }
+
+  private static class PropertyPath {
+    static final PropertyPath NONE = new PropertyPath(new String[0]);
+
+    private final String[] properties;
+
+    // An accessor references its bean class through its own class loader, so it must not be
+    // held strongly here (a weak key alone would never be cleared).
+    private final ConcurrentMap<Class<?>, Accessor> accessors =
+        new MapMaker().weakKeys().softValues().makeMap();
+
+    // Most paths only ever see one class of bean, which is then checked for first.
+    private volatile SoftReference<Generated> last = new SoftReference<Generated>(null);
+
+    PropertyPath(String[] properties) {
+      this.properties = properties;
+    }
+
+    // Returns the accessor for this path on the given class of bean, or null if there is none.
+    @Nullable
+    Accessor accessorFor(Class<?> beanClass) {
+      Generated last = this.last.get();
+      if (null != last && beanClass == last.beanClass)
+        return last.accessor;
+
+      Accessor accessor = accessors.get(beanClass);
+      if (null == accessor) {
+        accessor = generate(beanClass, properties);
+        accessors.putIfAbsent(beanClass, accessor);
+      }
+
+      accessor = (UNRESOLVABLE == accessor) ? null : accessor;
+      this.last = new SoftReference<Generated>(new Generated(beanClass, accessor));
+      return accessor;
+    }
+  }
+
+  @Immutable
+  private static class Generated {
+    final Class<?> beanClass;
+    final Accessor accessor;
+
+    Generated(Class<?> beanClass, Accessor accessor) {
+      this.beanClass = beanClass;
+      this.accessor = accessor;
+    }
+  }
+
+  // Generates an accessor class for the given path, or returns UNRESOLVABLE.
+  private static Accessor generate(Class<?> beanClass, String[] properties) {
+    Member[] members = new Member[properties.length];
+    Class<?> type = beanClass;
+    for (int i = 0; i < properties.length; i++) {
+      // Leave maps, arrays and primitives to MVEL, which has its own rules for them.
+      if (Map.class.isAssignableFrom(type) || type.isArray() || type.isPrimitive())
+        return UNRESOLVABLE;
+
+      Member member = resolve(type, properties[i]);
+      if (null == member)
+        return UNRESOLVABLE;
+
+      members[i] = member;
+      type = (member instanceof Method)
+          ? ((Method) member).getReturnType()
+          : ((Field) member).getType();
+    }
+
+    ClassLoader parent = beanClass.getClassLoader();
+    if (null == parent || !GeneratedClasses.canSee(parent, Accessor.class))
+      return UNRESOLVABLE;
+
+    String name = AccessorEvaluator.class.getName() + "$Generated" + accessorCount.incrementAndGet();
+    try {
+      return (Accessor) GeneratedClasses.define(parent, name, bytecodeFor(name, members, type))
+          .newInstance();
+    } catch (Exception e) {
+      log.log(Level.FINE, "Could not generate an accessor for " + beanClass.getName(), e);
+    } catch (LinkageError e) {
+      log.log(Level.FINE, "Could not generate an accessor for " + beanClass.getName(), e);
+    }
+
+    return UNRESOLVABLE;
+  }
+
+  // Finds a public getter (preferred, as with MVEL) or public field for a property.
+  @Nullable
+  private static Member resolve(Class<?> type, String property) {
+    String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+
+    Method getter = publicMethod(type, "get" + suffix);
+    if (null == getter) {
+      getter = publicMethod(type, "is" + suffix);
+      if (null != getter && boolean.class != getter.getReturnType())
+        getter = null;
+    }
+    if (null != getter && void.class != getter.getReturnType())
+      return getter;
+
+    try {
+      Field field = type.getField(property);
+      if (!Modifier.isStatic(field.getModifiers())
+          && GeneratedClasses.isPublic(field.getDeclaringClass()))
+        return field;
+    } catch (NoSuchFieldException e) {
+      // Fall through.
+    }
+
+    return null;
+  }
+
+  // Looks for a no-arg, non-static method declared by a type the accessor is allowed to link to.
+  @Nullable
+  private static Method publicMethod(Class<?> type, String name) {
+    Method method;
+    try {
+      method = type.getMethod(name);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+
+    if (Modifier.isStatic(method.getModifiers()))
+      return null;
+
+    if (GeneratedClasses.isPublic(method.getDeclaringClass()))
+      return method;
+
+    // e.g. a public method inherited from a package-local class, look for a public declaration.
+    for (Class<?> iface : type.getInterfaces()) {
+      Method declared = publicMethod(iface, name);
+      if (null != declared)
+        return declared;
+    }
+
+    Class<?> superclass = type.getSuperclass();
+    return (null == superclass) ? null : publicMethod(superclass, name);
+  }
+
+  // public final class <name> implements Accessor { public Object get(Object bean) { return ...; } }
+  private static byte[] bytecodeFor(String name, Member[] members, Class<?> result) {
+    String internalName = name.replace('.', '/');
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        internalName, null, "java/lang/Object",
+        new String[] { Type.getInternalName(Accessor.class) });
+
+    MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    MethodVisitor get = writer.visitMethod(Opcodes.ACC_PUBLIC, "get",
+        "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+    get.visitCode();
+    get.visitVarInsn(Opcodes.ALOAD, 1);
+    for (Member member : members) {
+      String owner = Type.getInternalName(member.getDeclaringClass());
+      get.visitTypeInsn(Opcodes.CHECKCAST, owner);
+
+      if (member instanceof Method) {
+        Method method = (Method) member;
+        get.visitMethodInsn(
+            method.getDeclaringClass().isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+            owner, method.getName(), Type.getMethodDescriptor(method));
+      } else {
+        Field field = (Field) member;
+        get.visitFieldInsn(Opcodes.GETFIELD, owner, field.getName(),
+            Type.getDescriptor(field.getType()));
+      }
+    }
+    GeneratedClasses.box(get, result);
+    get.visitInsn(Opcodes.ARETURN);
+    get.visitMaxs(0, 0);
+    get.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+}
@@ -0,0 +1,202 @@
+package com.google.sitebricks;
+
+import net.jcip.annotations.Immutable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.annotation.Inherited;
+import java.util.Set;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Reads the class-level annotations straight out of a class file, so the scanner can tell
+ * whether a class is interesting without loading (and initializing) it. Only as much of the
+ * class file is read as needed: most classes are ruled out once their constant pool shows
+ * none of the annotation names we are looking for.
+ * <p>
+ * See chapter 4 of the JVM specification for the class file format.
+ */
+@Immutable
+class ClassFileAnnotations {
+  private static final int MAGIC = 0xCAFEBABE;
+  private static final String RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations";
+
+  // Constant pool tags.
+  private static final int UTF8 = 1;
+  private static final int INTEGER = 3;
+  private static final int FLOAT = 4;
+  private static final int LONG = 5;
+  private static final int DOUBLE = 6;
+  private static final int CLASS = 7;
+  private static final int STRING = 8;
+  private static final int FIELD_REF = 9;
+  private static final int METHOD_REF = 10;
+  private static final int INTERFACE_METHOD_REF = 11;
+  private static final int NAME_AND_TYPE = 12;
+  private static final int METHOD_HANDLE = 15;
+  private static final int METHOD_TYPE = 16;
+  private static final int DYNAMIC = 17;
+  private static final int INVOKE_DYNAMIC = 18;
+  private static final int MODULE = 19;
+  private static final int PACKAGE = 20;
+
+  // Type descriptors, e.g. Lcom/google/sitebricks/At;
+  private final Set<String> descriptors;
+
+  private ClassFileAnnotations(Set<String> descriptors) {
+    this.descriptors = descriptors;
+  }
+
+  /**
+   * Returns null if any of the given annotations is {@link Inherited}, since those
+   * can only be seen by loading the class and walking up its superclasses.
+   */
+  static ClassFileAnnotations anyOf(Class<? extends Annotation>... annotations) {
+    ImmutableSet.Builder<String> descriptors = ImmutableSet.builder();
+    for (Class<? extends Annotation> annotation : annotations) {
+      if (annotation.isAnnotationPresent(Inherited.class))
+        return null;
+
+      descriptors.add('L' + annotation.getName().replace('.', '/') + ';');
+    }
+    return new ClassFileAnnotations(descriptors.build());
+  }
+
+  /**
+   * @return true if the class in the given stream carries any of our annotations. The
+   *  stream is not closed.
+   * @throws IOException if the stream could not be read, or is not a class file.
+   */
+  boolean presentIn(InputStream classFile) throws IOException {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(classFile));
+    if (MAGIC != in.readInt())
+      throw new IOException("Not a class file");
+    skip(in, 4);  // minor, major version.
+
+    // Only utf8 constants are kept, everything else is skipped past.
+    int count = in.readUnsignedShort();
+    String[] utf8 = new String[count];
+    boolean mentioned = false;
+    for (int i = 1; i < count; i++) {
+      int tag = in.readUnsignedByte();
+      switch (tag) {
+        case UTF8:
+          utf8[i] = in.readUTF();
+          mentioned |= descriptors.contains(utf8[i]);
+          break;
+        case CLASS:
+        case STRING:
+        case METHOD_TYPE:
+        case MODULE:
+        case PACKAGE:
+          skip(in, 2);
+          break;
+        case METHOD_HANDLE:
+          skip(in, 3);
+          break;
+        case INTEGER:
+        case FLOAT:
+        case FIELD_REF:
+        case METHOD_REF:
+        case INTERFACE_METHOD_REF:
+        case NAME_AND_TYPE:
+        case DYNAMIC:
+        case INVOKE_DYNAMIC:
+          skip(in, 4);
+          break;
+        case LONG:
+        case DOUBLE:
+          skip(in, 8);
+          i++;  // These take up two slots in the pool.
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag: " + tag);
+      }
+    }
+
+    // None of our annotations are so much as named in this class.
+    if (!mentioned)
+      return false;
+
+    skip(in, 6);  // access flags, this class, super class.
+    skip(in, 2 * in.readUnsignedShort());  // interfaces.
+    skipMembers(in);  // fields.
+    skipMembers(in);  // methods.
+
+    int attributes = in.readUnsignedShort();
+    for (int i = 0; i < attributes; i++) {
+      String name = utf8[in.readUnsignedShort()];
+      int length = in.readInt();
+      if (!RUNTIME_VISIBLE_ANNOTATIONS.equals(name)) {
+        skip(in, length);
+        continue;
+      }
+
+      int annotations = in.readUnsignedShort();
+      for (int j = 0; j < annotations; j++) {
+        if (descriptors.contains(utf8[in.readUnsignedShort()]))
+          return true;
+        skipElementValuePairs(in);
+      }
+      return false;
+    }
+    return false;
+  }
+
+  private static void skipMembers(DataInputStream in) throws IOException {
+    int members = in.readUnsignedShort();
+    for (int i = 0; i < members; i++) {
+      skip(in, 6);  // access flags, name, descriptor.
+      int attributes = in.readUnsignedShort();
+      for (int j = 0; j < attributes; j++) {
+        skip(in, 2);
+        skip(in, in.readInt());
+      }
+    }
+  }
+
+  private static void skipElementValuePairs(DataInputStream in) throws IOException {
+    int pairs = in.readUnsignedShort();
+    for (int i = 0; i < pairs; i++) {
+      skip(in, 2);  // element name.
+      skipElementValue(in);
+    }
+  }
+
+  private static void skipElementValue(DataInputStream in) throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case 'e':  // enum type and constant name.
+        skip(in, 4);
+        break;
+      case '@':  // nested annotation.
+        skip(in, 2);
+        skipElementValuePairs(in);
+        break;
+      case '[':
+        int values = in.readUnsignedShort();
+        for (int i = 0; i < values; i++) {
+          skipElementValue(in);
+        }
+        break;
+      default:  // constants, strings and classes.
+        skip(in, 2);
+    }
+  }
+
+  private static void skip(DataInputStream in, int bytes) throws IOException {
+    // skipBytes() may skip fewer than asked for without being at the end of the stream.
+    while (bytes > 0) {
+      int skipped = in.skipBytes(bytes);
+      if (skipped <= 0) {
+        in.readByte();  // Throws EOFException at the end of the stream.
+        skipped = 1;
+      }
+      bytes -= skipped;
+    }
+  }
+}
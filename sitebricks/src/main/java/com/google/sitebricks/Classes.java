@@ -1,20 +1,40 @@
 package com.google.sitebricks;
 
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.io.InputSupplier;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.matcher.Matcher;
+import com.google.inject.matcher.Matchers;
 import net.jcip.annotations.Immutable;
 import org.jetbrains.annotations.NotNull;
 
 import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.AnnotatedElement;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 
@@ -30,12 +50,24 @@ import java.util.logging.Logger;
  */
 @Immutable
 class Classes {
+  // Below this many class files per thread, reading them in parallel isn't worth it.
+  private static final int CLASS_FILES_PER_THREAD = 64;
 
   private final Matcher<? super Class<?>> matcher;
+
+  // If set, class files are checked for these before their classes are loaded.
+  private final ClassFileAnnotations annotations;
+
+  // True if a page index lists everything this scan is looking for.
+  private final boolean indexed;
+
   private final Logger log = Logger.getLogger(Classes.class.getName());
 
-  private Classes(Matcher<? super Class<?>> matcher) {
+  private Classes(Matcher<? super Class<?>> matcher, ClassFileAnnotations annotations,
+                  boolean indexed) {
     this.matcher = matcher;
+    this.annotations = annotations;
+    this.indexed = indexed;
   }
 
   /**
@@ -47,12 +79,35 @@ class Classes {
    */
   @NotNull
   public Set<Class<?>> in(Package pack) {
+    return in(Collections.singletonList(pack));
+  }
+
+  /**
+   * Like {@link #in(Package)}, but scans several packages in one go, so that the class
+   * files in all of them can be read in parallel.
+   */
+  @NotNull
+  public Set<Class<?>> in(List<Package> packs) {
+    List<ClassFile> classFiles = Lists.newArrayList();
+    Map<String, Set<String>> indexes = Maps.newHashMap();
+    for (Package pack : packs) {
+      findClassFiles(pack, classFiles, indexes);
+    }
+
+    Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
+    for (ClassFile classFile : annotated(classFiles)) {
+      add(classFile, classes);
+    }
+    return classes;
+  }
+
+  private void findClassFiles(Package pack, List<ClassFile> classFiles,
+                              Map<String, Set<String>> indexes) {
     String packageName = pack.getName();
     String packageOnly = pack.getName();
 
     final boolean recursive = true;
 
-    Set<Class<?>> classes = new LinkedHashSet<Class<?>>();
     String packageDirName = packageOnly.replace('.', '/');
 
     Enumeration<URL> dirs;
@@ -68,10 +123,36 @@ class Classes {
       URL url = dirs.nextElement();
       String protocol = url.getProtocol();
 
+      // Take the classes from the page index, if this root has one.
+      String root = indexed ? PageIndex.rootOf(url, packageDirName) : null;
+      if (null != root) {
+        if (!indexes.containsKey(root)) {
+          indexes.put(root, PageIndex.at(root));
+        }
+
+        Set<String> index = indexes.get(root);
+        if (null != index && "file".equals(protocol)
+            && PageIndex.isStale(root, new File(toPath(url)))) {
+          log.info("Scanning " + url + ", it has classes compiled after its "
+              + PageIndex.RESOURCE);
+          index = null;
+        }
+
+        if (null != index) {
+          for (String name : index) {
+            if (name.startsWith(packageOnly + '.')) {
+              int idx = name.lastIndexOf('.');
+              classFiles.add(new ClassFile(name.substring(0, idx), name.substring(idx + 1), null));
+            }
+          }
+          continue;
+        }
+      }
+
       if ("file".equals(protocol)) {
-        findClassesInDirPackage(packageOnly, toPath(url), recursive, classes);
+        findClassesInDirPackage(packageOnly, toPath(url), recursive, classFiles);
       } else if ("jar".equals(protocol)) {
-        JarFile jar;
+        final JarFile jar;
 
         try {
           jar = ((JarURLConnection) url.openConnection()).getJarFile();
@@ -81,7 +162,7 @@ class Classes {
 
         Enumeration<JarEntry> entries = jar.entries();
         while (entries.hasMoreElements()) {
-          JarEntry entry = entries.nextElement();
+          final JarEntry entry = entries.nextElement();
           String name = entry.getName();
           if (name.charAt(0) == '/') {
             name = name.substring(1);
@@ -102,7 +183,12 @@ class Classes {
                  * package-info. TODO Determine better handling of unexpected classloader issues.
                  */
                 if (!"package-info".equalsIgnoreCase(className)) {
-                  add(packageName, classes, className);
+                  classFiles.add(new ClassFile(packageName, className,
+                      new InputSupplier<InputStream>() {
+                        public InputStream getInput() throws IOException {
+                          return jar.getInputStream(entry);
+                        }
+                      }));
                 }
 //                  vResult.add();
               }
@@ -111,16 +197,61 @@ class Classes {
         }
       }
     }
+  }
 
-    return classes;
+  // Reads the candidate class files (in parallel, if there are enough of them) and returns
+  // the ones that carry our annotations, in their original order.
+  private List<ClassFile> annotated(List<ClassFile> classFiles) {
+    if (null == annotations)
+      return classFiles;
+
+    int threads = Math.min(Runtime.getRuntime().availableProcessors(),
+        classFiles.size() / CLASS_FILES_PER_THREAD);
+    List<ClassFile> annotated = Lists.newArrayList();
+    if (threads < 2) {
+      for (ClassFile classFile : classFiles) {
+        if (classFile.call())
+          annotated.add(classFile);
+      }
+      return annotated;
+    }
+
+    ExecutorService readers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("sitebricks-scanner-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<Future<Boolean>> results = readers.invokeAll(classFiles);
+      for (int i = 0; i < classFiles.size(); i++) {
+        if (results.get(i).get())
+          annotated.add(classFiles.get(i));
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while scanning for classes", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException("Could not scan class files", e.getCause());
+    } finally {
+      readers.shutdownNow();
+    }
+    return annotated;
   }
 
-  private void add(String packageName, Set<Class<?>> classes, String className) {
+  private void add(ClassFile classFile, Set<Class<?>> classes) {
 
     Class<?> clazz;
     try {
-      clazz = Class.forName(packageName + '.' + className);
+      clazz = Class.forName(classFile.packageName + '.' + classFile.className);
     } catch (ClassNotFoundException e) {
+      // The index may list classes that have been deleted since, during development.
+      if (classFile.fromIndex()) {
+        log.warning("Skipping " + classFile.packageName + '.' + classFile.className
+            + " listed in " + PageIndex.RESOURCE + ", it could not be found");
+        return;
+      }
+
       log.severe("A class discovered by the scanner could not be found by the ClassLoader, " +
           "something very odd has happened with the classloading (see root cause): " +
           e.toString());
@@ -136,7 +267,7 @@ class Classes {
   private void findClassesInDirPackage(String packageName,
                                        String packagePath,
                                        final boolean recursive,
-                                       Set<Class<?>> classes) {
+                                       List<ClassFile> classFiles) {
     File dir = new File(packagePath);
 
     if (!dir.exists() || !dir.isDirectory()) {
@@ -154,17 +285,32 @@ class Classes {
         findClassesInDirPackage(packageName + "." + file.getName(),
             file.getAbsolutePath(),
             recursive,
-            classes);
+            classFiles);
       } else {
         String className = file.getName().substring(0, file.getName().length() - 6);
         //include class
-        add(packageName, classes, className);
+        classFiles.add(new ClassFile(packageName, className, Files.newInputStreamSupplier(file)));
       }
     }
   }
 
   public static Classes matching(Matcher<? super Class<?>> matcher) {
-    return new Classes(matcher);
+    return new Classes(matcher, null, false);
+  }
+
+  /**
+   * Matches classes annotated with any of the given annotations. Unless one of them is
+   * {@link java.lang.annotation.Inherited}, class files are read for these annotations
+   * first, so that only the classes that carry them are ever loaded. If they are all
+   * Sitebricks annotations, classes are taken from the {@link PageIndex} where there is one.
+   */
+  public static Classes annotatedWithAny(Class<? extends Annotation>... annotations) {
+    Matcher<AnnotatedElement> matcher = Matchers.annotatedWith(annotations[0]);
+    for (int i = 1; i < annotations.length; i++) {
+      matcher = matcher.or(Matchers.annotatedWith(annotations[i]));
+    }
+    return new Classes(matcher, ClassFileAnnotations.anyOf(annotations),
+        PageIndex.ANNOTATIONS.containsAll(Arrays.asList(annotations)));
   }
 
   private static String toPath(final URL url) {
@@ -183,4 +329,42 @@ class Classes {
     return buf.toString();
   }
 
+  // A class found by the scanner, but not yet loaded. Classes taken from an index have
+  // no bytes to check.
+  private class ClassFile implements Callable<Boolean> {
+    private final String packageName;
+    private final String className;
+    private final InputSupplier<? extends InputStream> bytes;
+
+    private ClassFile(String packageName, String className,
+                      InputSupplier<? extends InputStream> bytes) {
+      this.packageName = packageName;
+      this.className = className;
+      this.bytes = bytes;
+    }
+
+    boolean fromIndex() {
+      return null == bytes;
+    }
+
+    // Returns true if this class may carry one of our annotations.
+    @Override
+    public Boolean call() {
+      if (fromIndex())
+        return true;
+
+      InputStream in = null;
+      try {
+        in = bytes.getInput();
+        return annotations.presentIn(in);
+      } catch (IOException e) {
+        // Leave it to the class loader to decide what this is.
+        log.log(Level.FINE, "Could not read class file, loading " + packageName + '.'
+            + className + " instead", e);
+        return true;
+      } finally {
+        Closeables.closeQuietly(in);
+      }
+    }
+  }
 }
@@ -0,0 +1,104 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.MapMaker;
+import com.google.common.primitives.Primitives;
+import org.mvel2.asm.MethodVisitor;
+import org.mvel2.asm.Opcodes;
+import org.mvel2.asm.Type;
+
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Shared by the classes that sitebricks generates at runtime: property accessors (see
+ * {@link AccessorEvaluator}) and event handler invokers. A generated class is defined
+ * beneath the loader of the class it calls into, so that it can link against it.
+ */
+public final class GeneratedClasses {
+  // Parent loader -> the loader its generated classes are defined in. Each generated class
+  // keeps its loader (and so the parent) reachable, so neither may be held strongly here.
+  private static final ConcurrentMap<ClassLoader, GeneratedClassLoader> loaders =
+      new MapMaker().weakKeys().weakValues().makeMap();
+
+  private GeneratedClasses() {
+  }
+
+  /**
+   * Returns true if the given type and every class enclosing it are public, so that a
+   * generated class in another package may link against it.
+   */
+  public static boolean isPublic(Class<?> type) {
+    for (Class<?> c = type; null != c; c = c.getEnclosingClass()) {
+      if (!Modifier.isPublic(c.getModifiers()))
+        return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Returns true if the given loader resolves the given type to the very same class, so
+   * that a class it defines can implement (or otherwise use) that type.
+   */
+  public static boolean canSee(ClassLoader loader, Class<?> type) {
+    try {
+      return type == Class.forName(type.getName(), false, loader);
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Boxes the value on top of the stack, if it is of a primitive type.
+   */
+  public static void box(MethodVisitor method, Class<?> type) {
+    if (!type.isPrimitive())
+      return;
+
+    String owner = Type.getInternalName(Primitives.wrap(type));
+    method.visitMethodInsn(Opcodes.INVOKESTATIC, owner, "valueOf",
+        "(" + Type.getDescriptor(type) + ")L" + owner + ";");
+  }
+
+  /**
+   * Casts the object on top of the stack to the given type, unboxing it if the type is
+   * primitive.
+   */
+  public static void unbox(MethodVisitor method, Class<?> type) {
+    if (!type.isPrimitive()) {
+      method.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(type));
+      return;
+    }
+
+    String owner = Type.getInternalName(Primitives.wrap(type));
+    method.visitTypeInsn(Opcodes.CHECKCAST, owner);
+    method.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, type.getName() + "Value",
+        "()" + Type.getDescriptor(type));
+  }
+
+  /**
+   * Defines a generated class beneath the given loader. Classes generated beneath the same
+   * loader share one child loader, which lives as long as any of them does.
+   */
+  public static Class<?> define(ClassLoader parent, String name, byte[] bytecode) {
+    GeneratedClassLoader loader = loaders.get(parent);
+    if (null == loader) {
+      loader = new GeneratedClassLoader(parent);
+      GeneratedClassLoader raced = loaders.putIfAbsent(parent, loader);
+      if (null != raced)
+        loader = raced;
+    }
+
+    return loader.define(name, bytecode);
+  }
+
+  private static class GeneratedClassLoader extends ClassLoader {
+    GeneratedClassLoader(ClassLoader parent) {
+      super(parent);
+    }
+
+    synchronized Class<?> define(String name, byte[] bytecode) {
+      return defineClass(name, bytecode, 0, bytecode.length);
+    }
+  }
+}
@@ -0,0 +1,201 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.sitebricks.compiler.Compilers;
+import com.google.sitebricks.compiler.TemplateCompileException;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.Production;
+import com.google.sitebricks.routing.SystemMetrics;
+import net.jcip.annotations.ThreadSafe;
+
+import java.lang.annotation.Annotation;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Used in production when lazy compilation is enabled, to intercept the real pagebook so
+ * that each page is compiled the first time it is asked for, rather than all of them at
+ * startup. Concurrent first requests to a page wait for one compile, rather than each
+ * doing their own. Meanwhile, a low-priority background thread compiles the rest, the
+ * pages configured to go first ahead of the others.
+ *
+ * @see SitebricksModule#enableLazyCompilation(boolean)
+ */
+@ThreadSafe
+@Singleton
+class LazyCompilingPageBook implements PageBook {
+  static final String LAZY = "sitebricks.compile.lazy";
+  static final String COMPILE_FIRST = "sitebricks.compile.first";
+
+  private static final ThreadFactory BACKGROUND = new ThreadFactoryBuilder()
+      .setNameFormat("sitebricks-lazy-compiler-%d")
+      .setDaemon(true)
+      .setPriority(Thread.MIN_PRIORITY)
+      .build();
+
+  // Set while this thread is compiling. Compilers look up other pages, which must not
+  // wait on their compiles (they only need the page class).
+  private static final ThreadLocal<Boolean> compiling = new ThreadLocal<Boolean>();
+
+  private final PageBook book;
+  private final SystemMetrics metrics;
+  private final Compilers compilers;
+
+  // Pages yet to be compiled (by identity, as more than one page may share a class).
+  private final ConcurrentMap<Page, FutureTask<Void>> pending = new MapMaker().weakKeys().makeMap();
+
+  private final Logger log = Logger.getLogger(LazyCompilingPageBook.class.getName());
+
+  @Inject
+  public LazyCompilingPageBook(@Production PageBook book,
+                               SystemMetrics metrics, Compilers compilers) {
+    this.book = book;
+    this.metrics = metrics;
+    this.compilers = compilers;
+  }
+
+  /**
+   * Defers compiling the given pages until they are first asked for, and starts compiling
+   * them in the background, beginning with the pages at the given uris.
+   */
+  void compileLater(Set<Page> pages, List<String> compileFirst) {
+    final List<FutureTask<Void>> order = Lists.newArrayListWithCapacity(pages.size());
+    for (String uri : compileFirst) {
+      Page page = book.get(uri);
+      if (null != page && pages.contains(page))
+        order.add(defer(page));
+    }
+    for (Page page : pages) {
+      order.add(defer(page));
+    }
+
+    BACKGROUND.newThread(new Runnable() {
+      @Override
+      public void run() {
+        for (FutureTask<Void> compile : order) {
+          compile.run();  // Does nothing if a request got there first.
+        }
+      }
+    }).start();
+  }
+
+  // Returns the page's compile, creating it if there isn't one yet.
+  private FutureTask<Void> defer(final Page page) {
+    FutureTask<Void> compile = pending.get(page);
+    if (null != compile)
+      return compile;
+
+    compile = new FutureTask<Void>(new Runnable() {
+      @Override
+      public void run() {
+        compiling.set(true);
+        long start = System.nanoTime();
+        try {
+          compilers.compilePage(page);
+          compilers.analyze(page.pageClass());
+        } catch (TemplateCompileException e) {
+          // Just as at startup, a broken template doesn't take anything else down.
+          log.severe(e.getMessage());
+        } finally {
+          metrics.logCompileTime(page.pageClass(), System.nanoTime() - start);
+          compiling.remove();
+          pending.remove(page);
+        }
+      }
+    }, null);
+
+    FutureTask<Void> raced = pending.putIfAbsent(page, compile);
+    return (null == raced) ? compile : raced;
+  }
+
+  // Compiles the page on this thread, or waits for whoever is already compiling it.
+  private Page compiled(Page page) {
+    if (null == page || null != compiling.get())
+      return page;
+
+    FutureTask<Void> compile = pending.get(page);
+    if (null == compile)
+      return page;
+
+    compile.run();
+    try {
+      compile.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compiling " + page.pageClass(), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException)
+        throw (RuntimeException) e.getCause();
+      throw new IllegalStateException("Could not compile " + page.pageClass(), e.getCause());
+    }
+
+    if (log.isLoggable(Level.FINEST)) {
+      log.finest("Compiled template for page " + page.pageClass().getName() + " on demand");
+    }
+    return page;
+  }
+
+  public Page at(String uri, Class<?> myPageClass) {
+    return book.at(uri, myPageClass);
+  }
+
+  public Page get(String uri) {
+    return compiled(book.get(uri));
+  }
+
+  public Page forName(String name) {
+    return compiled(book.forName(name));
+  }
+
+  public Page embedAs(Class<?> page, String as) {
+    return book.embedAs(page, as);
+  }
+
+  @Override
+  public Page decorate(Class<?> pageClass) {
+    return compiled(book.decorate(pageClass));
+  }
+
+  public Page nonCompilingGet(String uri) {
+    return book.get(uri);
+  }
+
+  public Page forInstance(Object instance) {
+    // Page chaining puts this in the flash cache, from where it is rendered without
+    // another lookup. So the page it is bound to must be compiled now.
+    Page page = book.forInstance(instance);
+    if (null != page)
+      compiled(book.forClass(page.pageClass()));
+    return page;
+  }
+
+  public Page forClass(Class<?> pageClass) {
+    return compiled(book.forClass(pageClass));
+  }
+
+  public Page serviceAt(String uri, Class<?> pageClass) {
+    return book.serviceAt(uri, pageClass);
+  }
+
+  public Collection<List<Page>> getPageMap() {
+    return book.getPageMap();
+  }
+
+  @Override
+  public void at(String uri, List<ActionDescriptor> actionDescriptor,
+                 Map<Class<? extends Annotation>, String> methodSet) {
+    book.at(uri, actionDescriptor, methodSet);
+  }
+}
@@ -0,0 +1,129 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Closeables;
+import com.google.sitebricks.rendering.EmbedAs;
+import com.google.sitebricks.rendering.With;
+import net.jcip.annotations.Immutable;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The list of classes carrying Sitebricks annotations in one classpath root (a directory
+ * or jar), written at compile time by {@link PageIndexProcessor}. Where it is present,
+ * the scanner takes the classes from the index rather than looking through the root.
+ * A directory root is scanned anyway if it holds class files compiled after its index,
+ * since those may have been compiled without the processor (by an IDE, say).
+ * <p>
+ * The index is a text file with one binary class name per line. Lines starting with
+ * {@code #} are comments.
+ */
+@Immutable
+class PageIndex {
+  static final String RESOURCE = "META-INF/sitebricks/pages.index";
+
+  /**
+   * The index lists every class carrying at least one of these.
+   */
+  static final Set<Class<? extends Annotation>> ANNOTATIONS =
+      ImmutableSet.<Class<? extends Annotation>>of(At.class, EmbedAs.class, With.class, Show.class);
+
+  private static final Logger log = Logger.getLogger(PageIndex.class.getName());
+
+  private PageIndex() {
+  }
+
+  /**
+   * @param packageUrl A package directory as found by the class loader, for example
+   *  {@code jar:file:/app.jar!/com/example/pages}.
+   * @param packageDirName The package as a path, for example {@code com/example/pages}.
+   * @return The classpath root the package was found in, for example
+   *  {@code jar:file:/app.jar!/}, or null if it cannot be worked out.
+   */
+  static String rootOf(URL packageUrl, String packageDirName) {
+    String url = packageUrl.toExternalForm();
+    if (url.endsWith("/"))
+      url = url.substring(0, url.length() - 1);
+
+    return url.endsWith(packageDirName)
+        ? url.substring(0, url.length() - packageDirName.length())
+        : null;
+  }
+
+  /**
+   * @return The classes listed in the index of the given classpath root, or null if
+   *  there is no index there.
+   */
+  static Set<String> at(String root) {
+    InputStream in = null;
+    try {
+      in = new URL(root + RESOURCE).openStream();
+      Set<String> classes = read(in);
+      log.info("Taking pages in " + root + " from its " + RESOURCE + " rather than scanning");
+      return classes;
+    } catch (FileNotFoundException e) {
+      return null;
+    } catch (IOException e) {
+      log.log(Level.FINE, "Could not read page index in " + root + ", scanning it instead", e);
+      return null;
+    } finally {
+      Closeables.closeQuietly(in);
+    }
+  }
+
+  /**
+   * @param root A directory classpath root with an index, for example {@code file:/app/classes/}.
+   * @param packageDir A package directory within that root.
+   * @return true if any class file in the package was compiled after the index was written.
+   */
+  static boolean isStale(String root, File packageDir) {
+    File index;
+    try {
+      index = new File(new URL(root + RESOURCE).toURI());
+    } catch (IOException e) {
+      return true;
+    } catch (URISyntaxException e) {
+      return true;
+    } catch (IllegalArgumentException e) {
+      return true;
+    }
+
+    return hasClassFilesNewerThan(packageDir, index.lastModified());
+  }
+
+  private static boolean hasClassFilesNewerThan(File dir, long modified) {
+    File[] files = dir.listFiles();
+    if (null == files)
+      return false;
+
+    for (File file : files) {
+      if (file.isDirectory()
+          ? hasClassFilesNewerThan(file, modified)
+          : file.getName().endsWith(".class") && file.lastModified() > modified)
+        return true;
+    }
+    return false;
+  }
+
+  static Set<String> read(InputStream index) throws IOException {
+    ImmutableSet.Builder<String> classes = ImmutableSet.builder();
+    BufferedReader reader = new BufferedReader(new InputStreamReader(index, "UTF-8"));
+    for (String line = reader.readLine(); null != line; line = reader.readLine()) {
+      line = line.trim();
+      if (!line.isEmpty() && !line.startsWith("#"))
+        classes.add(line);
+    }
+    return classes.build();
+  }
+}
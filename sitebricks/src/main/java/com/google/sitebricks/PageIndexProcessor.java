@@ -0,0 +1,114 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import com.google.common.io.Closeables;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.Set;
+
+/**
+ * Writes an index of the pages, services, embedded widgets, exported resources and
+ * templates in a compilation, so that they needn't be scanned for at startup. The index
+ * is consulted for every classpath root it is found in, see {@link PageIndex}.
+ * <p>
+ * This processor is not registered as a service, to run it add it to the compiler's
+ * processors. For example, with Maven:
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;artifactId&gt;maven-compiler-plugin&lt;/artifactId&gt;
+ *   &lt;configuration&gt;
+ *     &lt;annotationProcessors&gt;
+ *       &lt;annotationProcessor&gt;com.google.sitebricks.PageIndexProcessor&lt;/annotationProcessor&gt;
+ *     &lt;/annotationProcessors&gt;
+ *   &lt;/configuration&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ *
+ * Classes already listed by an earlier compilation into the same output are kept, so
+ * incremental builds leave the index complete. Listed classes that have since lost their
+ * annotations (or been deleted) are skipped by the scanner.
+ */
+public class PageIndexProcessor extends AbstractProcessor {
+  private final Set<String> classes = Sets.newTreeSet();
+
+  @Override
+  public Set<String> getSupportedAnnotationTypes() {
+    ImmutableSet.Builder<String> types = ImmutableSet.builder();
+    for (Class<? extends Annotation> annotation : PageIndex.ANNOTATIONS) {
+      types.add(annotation.getName());
+    }
+    return types.build();
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment round) {
+    for (TypeElement annotation : annotations) {
+      for (Element element : round.getElementsAnnotatedWith(annotation)) {
+        // @Show is also allowed on methods, but only classes are scanned for.
+        if (element.getKind().isClass() || element.getKind().isInterface()) {
+          classes.add(processingEnv.getElementUtils().getBinaryName((TypeElement) element)
+              .toString());
+        }
+      }
+    }
+
+    if (round.processingOver() && !classes.isEmpty()) {
+      try {
+        write();
+      } catch (IOException e) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+            "Could not write " + PageIndex.RESOURCE + ": " + e);
+      }
+    }
+
+    // Other processors may want these annotations too.
+    return false;
+  }
+
+  private void write() throws IOException {
+    Set<String> all = Sets.newTreeSet(classes);
+    InputStream previous = null;
+    try {
+      previous = processingEnv.getFiler()
+          .getResource(StandardLocation.CLASS_OUTPUT, "", PageIndex.RESOURCE)
+          .openInputStream();
+      all.addAll(PageIndex.read(previous));
+    } catch (IOException e) {
+      // No earlier index.
+    } finally {
+      Closeables.closeQuietly(previous);
+    }
+
+    FileObject index = processingEnv.getFiler()
+        .createResource(StandardLocation.CLASS_OUTPUT, "", PageIndex.RESOURCE);
+    Writer writer = new OutputStreamWriter(index.openOutputStream(), "UTF-8");
+    try {
+      writer.write("# Generated by " + PageIndexProcessor.class.getName() + ", do not edit.\n");
+      for (String name : all) {
+        writer.write(name);
+        writer.write('\n');
+      }
+    } finally {
+      writer.close();
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.google.sitebricks;
+
+import net.jcip.annotations.ThreadSafe;
+
+/**
+ * A thread-confined pool of render buffers, so that steady-state rendering of
+ * a page reuses the same few {@link StringBuilder}s rather than growing fresh
+ * ones on every request. Also see {@link SizeEstimate}, which remembers how big
+ * a given template tends to render so buffers can be presized.
+ */
+@ThreadSafe
+public final class RenderBuffers {
+  // Buffers larger than this are left to the garbage collector rather than pinned per thread.
+  static final int MAX_RETAINED = 32 * 1024;
+
+  // All the buffers a thread keeps come to no more than this many chars (128K of memory).
+  static final int MAX_POOLED = 64 * 1024;
+  private static final int POOL_SIZE = 4;
+
+  private static final ThreadLocal<Pool> pools = new ThreadLocal<Pool>() {
+    @Override
+    protected Pool initialValue() {
+      return new Pool();
+    }
+  };
+
+  private RenderBuffers() {
+  }
+
+  /**
+   * Returns an empty buffer with at least the given capacity. The buffer belongs to
+   * the caller until it is handed back with {@link #release(StringBuilder)}, if ever.
+   */
+  public static StringBuilder acquire(int capacity) {
+    StringBuilder buffer = pools.get().poll(capacity);
+    if (null == buffer)
+      return new StringBuilder(capacity);
+
+    buffer.ensureCapacity(capacity);
+    return buffer;
+  }
+
+  /**
+   * Returns a buffer to the calling thread's pool. The caller must not touch
+   * the buffer again after this.
+   */
+  public static void release(StringBuilder buffer) {
+    if (buffer.capacity() > MAX_RETAINED)
+      return;
+
+    buffer.setLength(0);
+    pools.get().offer(buffer);
+  }
+
+  private static class Pool {
+    private final StringBuilder[] buffers = new StringBuilder[POOL_SIZE];
+    private int size;
+    private int pooled;  // Total capacity of the buffers held, in chars.
+
+    // Best fit: the smallest buffer that is big enough, otherwise the biggest one.
+    StringBuilder poll(int capacity) {
+      if (size == 0)
+        return null;
+
+      int best = 0;
+      for (int i = 1; i < size; i++) {
+        int candidate = buffers[i].capacity();
+        int current = buffers[best].capacity();
+        if (current < capacity ? candidate > current : candidate >= capacity && candidate < current)
+          best = i;
+      }
+
+      StringBuilder buffer = buffers[best];
+      buffers[best] = buffers[--size];
+      buffers[size] = null;
+      pooled -= buffer.capacity();
+      return buffer;
+    }
+
+    void offer(StringBuilder buffer) {
+      int capacity = buffer.capacity();
+      if (size < buffers.length && pooled + capacity <= MAX_POOLED) {
+        buffers[size++] = buffer;
+        pooled += capacity;
+      }
+    }
+  }
+
+  /**
+   * Tracks the rendered size of a template over time. The estimate follows growth
+   * immediately and decays slowly, so a buffer presized with it rarely needs to grow.
+   * Updates are racy but benign.
+   */
+  @ThreadSafe
+  public static final class SizeEstimate {
+    private static final int DEFAULT_SIZE = 1024;
+    private static final int DECAY = 8;
+
+    private volatile int estimate = DEFAULT_SIZE;
+
+    public int get() {
+      return estimate;
+    }
+
+    public void record(int size) {
+      int estimate = this.estimate;
+      if (size >= estimate)
+        this.estimate = size;
+      else
+        this.estimate = estimate - (estimate - size) / DECAY;
+    }
+  }
+}
@@ -7,7 +7,9 @@ import com.google.inject.Binding;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Stage;
+import com.google.inject.name.Named;
 import com.google.sitebricks.compiler.Compilers;
+import com.google.sitebricks.compiler.ParallelCompiler;
 import com.google.sitebricks.compiler.TemplateCompileException;
 import com.google.sitebricks.headless.Service;
 import com.google.sitebricks.rendering.Decorated;
@@ -21,13 +23,13 @@ import com.google.sitebricks.routing.PageBook.Page;
 import com.google.sitebricks.routing.SystemMetrics;
 
 import java.lang.annotation.Annotation;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static com.google.inject.matcher.Matchers.annotatedWith;
 import static com.google.sitebricks.SitebricksModule.BindingKind.ACTION;
 import static com.google.sitebricks.SitebricksModule.BindingKind.EMBEDDED;
 import static com.google.sitebricks.SitebricksModule.BindingKind.PAGE;
@@ -60,6 +62,12 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
   @Inject
   private final Injector injector = null;
 
+  @Inject(optional = true) @Named(LazyCompilingPageBook.LAZY)
+  private boolean lazy;
+
+  @Inject(optional = true) @Named(LazyCompilingPageBook.COMPILE_FIRST)
+  private List<String> compileFirst = Collections.emptyList();
+
   private final Logger log = Logger.getLogger(ScanAndCompileBootstrapper.class.getName());
 
   @Inject
@@ -80,17 +88,12 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
   }
 
   public void start() {
-    Set<Class<?>> set = Sets.newHashSet();
-    for (Package pkg : packages) {
-
-      //look for any classes annotated with @At, @EmbedAs and @With
-      set.addAll(Classes.matching(
-    		  annotatedWith(At.class).or(
-    		  annotatedWith(EmbedAs.class)).or(
-    		  annotatedWith(With.class)).or(
-          annotatedWith(Show.class))
-      ).in(pkg));
-    }
+    //look for any classes annotated with @At, @EmbedAs, @With and @Show, in all packages at once.
+    //only the classes that carry them are loaded, and they are taken from a compile-time
+    //PageIndex instead, wherever there is one.
+    @SuppressWarnings("unchecked")
+    Set<Class<?>> set = Sets.newHashSet(
+        Classes.annotatedWithAny(At.class, EmbedAs.class, With.class, Show.class).in(packages));
 
     //we need to scan all the pages first (do not collapse into the next loop)
     Set<PageBook.Page> pagesToCompile = scanPagesToCompile(set);
@@ -99,9 +102,13 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
 
     // Compile templates for scanned classes (except in dev mode, where faster startup
     // time is more important and compiles are amortized across visits to each page).
-    // TODO make this configurable separately to stage for GAE
+    // Lazy compilation does the same in production, but compiles each page only once.
     if (Stage.DEVELOPMENT != currentStage) {
-      compilePages(pagesToCompile);
+      if (lazy) {
+        compileLazily(pagesToCompile);
+      } else {
+        compilePages(pagesToCompile);
+      }
     }
 
     // Start all services.
@@ -201,7 +208,7 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
     }
 
     // Eagerly load all detected templates in production mode.
-    if (Stage.DEVELOPMENT != currentStage) {
+    if (Stage.DEVELOPMENT != currentStage && !lazy) {
       this.templates.loadAll(templates);
     }
 
@@ -228,11 +235,11 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
   }
 
   private void compilePages(Set<PageBook.Page> pagesToCompile) {
-    final List<TemplateCompileException> failures = Lists.newArrayList();
+    List<ParallelCompiler.Task> compiles = Lists.newArrayList();
 
-    //perform a compilation pass over all the pages and their templates
-    for (PageBook.Page page : pagesToCompile) {
-      Class<?> pageClass = page.pageClass();
+    //perform a compilation pass over all the pages and their templates, in parallel
+    for (final PageBook.Page page : pagesToCompile) {
+      final Class<?> pageClass = page.pageClass();
 
       // Headless web services need to be analyzed but not page-compiled.
       if (page.isHeadless()) {
@@ -241,15 +248,26 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
         continue;
       }
 
-      if (log.isLoggable(Level.FINEST)) {
-        log.finest("Compiling template for page " + pageClass.getName());
-      }
+      compiles.add(new ParallelCompiler.Task(pageClass) {
+        @Override
+        protected void compile() {
+          if (log.isLoggable(Level.FINEST)) {
+            log.finest("Compiling template for page " + pageClass.getName());
+          }
 
-      try {
-        compilers.compilePage(page);
-        compilers.analyze(pageClass);
-      } catch (TemplateCompileException e) {
-        failures.add(e);
+          compilers.compilePage(page);
+          compilers.analyze(pageClass);
+        }
+      });
+    }
+
+    final List<TemplateCompileException> failures = Lists.newArrayList();
+    RuntimeException fatal = null;
+    for (RuntimeException failure : ParallelCompiler.compileAll(compiles, metrics)) {
+      if (failure instanceof TemplateCompileException) {
+        failures.add((TemplateCompileException) failure);
+      } else if (null == fatal) {
+        fatal = failure;
       }
     }
 
@@ -257,6 +275,25 @@ class ScanAndCompileBootstrapper implements Bootstrapper {
     if (!failures.isEmpty()) {
       logFailures(failures);
     }
+
+    // ...unless something other than a template was wrong.
+    if (null != fatal) {
+      throw fatal;
+    }
+  }
+
+  private void compileLazily(Set<PageBook.Page> pagesToCompile) {
+    Set<PageBook.Page> pages = Sets.newLinkedHashSet();
+    for (PageBook.Page page : pagesToCompile) {
+      // Headless web services are only analyzed, which is cheap enough to do now.
+      if (page.isHeadless()) {
+        compilers.analyze(page.pageClass());
+      } else {
+        pages.add(page);
+      }
+    }
+
+    injector.getInstance(LazyCompilingPageBook.class).compileLater(pages, compileFirst);
   }
 
   private PageBook.Page embed(String embedAs, Class<?> page) {
@@ -0,0 +1,289 @@
+package com.google.sitebricks;
+
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import com.google.common.base.Function;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultiset;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multiset;
+import com.google.common.collect.Sets;
+
+/**
+ * A read-only multimap that looks values up in the servlet request as they are asked for,
+ * rather than copying every parameter or header up front. Most requests only ever touch a
+ * few keys (the {@code @Select} event, say), which then cost a single map lookup.
+ * <p>
+ * Like the servlet request itself, these are not safe for use by more than one thread.
+ */
+abstract class ServletMultimap implements Multimap<String, String> {
+
+  /**
+   * A view of the given parameter map, which the servlet spec guarantees is immutable.
+   */
+  static Multimap<String, String> ofParameters(final Map<String, String[]> parameters) {
+    return new ServletMultimap() {
+      @Override
+      public Set<String> keySet() {
+        return Collections.unmodifiableSet(parameters.keySet());
+      }
+
+      @Override
+      public Collection<String> get(String key) {
+        String[] values = parameters.get(key);
+        return (null == values)
+            ? ImmutableList.<String>of()
+            : Collections.unmodifiableList(Arrays.asList(values));
+      }
+    };
+  }
+
+  /**
+   * A view of the request's headers. Header names are read once, on first use, and the
+   * values of each header once it is first asked for.
+   */
+  static Multimap<String, String> ofHeaders(final HttpServletRequest request) {
+    return new ServletMultimap() {
+      Set<String> names;
+      final Map<String, Collection<String>> values = Maps.newHashMap();
+
+      @Override
+      public Set<String> keySet() {
+        if (null == names) {
+          Set<String> names = Sets.newLinkedHashSet();
+
+          @SuppressWarnings("unchecked") // Guaranteed by servlet spec
+          Enumeration<String> headerNames = request.getHeaderNames();
+          while (headerNames.hasMoreElements()) {
+            names.add(headerNames.nextElement());
+          }
+          this.names = Collections.unmodifiableSet(names);
+        }
+        return names;
+      }
+
+      @Override
+      public Collection<String> get(String key) {
+        if (!keySet().contains(key)) {
+          return ImmutableList.of();
+        }
+
+        Collection<String> header = values.get(key);
+        if (null == header) {
+          @SuppressWarnings("unchecked") // Guaranteed by servlet spec
+          Enumeration<String> enumeration = request.getHeaders(key);
+          header = ImmutableList.copyOf(Iterators.forEnumeration(enumeration));
+          values.put(key, header);
+        }
+        return header;
+      }
+    };
+  }
+
+  @Override
+  public abstract Set<String> keySet();
+
+  @Override
+  public abstract Collection<String> get(String key);
+
+  @Override
+  public int size() {
+    int size = 0;
+    for (String key : keySet()) {
+      size += get(key).size();
+    }
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return keySet().isEmpty();
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return keySet().contains(key);
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    return values().contains(value);
+  }
+
+  @Override
+  public boolean containsEntry(Object key, Object value) {
+    return key instanceof String && get((String) key).contains(value);
+  }
+
+  @Override
+  public Map<String, Collection<String>> asMap() {
+    return new AbstractMap<String, Collection<String>>() {
+      @Override
+      public Set<Entry<String, Collection<String>>> entrySet() {
+        return new AbstractSet<Entry<String, Collection<String>>>() {
+          @Override
+          public Iterator<Entry<String, Collection<String>>> iterator() {
+            final Iterator<String> keys = keySet().iterator();
+            return new Iterator<Entry<String, Collection<String>>>() {
+              @Override
+              public boolean hasNext() {
+                return keys.hasNext();
+              }
+
+              @Override
+              public Entry<String, Collection<String>> next() {
+                String key = keys.next();
+                return Maps.immutableEntry(key, get(key));
+              }
+
+              @Override
+              public void remove() {
+                throw new UnsupportedOperationException();
+              }
+            };
+          }
+
+          @Override
+          public int size() {
+            return keySet().size();
+          }
+        };
+      }
+
+      @Override
+      public Collection<String> get(Object key) {
+        return containsKey(key) ? ServletMultimap.this.get((String) key) : null;
+      }
+
+      @Override
+      public boolean containsKey(Object key) {
+        return keySet().contains(key);
+      }
+
+      @Override
+      public Set<String> keySet() {
+        return ServletMultimap.this.keySet();
+      }
+    };
+  }
+
+  @Override
+  public Collection<String> values() {
+    return new AbstractCollection<String>() {
+      @Override
+      public Iterator<String> iterator() {
+        return Iterators.concat(Iterators.transform(asMap().values().iterator(),
+            new Function<Collection<String>, Iterator<String>>() {
+              @Override
+              public Iterator<String> apply(Collection<String> values) {
+                return values.iterator();
+              }
+            }));
+      }
+
+      @Override
+      public int size() {
+        return ServletMultimap.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Collection<Map.Entry<String, String>> entries() {
+    return new AbstractCollection<Map.Entry<String, String>>() {
+      @Override
+      public Iterator<Map.Entry<String, String>> iterator() {
+        return Iterators.concat(Iterators.transform(keySet().iterator(),
+            new Function<String, Iterator<Map.Entry<String, String>>>() {
+              @Override
+              public Iterator<Map.Entry<String, String>> apply(final String key) {
+                return Iterators.transform(get(key).iterator(),
+                    new Function<String, Map.Entry<String, String>>() {
+                      @Override
+                      public Map.Entry<String, String> apply(String value) {
+                        return Maps.immutableEntry(key, value);
+                      }
+                    });
+              }
+            }));
+      }
+
+      @Override
+      public int size() {
+        return ServletMultimap.this.size();
+      }
+    };
+  }
+
+  @Override
+  public Multiset<String> keys() {
+    ImmutableMultiset.Builder<String> keys = ImmutableMultiset.builder();
+    for (String key : keySet()) {
+      keys.addCopies(key, get(key).size());
+    }
+    return keys.build();
+  }
+
+  @Override
+  public boolean put(String key, String value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean putAll(String key, Iterable<? extends String> values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean putAll(Multimap<? extends String, ? extends String> multimap) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Collection<String> replaceValues(String key, Iterable<? extends String> values) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public Collection<String> removeAll(Object key) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public void clear() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public boolean equals(Object object) {
+    return object instanceof Multimap && asMap().equals(((Multimap<?, ?>) object).asMap());
+  }
+
+  @Override
+  public int hashCode() {
+    return asMap().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return asMap().toString();
+  }
+}
@@ -2,7 +2,6 @@ package com.google.sitebricks;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Enumeration;
 import java.util.Map;
 import java.util.Set;
 
@@ -11,7 +10,6 @@ import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
-import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.io.ByteStreams;
 import com.google.inject.Inject;
@@ -174,34 +172,15 @@ class ServletRequestProvider implements Provider<Request<String>> {
       }
 
     private void readParams() {
-        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
-
         @SuppressWarnings("unchecked") // Guaranteed by servlet spec
             Map<String, String[]> parameterMap = servletRequest.getParameterMap();
-        for (Map.Entry<String, String[]> entry : parameterMap.entrySet()) {
-          builder.putAll(entry.getKey(), entry.getValue());
-        }
 
-        this.params = builder.build();
+        // Parameters are looked up as they are asked for, not copied.
+        this.params = ServletMultimap.ofParameters(parameterMap);
       }
 
       private void readHeaders() {
-        // Build once per request only (so do it here).
-        ImmutableMultimap.Builder<String, String> builder = ImmutableMultimap.builder();
-
-        @SuppressWarnings("unchecked") // Guaranteed by servlet spec
-            Enumeration<String> headerNames = servletRequest.getHeaderNames();
-        while (headerNames.hasMoreElements()) {
-          String header = headerNames.nextElement();
-
-          @SuppressWarnings("unchecked") // Guaranteed by servlet spec
-          Enumeration<String> values = servletRequest.getHeaders(header);
-          while (values.hasMoreElements()) {
-            builder.put(header, values.nextElement());
-          }
-        }
-
-        this.headers = builder.build();
+        this.headers = ServletMultimap.ofHeaders(servletRequest);
       }
 
     };
@@ -3,6 +3,8 @@ package com.google.sitebricks;
 import com.google.inject.Binding;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.sitebricks.client.SharedHttpClient;
 
 import java.util.List;
 
@@ -23,5 +25,11 @@ public class Shutdowner {
     for (Binding<Aware> binding : bindings) {
       injector.getInstance(binding.getKey()).shutdown();
     }
+
+    // Close any pooled connections web clients left open.
+    Binding<SharedHttpClient> httpClient = injector.getExistingBinding(Key.get(SharedHttpClient.class));
+    if (null != httpClient) {
+      httpClient.getProvider().get().shutdown();
+    }
   }
 }
@@ -22,6 +22,7 @@ import com.google.sitebricks.headless.ReplyBasedHeadlessRenderer;
 import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.routing.RoutingDispatcher;
 import com.google.sitebricks.routing.RoutingDispatcher.Events;
+import com.google.sitebricks.routing.SystemMetrics;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
@@ -35,12 +36,14 @@ class SitebricksFilter implements Filter {
 
   private final Provider<Request<String>> requestProvider;
   private final ReplyBasedHeadlessRenderer headlessRenderer;
+  private final SystemMetrics metrics;
 
   @Inject
   public SitebricksFilter(RoutingDispatcher dispatcher, Provider<Bootstrapper> bootstrapper,
                           Provider<Shutdowner> teardowner, Provider<Request<String>> requestProvider,
-                          ReplyBasedHeadlessRenderer headlessRenderer) {
+                          ReplyBasedHeadlessRenderer headlessRenderer, SystemMetrics metrics) {
     this.dispatcher = dispatcher;
+    this.metrics = metrics;
     this.bootstrapper = bootstrapper;
     this.teardowner = teardowner;
     this.requestProvider = requestProvider;
@@ -64,6 +67,7 @@ class SitebricksFilter implements Filter {
     //was there any matching page? (if it was a headless response, we don't need to do anything).
     // Also we do not do anything if the page elected to do nothing.
     if (null != respondObject && null == request.getAttribute(Reply.NO_REPLY_ATTR)) {
+      long start = System.nanoTime();
 
       // Only use the string rendering pipeline if this is not a headless request.
       if (respondObject instanceof Respond) {
@@ -81,11 +85,29 @@ class SitebricksFilter implements Filter {
             response.setContentType(respond.getContentType());
           }
 
-          response.getWriter().write(respond.toString());
+          if (respond instanceof StreamingRespond) {
+            // Some or all of the page may already have been sent.
+            ((StreamingRespond) respond).flush();
+          } else if (respond instanceof StringBuilderRespond) {
+            ((StringBuilderRespond) respond).writeTo(response.getWriter());
+          } else {
+            response.getWriter().write(respond.toString());
+          }
+
+          // Hand the render buffers back for the next request on this thread.
+          if (respond instanceof StringBuilderRespond) {
+            ((StringBuilderRespond) respond).release();
+          }
         }
       } else { // It must be a headless Reply. Render the headless response.
         headlessRenderer.render(response, respondObject);
       }
+
+      // Static resources are not pages, and are not timed.
+      Class<?> page = (Class<?>) request.getAttribute(SystemMetrics.PAGE_ATTRIBUTE);
+      if (null != page && metrics.isActive())
+        metrics.logPhaseTime(page, request.getMethod(), SystemMetrics.Phase.WRITE,
+            System.nanoTime() - start);
     } else {
       //continue down filter-chain
       filterChain.doFilter(request, response);
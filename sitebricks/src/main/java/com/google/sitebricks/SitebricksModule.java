@@ -1,6 +1,7 @@
 package com.google.sitebricks;
 
 import java.lang.annotation.Annotation;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Locale;
@@ -17,9 +18,11 @@ import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Key;
 import com.google.inject.Scope;
+import com.google.inject.Stage;
 import com.google.inject.TypeLiteral;
 import com.google.inject.binder.ScopedBindingBuilder;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Names;
 import com.google.sitebricks.compiler.FlatTemplateCompiler;
 import com.google.sitebricks.compiler.HtmlTemplateCompiler;
 import com.google.sitebricks.compiler.Parsing;
@@ -42,17 +45,66 @@ import com.google.sitebricks.http.negotiate.Accept;
 import com.google.sitebricks.http.negotiate.Negotiation;
 import com.google.sitebricks.rendering.Strings;
 import com.google.sitebricks.routing.Action;
+import com.google.sitebricks.routing.DefaultPageBook;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.Production;
 
 /**
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
  */
 public class SitebricksModule extends AbstractModule implements PageBinder {
   private boolean enableServletSupport = true;
+  private boolean enableStreamingResponses = false;
+  private boolean enableGeneratedAccessors = false;
+  private boolean enableLazyCompilation = false;
+  private final List<String> compileFirst = Lists.newArrayList();
 
   protected void enableServletSupport(boolean bindServlets) {
     this.enableServletSupport = bindServlets;
   }
 
+  /**
+   * Pages are written to the servlet response while they are rendered, rather
+   * than buffered whole. Note that content written to the head from within the
+   * body of a page (e.g. by embedded pages) is then written inline instead.
+   *
+   * @see StreamingRespond
+   */
+  protected void enableStreamingResponses(boolean stream) {
+    this.enableStreamingResponses = stream;
+  }
+
+  /**
+   * Plain property paths in templates (e.g. {@code ${person.address.city}}) are read
+   * through generated accessor classes instead of being evaluated by MVEL. Any other
+   * expression is still evaluated by MVEL.
+   *
+   * @see AccessorEvaluator
+   */
+  protected void enableGeneratedAccessors(boolean generate) {
+    this.enableGeneratedAccessors = generate;
+  }
+
+  /**
+   * Pages are compiled when they are first requested rather than at startup, so the
+   * application starts serving straight away. The remaining pages are compiled by a
+   * low-priority background thread. Has no effect in the development stage, where pages
+   * are recompiled on every request anyway.
+   *
+   * @see #compileFirst(String...)
+   */
+  protected void enableLazyCompilation(boolean lazy) {
+    this.enableLazyCompilation = lazy;
+  }
+
+  /**
+   * With lazy compilation, the pages at these uris are compiled in the background ahead
+   * of any others, in the order given. Typically these are the most visited pages.
+   */
+  protected void compileFirst(String... uris) {
+    compileFirst.addAll(Arrays.asList(uris));
+  }
+
   // Configure defaults via this contructor.
   public SitebricksModule() {
     // By default these are the method annotations we dispatch against.
@@ -93,6 +145,21 @@ public class SitebricksModule extends AbstractModule implements PageBinder {
     // registered immediately afterward. jvz.
     /* converters = */ConverterUtils.createConverterMultibinder(converters);
 
+    if (enableStreamingResponses)
+      bindConstant().annotatedWith(Names.named(StreamingRespond.STREAMING)).to(true);
+
+    if (enableGeneratedAccessors)
+      bind(Evaluator.class).to(AccessorEvaluator.class);
+
+    if (enableLazyCompilation && Stage.DEVELOPMENT != currentStage()) {
+      bind(PageBook.class).to(LazyCompilingPageBook.class);
+      bind(PageBook.class).annotatedWith(Production.class).to(DefaultPageBook.class);
+      bindConstant().annotatedWith(Names.named(LazyCompilingPageBook.LAZY)).to(true);
+      bind(new TypeLiteral<List<String>>() {})
+          .annotatedWith(Names.named(LazyCompilingPageBook.COMPILE_FIRST))
+          .toInstance(compileFirst);
+    }
+
     //insert core widgets set
     packages.add(0, CaseWidget.class.getPackage());
 
@@ -0,0 +1,186 @@
+package com.google.sitebricks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.NotThreadSafe;
+
+/**
+ * A {@link Respond} that writes the page straight to the servlet response as it
+ * is rendered, rather than accumulating all of it in memory first.
+ * <p>
+ * Everything up to the close of {@code <head>} is buffered, since the head is only
+ * complete once the template's head has been rendered. After that, output is
+ * written to the response in chunks of roughly {@link #CHUNK_SIZE} characters.
+ * Pages without a {@code <head>} are buffered in their entirety, as with
+ * {@link StringBuilderRespond}.
+ * <p>
+ * Because the head has already been sent by then, anything written to the head
+ * (or required) from within the body, e.g. by an embedded page, is written inline
+ * at that point in the body instead. Likewise, the page cannot redirect once the
+ * response has been committed.
+ *
+ * @see SitebricksModule#enableStreamingResponses(boolean)
+ */
+@NotThreadSafe
+public class StreamingRespond extends StringBuilderRespond {
+  public static final String STREAMING = "sitebricks.respond.streaming";
+  static final int CHUNK_SIZE = 8192;
+
+  private final HttpServletResponse response;
+  private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE + 64);
+  private final Set<String> requires = new HashSet<String>();
+
+  // Number of characters buffered since the head insertion point.
+  private int buffered;
+
+  // Non-null once the head has been written out to the response.
+  private Writer writer;
+
+  public StreamingRespond(Object context, HttpServletResponse response) {
+    super(context);
+    this.response = response;
+  }
+
+  @Override
+  public void write(String text) {
+    if (null == writer) {
+      super.write(text);
+      buffered += (null == text) ? 4 : text.length();
+      commitIfFull();
+    } else {
+      flushIfFull();
+      chunk.append(text);
+    }
+  }
+
+  @Override
+  public void write(char c) {
+    if (null == writer) {
+      super.write(c);
+      buffered++;
+      commitIfFull();
+    } else {
+      flushIfFull();
+      chunk.append(c);
+    }
+  }
+
+  @Override
+  public void chew() {
+    if (null == writer)
+      super.chew();
+
+    // Nothing is held back right after a flush, and what was sent cannot be taken back.
+    else if (chunk.length() > 0)
+      chunk.deleteCharAt(chunk.length() - 1);
+  }
+
+  @Override
+  public void writeToHead(String text) {
+    if (null == writer)
+      super.writeToHead(text);
+    else
+      write(text);
+  }
+
+  @Override
+  public void require(String require) {
+    if (!requires.add(require))
+      return;
+
+    if (null == writer)
+      super.require(require);
+    else
+      write(require);
+  }
+
+  @Override
+  protected void markHead() {
+    super.markHead();
+    buffered = 0;
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    chunk.setLength(0);
+    buffered = 0;
+  }
+
+  /**
+   * Writes out whatever has not yet been sent to the response.
+   */
+  public void flush() throws IOException {
+    if (null == writer)
+      commit();
+
+    writer.write(chunk.toString());
+    chunk.setLength(0);
+    writer.flush();
+  }
+
+  /**
+   * @return true if any of this page has already been sent to the client.
+   */
+  public boolean isCommitted() {
+    return null != writer;
+  }
+
+  @Override
+  public String toString() {
+    if (null == writer)
+      return super.toString();
+
+    throw new IllegalStateException("Page has already been streamed to the response");
+  }
+
+  private void commitIfFull() {
+    if (hasHead() && buffered >= CHUNK_SIZE) {
+      try {
+        commit();
+
+        // Get the head to the client as early as possible.
+        writer.flush();
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    }
+  }
+
+  // Writes the buffered head region to the response, streaming everything after it.
+  private void commit() throws IOException {
+    if (null == response.getContentType()) {
+      response.setContentType(getContentType());
+    }
+
+    String page = super.toString();
+    super.clear();
+
+    // Hold back the last character, in case it is chewed.
+    int last = page.length() - 1;
+    writer = response.getWriter();
+    if (last >= 0) {
+      writer.write(page, 0, last);
+      chunk.append(page.charAt(last));
+    }
+  }
+
+  // Flushes all but the last character of the current chunk, so that it can still be chewed.
+  private void flushIfFull() {
+    int length = chunk.length();
+    if (length < CHUNK_SIZE)
+      return;
+
+    try {
+      writer.append(chunk, 0, length - 1);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    chunk.delete(0, length - 1);
+  }
+}
@@ -1,6 +1,7 @@
 package com.google.sitebricks;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -21,20 +22,30 @@ public class StringBuilderRespond implements Respond {
   private static final String TEXT_TAG_TEMPLATE = "sitebricks.template.textfield";
   private static final String TEXTAREA_TAG_TEMPLATE = "sitebricks.template.textarea";
 
-  //TODO Improve performance by using an insertion index rather than a placeholder string
-  private static final String HEADER_PLACEHOLDER = "__sb:PLACEhOlDeR:__";
-
   private static final AtomicReference<Map<String, String>> templates =
       new AtomicReference<Map<String, String>>();
 
   private static final String TEXT_HTML = "text/html;charset=utf-8";
+  private static final int HEAD_SIZE = 256;
+  private static final int WRITE_CHUNK = 4096;
+
   private Object page;
   
   private List<String> errors;
   
-  @SuppressWarnings("unchecked")
   public StringBuilderRespond(Object context) {
+    this(context, 16);
+  }
+
+  /**
+   * @param expectedSize A hint as to how many characters the page will render,
+   *   used to presize the output buffer (see {@link RenderBuffers.SizeEstimate}).
+   */
+  @SuppressWarnings("unchecked")
+  public StringBuilderRespond(Object context, int expectedSize) {
     this.page = context;
+    this.out = RenderBuffers.acquire(expectedSize);
+    this.head = RenderBuffers.acquire(HEAD_SIZE);
     if (null == templates.get()) {
       final Properties properties = new Properties();
       try {
@@ -48,12 +59,16 @@ public class StringBuilderRespond implements Respond {
     }
   }
 
-  private final StringBuilder out = new StringBuilder();
-  private final StringBuilder head = new StringBuilder();
+  // Pooled buffers, handed back by release().
+  private StringBuilder out;
+  private StringBuilder head;
 
   private final Set<String> requires = new LinkedHashSet<String>();
   private String redirect;
 
+  // Insertion index of the head into out (in place of a placeholder string), or -1.
+  private int headIndex = -1;
+
   public String getHead() {
     return head.toString();
   }
@@ -105,6 +120,19 @@ public class StringBuilderRespond implements Respond {
     if (null != head) {
       head.delete(0, head.length());
     }
+    headIndex = -1;
+  }
+
+  /**
+   * Marks the current position of the output as the point where the
+   * head (and any required tags) will be inserted.
+   */
+  protected void markHead() {
+    headIndex = out.length();
+  }
+
+  protected final boolean hasHead() {
+    return headIndex >= 0;
   }
 
   @Override public Object pageObject() {
@@ -124,24 +152,74 @@ public class StringBuilderRespond implements Respond {
     this.errors = errors;
   }
 
-  @Override
-  public String toString() {
-    //write requires to header first...
+  /**
+   * @return The number of characters rendered so far (body and head).
+   */
+  public int length() {
+    return out.length() + head.length();
+  }
+
+  /**
+   * Same as writing out {@link #toString()}, but without first copying the
+   * entire page into a String.
+   */
+  public void writeTo(Writer writer) throws IOException {
+    writeRequiresToHead();
+
+    if (headIndex < 0) {
+      writeTo(writer, out, 0, out.length());
+    } else {
+      writeTo(writer, out, 0, headIndex);
+      writeTo(writer, head, 0, head.length());
+      writeTo(writer, out, headIndex, out.length());
+    }
+  }
+
+  private static void writeTo(Writer writer, StringBuilder buffer, int start, int end)
+      throws IOException {
+    char[] chars = new char[Math.min(WRITE_CHUNK, end - start)];
+    while (start < end) {
+      int length = Math.min(chars.length, end - start);
+      buffer.getChars(start, start + length, chars, 0);
+      writer.write(chars, 0, length);
+      start += length;
+    }
+  }
+
+  /**
+   * Hands this respond's buffers back to the current thread's pool. The
+   * respond must not be used after it has been released.
+   */
+  public void release() {
+    if (null != out) {
+      RenderBuffers.release(out);
+      RenderBuffers.release(head);
+      out = null;
+      head = null;
+    }
+  }
+
+  private void writeRequiresToHead() {
     for (String require : requires) {
       writeToHead(require);
     }
+  }
 
-    //write header to placeholder...
-    //TODO optimize by scanning upto <body> only (if no head)
-    int index = out.indexOf(HEADER_PLACEHOLDER);
-
-    String output = out.toString();
+  @Override
+  public String toString() {
+    //write requires to header first...
+    writeRequiresToHead();
 
-    if (index > 0) {
-      output = output.replaceFirst(HEADER_PLACEHOLDER, head.toString());
+    //write header at its insertion point...
+    if (headIndex < 0) {
+      return out.toString();
     }
 
-    return output;
+    return new StringBuilder(out.length() + head.length())
+        .append(out, 0, headIndex)
+        .append(head)
+        .append(out, headIndex, out.length())
+        .toString();
   }
 
   //do NOT make this a static inner class!
@@ -152,7 +230,7 @@ public class StringBuilderRespond implements Respond {
     }
 
     public void headerPlaceholder() {
-      write(HEADER_PLACEHOLDER);
+      markHead();
     }
 
     public void textArea(String bind, String value) {
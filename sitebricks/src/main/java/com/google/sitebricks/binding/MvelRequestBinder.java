@@ -2,6 +2,7 @@ package com.google.sitebricks.binding;
 
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Multimap;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
@@ -10,13 +11,20 @@ import com.google.sitebricks.Evaluator;
 import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.rendering.Strings;
 import net.jcip.annotations.Immutable;
+import org.mvel2.CompileException;
+import org.mvel2.MVEL;
 import org.mvel2.PropertyAccessException;
+import org.mvel2.util.PropertyTools;
 
+import java.io.Serializable;
 import java.lang.reflect.InvocationTargetException;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Pattern;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail.com)
@@ -28,7 +36,17 @@ public class MvelRequestBinder implements RequestBinder<String> {
   private final Provider<FlashCache> cacheProvider;
   private final Logger log = Logger.getLogger(MvelRequestBinder.class.getName());
 
-  private static final String VALID_BINDING_REGEX = "[\\w\\.$]*";
+  private static final Pattern VALID_BINDING = Pattern.compile("[\\w\\.$]*");
+
+  // Bounds the number of parameter names remembered per page class (they come from the client).
+  private static final int MAX_CACHED_BINDINGS = 1024;
+
+  // Marks a parameter name that can never be bound on a given page class.
+  private static final Object UNBINDABLE = new Object();
+
+  // Page class -> parameter name -> compiled MVEL setter (or UNBINDABLE).
+  private final ConcurrentMap<Class<?>, ConcurrentMap<String, Object>> setters =
+      new MapMaker().weakKeys().makeMap();
 
   @Inject
   public MvelRequestBinder(Evaluator evaluator, Provider<FlashCache> cacheProvider) {
@@ -38,18 +56,31 @@ public class MvelRequestBinder implements RequestBinder<String> {
 
   public void bind(Request<String> request, Object o) {
     final Multimap<String, String> map = request.params();
+    final ConcurrentMap<String, Object> setters = settersFor(o.getClass());
 
     //bind iteratively (last incoming param-value per key, gets bound)
     for (Map.Entry<String, Collection<String>> entry : map.asMap().entrySet()) {
       String key = entry.getKey();
 
+      // Unknown or invalid parameters cost a single lookup.
+      Object setter = setters.get(key);
+      if (UNBINDABLE == setter)
+        continue;
+
+      // Once the cache is full, any new names are validated and interpreted per request.
+      if (null == setter && setters.size() < MAX_CACHED_BINDINGS) {
+        // We guard against expression-injection with a regex validator.
+        setter = validate(key) ? compile(key) : UNBINDABLE;
+        setters.putIfAbsent(key, setter);
+
+        if (UNBINDABLE == setter)
+          continue;
+      } else if (null == setter && !validate(key))
+        continue;
+
       // If there are multiple entry, then this is a collection bind:
       final Collection<String> values = entry.getValue();
 
-      // We guard against expression-injection with a regex validator.
-      if (!validate(key))
-        return;
-
       Object value;
 
       if (values.size() > 1) {
@@ -76,13 +107,26 @@ public class MvelRequestBinder implements RequestBinder<String> {
 
       //apply the bound value to the page object property
       try {
-        evaluator.write(key, o, value);
+        if (null != setter)
+          MVEL.executeSetExpression((Serializable) setter, o, value);
+        else
+          evaluator.write(key, o, value);
       } catch (PropertyAccessException e) {
 
     		// Do some better error reporting if this is a real exception.
     		  if (e.getCause() instanceof InvocationTargetException) {
     			  addContextAndThrow(o, key, value, e.getCause());
     		  }
+
+        // The compiled setter wraps conversion failures (e.g. "abc" for an int), which the
+        // interpreted path threw as is. These are the client's fault, not the property's.
+        if (null != setter && null != e.getCause())
+          addContextAndThrow(o, key, value, e.getCause());
+
+        // A missing top-level property stays missing for this class (unlike a null in a path).
+        if (null != setter && key.indexOf('.') < 0 && !hasProperty(o, key))
+          setters.replace(key, setter, UNBINDABLE);
+
         // Log missing property.
         if (log.isLoggable(Level.FINER)) {
           log.finer("A property [" + key +"] could not be bound,"
@@ -94,6 +138,33 @@ public class MvelRequestBinder implements RequestBinder<String> {
     }
   }
 
+  private ConcurrentMap<String, Object> settersFor(Class<?> pageClass) {
+    ConcurrentMap<String, Object> classSetters = setters.get(pageClass);
+    if (null == classSetters) {
+      classSetters = new ConcurrentHashMap<String, Object>();
+      ConcurrentMap<String, Object> raced = setters.putIfAbsent(pageClass, classSetters);
+      if (null != raced)
+        classSetters = raced;
+    }
+
+    return classSetters;
+  }
+
+  private static boolean hasProperty(Object bound, String key) {
+    return bound instanceof Map
+        || null != PropertyTools.getFieldOrWriteAccessor(bound.getClass(), key);
+  }
+
+  private Object compile(String key) {
+    try {
+      return MVEL.compileSetExpression(key);
+    } catch (CompileException e) {
+      log.warning("Binding expression (request/form parameter) could not be compiled: " + key
+          + " (ignoring)");
+      return UNBINDABLE;
+    }
+  }
+
 	private void addContextAndThrow(Object bound, String key, Object value, Throwable cause) {
 	  throw new RuntimeException(String.format(
 	    "Problem setting [%s] on instance [%s] with value [%s]",
@@ -115,7 +186,7 @@ public class MvelRequestBinder implements RequestBinder<String> {
 
   private boolean validate(String binding) {
     //Guards against expression-injection attacks.
-    if (Strings.empty(binding) || !binding.matches(VALID_BINDING_REGEX)) {
+    if (Strings.empty(binding) || !VALID_BINDING.matcher(binding).matches()) {
       log.warning(
           "Binding expression (request/form parameter) contained invalid characters: " + binding
               + " (ignoring)");
@@ -0,0 +1,109 @@
+package com.google.sitebricks.compiler;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.sitebricks.routing.SystemMetrics;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Compiles page templates at startup, across as many threads as there are cores. Each
+ * page's template is parsed and compiled independently of the others, so only the time
+ * taken by the slowest few holds up startup. Each compile is timed in {@link SystemMetrics}.
+ */
+public final class ParallelCompiler {
+  private ParallelCompiler() {
+  }
+
+  /**
+   * Compiles the template of one page.
+   */
+  public abstract static class Task {
+    private final Class<?> page;
+
+    protected Task(Class<?> page) {
+      this.page = page;
+    }
+
+    protected abstract void compile();
+  }
+
+  /**
+   * Runs all the given tasks, and waits for them to finish.
+   *
+   * @return Any exceptions thrown by the tasks, in the order of the tasks that threw them.
+   */
+  public static List<RuntimeException> compileAll(List<? extends Task> tasks,
+                                                  SystemMetrics metrics) {
+    return compileAll(tasks, metrics, Runtime.getRuntime().availableProcessors());
+  }
+
+  static List<RuntimeException> compileAll(List<? extends Task> tasks, SystemMetrics metrics,
+                                           int cores) {
+    List<Timed> compiles = Lists.newArrayListWithCapacity(tasks.size());
+    for (Task task : tasks) {
+      compiles.add(new Timed(task, metrics));
+    }
+
+    List<RuntimeException> failures = Lists.newArrayList();
+    int threads = Math.min(cores, tasks.size());
+    if (threads < 2) {
+      for (Timed compile : compiles) {
+        RuntimeException failure = compile.call();
+        if (null != failure)
+          failures.add(failure);
+      }
+      return failures;
+    }
+
+    ExecutorService compilers = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+        .setNameFormat("sitebricks-compiler-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      for (Future<RuntimeException> result : compilers.invokeAll(compiles)) {
+        RuntimeException failure = result.get();
+        if (null != failure)
+          failures.add(failure);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while compiling templates", e);
+    } catch (ExecutionException e) {
+      // Only errors get here, everything else is returned by the task.
+      throw (Error) e.getCause();
+    } finally {
+      compilers.shutdownNow();
+    }
+    return failures;
+  }
+
+  // Returns the failure, if any, so that the rest carry on.
+  private static class Timed implements Callable<RuntimeException> {
+    private final Task task;
+    private final SystemMetrics metrics;
+
+    private Timed(Task task, SystemMetrics metrics) {
+      this.task = task;
+      this.metrics = metrics;
+    }
+
+    @Override
+    public RuntimeException call() {
+      long start = System.nanoTime();
+      try {
+        task.compile();
+        return null;
+      } catch (RuntimeException e) {
+        return e;
+      } finally {
+        metrics.logCompileTime(task.page, System.nanoTime() - start);
+      }
+    }
+  }
+}
@@ -6,16 +6,22 @@ import com.google.sitebricks.Respond;
 import com.google.sitebricks.Template;
 import com.google.sitebricks.compiler.TemplateCompiler;
 
+import org.mvel2.integration.impl.MapVariableResolverFactory;
 import org.mvel2.templates.CompiledTemplate;
 import org.mvel2.templates.TemplateRuntime;
+import org.mvel2.templates.util.TemplateOutputStream;
 
 import java.util.HashMap;
 import java.util.Set;
 
 /**
- * Creates renderables, given an MVEL template page.
+ * Creates renderables, given an MVEL template page. Templates are rendered straight into
+ * the respond, with a variable factory reused by each thread.
  */
 public class MvelTemplateCompiler implements TemplateCompiler {
+  // Taken out while in use, so a template rendered within another gets its own.
+  private static final ThreadLocal<MapVariableResolverFactory> factories =
+      new ThreadLocal<MapVariableResolverFactory>();
 
   public Renderable compile(final Class<?> page, final Template template) {
     // Compile template immediately.
@@ -25,7 +31,20 @@ public class MvelTemplateCompiler implements TemplateCompiler {
       @Override
       public void render(Object bound, Respond respond) {
         assert page.isInstance(bound);
-        respond.write(TemplateRuntime.execute(compiledTemplate, bound, new HashMap()).toString());
+        MapVariableResolverFactory factory = factories.get();
+        if (null == factory)
+          factory = new MapVariableResolverFactory(new HashMap<String, Object>());
+        else
+          factories.set(null);
+
+        try {
+          TemplateRuntime.execute(compiledTemplate, bound, factory, null,
+              new RespondOutputStream(respond));
+        } finally {
+          // Forget any variables the template declared.
+          factory.clear();
+          factories.set(factory);
+        }
       }
 
       @Override
@@ -34,4 +53,22 @@ public class MvelTemplateCompiler implements TemplateCompiler {
       }
     };
   }
+
+  private static class RespondOutputStream implements TemplateOutputStream {
+    private final Respond respond;
+
+    private RespondOutputStream(Respond respond) {
+      this.respond = respond;
+    }
+
+    public TemplateOutputStream append(CharSequence text) {
+      respond.write(text.toString());
+      return this;
+    }
+
+    public TemplateOutputStream append(char[] chars) {
+      respond.write(new String(chars));
+      return this;
+    }
+  }
 }
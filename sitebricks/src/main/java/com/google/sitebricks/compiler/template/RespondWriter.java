@@ -0,0 +1,55 @@
+package com.google.sitebricks.compiler.template;
+
+import com.google.sitebricks.Respond;
+
+import java.io.Writer;
+
+/**
+ * A Writer over a {@link Respond}, so template engines can render straight into the
+ * response rather than building an intermediate String first. Flushing and closing
+ * do nothing, the respond is owned by whoever is rendering.
+ */
+public class RespondWriter extends Writer {
+  private final Respond respond;
+
+  public RespondWriter(Respond respond) {
+    this.respond = respond;
+  }
+
+  @Override
+  public void write(char[] chars, int offset, int length) {
+    if (length == 1)
+      respond.write(chars[offset]);
+    else if (length > 0)
+      respond.write(new String(chars, offset, length));
+  }
+
+  @Override
+  public void write(int c) {
+    respond.write((char) c);
+  }
+
+  @Override
+  public void write(String text) {
+    respond.write(text);
+  }
+
+  @Override
+  public void write(String text, int offset, int length) {
+    respond.write(text.substring(offset, offset + length));
+  }
+
+  @Override
+  public Writer append(CharSequence text) {
+    respond.write(String.valueOf(text));
+    return this;
+  }
+
+  @Override
+  public void flush() {
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -1,11 +1,16 @@
 package com.google.sitebricks.compiler.template.freemarker;
 
+import com.google.common.collect.ImmutableSet;
 import com.google.inject.Singleton;
+import com.google.sitebricks.Renderable;
+import com.google.sitebricks.Respond;
 import com.google.sitebricks.compiler.TemplateCompiler;
 import com.google.sitebricks.compiler.template.AbstractMagicTemplateCompiler;
+import com.google.sitebricks.compiler.template.RespondWriter;
 
 import freemarker.core.Environment;
 import freemarker.template.Configuration;
+import freemarker.template.DefaultObjectWrapper;
 import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import freemarker.template.TemplateExceptionHandler;
@@ -14,20 +19,56 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.util.Set;
 
+/**
+ * Parses FreeMarker templates once, when the page is compiled, and renders them straight
+ * into the respond. All templates share one configuration, and so one object wrapper
+ * (which caches the models it makes for page objects).
+ */
 @Singleton
 public class FreemarkerTemplateCompiler extends AbstractMagicTemplateCompiler implements TemplateCompiler {
+  private final Configuration configuration = newConfiguration();
+
+  private static Configuration newConfiguration() {
+    Configuration configuration = new Configuration();
+    configuration.setTemplateExceptionHandler(new SitebricksTemplateExceptionHandler());
+    configuration.setLocalizedLookup(false);
+
+    DefaultObjectWrapper wrapper = new DefaultObjectWrapper();
+    wrapper.setUseCache(true);
+    configuration.setObjectWrapper(wrapper);
+
+    return configuration;
+  }
 
   @Override
-  public String process(Class<?> page, Object bound, com.google.sitebricks.Template sitebricksTemplate) {
+  public Renderable compile(final Class<?> page, com.google.sitebricks.Template sitebricksTemplate) {
+    final Template template = getTemplate(page, transform(sitebricksTemplate));
 
-    final Template template = getTemplate(page, sitebricksTemplate);
+    return new Renderable() {
+      @Override
+      public void render(Object bound, Respond respond) {
+        assert page.isInstance(bound);
+        process(template, bound, new RespondWriter(respond));
+      }
 
-    // pick type
-    // transform to xhtml
-    // produce output
+      @Override
+      public <T extends Renderable> Set<T> collect(Class<T> clazz) {
+        return ImmutableSet.of();
+      }
+    };
+  }
 
+  @Override
+  public String process(Class<?> page, Object bound, com.google.sitebricks.Template sitebricksTemplate) {
     Writer writer = new StringWriter();
+    process(getTemplate(page, sitebricksTemplate), bound, writer);
+
+    return writer.toString();
+  }
+
+  private static void process(Template template, Object bound, Writer writer) {
     try {
       template.process(bound, writer);
     } catch (TemplateException e) {
@@ -35,14 +76,9 @@ public class FreemarkerTemplateCompiler extends AbstractMagicTemplateCompiler im
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
-
-    return writer.toString();
   }
 
   private Template getTemplate(Class<?> page, com.google.sitebricks.Template sitebricksTemplate) {
-    Configuration configuration = new Configuration();
-    configuration.setTemplateExceptionHandler(new SitebricksTemplateExceptionHandler());
-
     try {
       return new Template(page.getName(), new StringReader(sitebricksTemplate.getText()), configuration);
     } catch (IOException e) {
@@ -50,10 +86,10 @@ public class FreemarkerTemplateCompiler extends AbstractMagicTemplateCompiler im
     }
   }
 
-  class SitebricksTemplateExceptionHandler implements TemplateExceptionHandler {
+  static class SitebricksTemplateExceptionHandler implements TemplateExceptionHandler {
 
     public void handleTemplateException(TemplateException te, Environment env, Writer out) throws TemplateException {
       // We intentionally do nothing here
     }
   }
-}
\ No newline at end of file
+}
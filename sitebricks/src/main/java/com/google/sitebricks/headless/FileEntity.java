@@ -0,0 +1,197 @@
+package com.google.sitebricks.headless;
+
+import com.google.common.base.Preconditions;
+import net.jcip.annotations.Immutable;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * A reply entity that sends a file from disk, straight from its {@link FileChannel}
+ * rather than through a transport. Single byte ranges are honored (with a 206 Partial
+ * Content reply), so clients can resume large downloads. Example:
+ * <pre>
+ *   return Reply.with(new FileEntity(archive)).type("application/zip");
+ * </pre>
+ */
+@Immutable
+public final class FileEntity {
+  private static final String BYTES = "bytes=";
+  private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
+  private static final String OCTET_STREAM = "application/octet-stream";
+
+  private final File file;
+
+  public FileEntity(File file) {
+    Preconditions.checkArgument(null != file, "File cannot be null!");
+    this.file = file;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * Writes out the file or the requested range of it, with the given status unless the
+   * request asks for a range. Headers other than the ones describing the content are
+   * left to the caller.
+   */
+  void send(HttpServletRequest request, HttpServletResponse response, int status)
+      throws IOException {
+    FileInputStream in = new FileInputStream(file);
+    try {
+      FileChannel channel = in.getChannel();
+      long length = channel.size();
+
+      // Validators are fixed before we look at the range, so that If-Range is checked
+      // against the same file we send.
+      long lastModified = file.lastModified() / 1000 * 1000;
+      String etag = '"' + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+      response.setHeader("Accept-Ranges", "bytes");
+      response.setHeader("ETag", etag);
+      if (lastModified > 0)
+        response.setDateHeader("Last-Modified", lastModified);
+
+      long start = 0;
+      long end = length - 1;
+      if (HttpServletResponse.SC_OK == status && isRangeCurrent(request, etag, lastModified)) {
+        long[] range = range(request.getHeader("Range"), length);
+        if (null != range) {
+          if (range.length == 0) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+          }
+
+          start = range[0];
+          end = range[1];
+          status = HttpServletResponse.SC_PARTIAL_CONTENT;
+          response.setHeader("Content-Range", "bytes " + start + '-' + end + '/' + length);
+        }
+      }
+
+      long count = end - start + 1;
+      response.setHeader("Content-Length", Long.toString(count));
+      response.setStatus(status);
+
+      transfer(channel, start, count, response.getOutputStream());
+    } finally {
+      in.close();
+    }
+  }
+
+  String contentType() {
+    return OCTET_STREAM;
+  }
+
+  // transferTo() may send less than asked for, so we loop until it's all gone.
+  private static void transfer(FileChannel channel, long position, long count, OutputStream out)
+      throws IOException {
+    WritableByteChannel target = (out instanceof WritableByteChannel)
+        ? (WritableByteChannel) out
+        : Channels.newChannel(out);
+
+    while (count > 0) {
+      long sent = channel.transferTo(position, count, target);
+      if (sent <= 0)
+        throw new IOException("File was truncated while being sent: " + position);
+
+      position += sent;
+      count -= sent;
+    }
+  }
+
+  // A range is only honored if the client's copy (named in If-Range) is still current.
+  private static boolean isRangeCurrent(HttpServletRequest request, String etag,
+                                        long lastModified) {
+    String ifRange = request.getHeader("If-Range");
+    if (null == ifRange)
+      return true;
+
+    ifRange = ifRange.trim();
+    if (ifRange.startsWith("\"") || ifRange.startsWith("W/"))
+      return etag.equals(ifRange);
+
+    try {
+      return lastModified == httpDateFormat().parse(ifRange).getTime();
+    } catch (ParseException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Parses a single byte range, returning its first and last positions, an empty array
+   * if it can't be satisfied, or null to send the whole file. Multiple ranges are not
+   * supported and are answered with the whole file, which HTTP permits.
+   */
+  static long[] range(String header, long length) {
+    if (null == header || !header.startsWith(BYTES) || header.indexOf(',') != -1)
+      return null;
+
+    String spec = header.substring(BYTES.length()).trim();
+    int dash = spec.indexOf('-');
+    if (dash == -1)
+      return null;
+
+    long start;
+    long end;
+    try {
+      if (dash == 0) {
+        // A suffix range, i.e. the last n bytes.
+        long suffix = Long.parseLong(spec.substring(1));
+        if (suffix <= 0)
+          return new long[0];
+
+        start = Math.max(0, length - suffix);
+        end = length - 1;
+      } else {
+        start = Long.parseLong(spec.substring(0, dash));
+        end = (dash == spec.length() - 1)
+            ? length - 1
+            : Math.min(Long.parseLong(spec.substring(dash + 1)), length - 1);
+      }
+    } catch (NumberFormatException e) {
+      return null;
+    }
+
+    if (start > end) {
+      // A last position before the first is malformed, and is ignored.
+      return (start >= length) ? new long[0] : null;
+    }
+
+    return new long[] { start, end };
+  }
+
+  private static SimpleDateFormat httpDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format;
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    return other instanceof FileEntity && file.equals(((FileEntity) other).file);
+  }
+
+  @Override
+  public int hashCode() {
+    return file.hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return "FileEntity{" + file + '}';
+  }
+}
@@ -133,7 +133,7 @@ public abstract class Reply<E> {
    * transport.
    *
    * @param entity An entity to send back for which a valid transport exists (see
-   *   {@link #as(Class)}).
+   *   {@link #as(Class)}), or a {@link FileEntity} to send a file from disk.
    */
   public static <E> Reply<E> with(E entity) {
     return new ReplyMaker<E>(entity);
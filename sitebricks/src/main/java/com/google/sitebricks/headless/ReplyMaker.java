@@ -164,7 +164,9 @@ class ReplyMaker<E> extends Reply<E> {
     if (response.getContentType() == null) {
       // By default we use the content type of the transport.
       if (null == contentType) {
-        response.setContentType(transport.contentType());
+        response.setContentType(entity instanceof FileEntity
+            ? ((FileEntity) entity).contentType()
+            : transport.contentType());
       } else {
         response.setContentType(contentType);
       }
@@ -177,6 +179,12 @@ class ReplyMaker<E> extends Reply<E> {
       return;
     }
 
+    // Files set their own status, as they may be sending only part of themselves.
+    if (entity instanceof FileEntity && null == templateKey) {
+      ((FileEntity) entity).send(injector.getInstance(HttpServletRequest.class), response, status);
+      return;
+    }
+
     // Write out data.
     response.setStatus(status);
 
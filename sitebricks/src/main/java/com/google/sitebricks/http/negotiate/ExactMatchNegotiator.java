@@ -5,6 +5,7 @@ import com.google.common.collect.Multimap;
 import com.google.sitebricks.headless.Request;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 /**
  * A strategy for deciding whether or not a header is acceptable to the given
@@ -12,6 +13,8 @@ import java.util.*;
  * a header annotation to the value of the given header, and is case sensitive.
  */
 class ExactMatchNegotiator implements ContentNegotiator {
+  private static final Pattern COMMA = Pattern.compile(",[ ]*");
+
   public boolean shouldCall(Map<String, String> negotiations, Request request) {
     Multimap<String, String> headers = request.headers();
     for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
@@ -27,7 +30,7 @@ class ExactMatchNegotiator implements ContentNegotiator {
         String value = headerValues.next();
 
         // Everything has to pass for us to say OK.
-        shouldFire |= Iterables.contains(Arrays.asList(value.split(",[ ]*")),
+        shouldFire |= Iterables.contains(Arrays.asList(COMMA.split(value)),
             negotiate.getValue());
       }
       if (!shouldFire) {
@@ -0,0 +1,123 @@
+package com.google.sitebricks.http.negotiate;
+
+import com.google.common.collect.ImmutableList;
+import net.jcip.annotations.Immutable;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One element of an Accept-style header (or of a negotiation annotation), for example
+ * {@code text/html;q=0.7}. Elements that are not media types, such as {@code thing},
+ * are kept as plain tokens and match only themselves, case sensitively.
+ */
+@Immutable
+class MediaRange {
+  // Lifted TOKEN, TYPE_PATTERN  from com.google.gdata.util
+  private static final String TOKEN =
+    "[\\p{ASCII}&&[^\\p{Cntrl} ;/=\\[\\]\\(\\)\\<\\>\\@\\,\\:\\\"\\?\\=]]+";
+
+  private static final Pattern TYPE_PATTERN = Pattern.compile(
+    "(" + TOKEN + ")" +         // mediatype (G1)
+    "/" +                       // separator
+    "(" + TOKEN + ")");         // subtype (G2)
+
+  private static final Pattern COMMA = Pattern.compile(",\\s*");
+  private static final String WILDCARD = "*";
+
+  private final String token;
+  @Nullable private final String type;
+  @Nullable private final String subtype;
+  private final float quality;
+
+  private MediaRange(String token, String type, String subtype, float quality) {
+    this.token = token;
+    this.type = type;
+    this.subtype = subtype;
+    this.quality = quality;
+  }
+
+  /**
+   * Parses a comma separated list of ranges, skipping any empty ones.
+   */
+  static List<MediaRange> parseAll(String value) {
+    ImmutableList.Builder<MediaRange> ranges = ImmutableList.builder();
+    for (String element : COMMA.split(value)) {
+      MediaRange range = parse(element);
+      if (null != range)
+        ranges.add(range);
+    }
+
+    return ranges.build();
+  }
+
+  @Nullable
+  static MediaRange parse(String element) {
+    String[] parts = element.split(";");
+    String token = parts[0].trim();
+    if (token.isEmpty())
+      return null;
+
+    float quality = 1;
+    for (int i = 1; i < parts.length; i++) {
+      String parameter = parts[i].trim();
+      if (parameter.startsWith("q=")) {
+        try {
+          quality = Math.max(0, Math.min(1, Float.parseFloat(parameter.substring(2))));
+        } catch (NumberFormatException e) {
+          // Ignore malformed weights, the range is still acceptable.
+        }
+      }
+    }
+
+    Matcher mediaType = TYPE_PATTERN.matcher(token);
+    if (mediaType.matches())
+      return new MediaRange(token,
+          mediaType.group(1).toLowerCase(Locale.ENGLISH),
+          mediaType.group(2).toLowerCase(Locale.ENGLISH),
+          quality);
+
+    return new MediaRange(token, null, null, quality);
+  }
+
+  boolean isMediaType() {
+    return null != type;
+  }
+
+  String type() {
+    return type;
+  }
+
+  float quality() {
+    return quality;
+  }
+
+  /**
+   * @return True if this range accepts the given one. Media types match on either side's
+   * wildcards, while plain tokens must be identical.
+   */
+  boolean matches(MediaRange other) {
+    if (!isMediaType() || !other.isMediaType())
+      return !isMediaType() && !other.isMediaType() && token.equals(other.token);
+
+    return (WILDCARD.equals(type) || WILDCARD.equals(other.type) || type.equals(other.type))
+        && (WILDCARD.equals(subtype) || WILDCARD.equals(other.subtype)
+            || subtype.equals(other.subtype));
+  }
+
+  // text/html is more specific than text/*, which is more specific than */*.
+  int specificity() {
+    if (!isMediaType())
+      return 3;
+
+    return (WILDCARD.equals(type) ? 0 : 2) + (WILDCARD.equals(subtype) ? 0 : 1);
+  }
+
+  @Override
+  public String toString() {
+    return token + ";q=" + quality;
+  }
+}
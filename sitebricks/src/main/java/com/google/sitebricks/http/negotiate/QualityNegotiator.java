@@ -0,0 +1,22 @@
+package com.google.sitebricks.http.negotiate;
+
+import com.google.sitebricks.headless.Request;
+
+import java.util.Map;
+
+/**
+ * A {@link ContentNegotiator} that can also say how well a request handler suits the
+ * given http request, so that the best of several candidates is called rather than
+ * the first that passes. For Accept-style headers, this is the weight (q-value) the
+ * client gave to the most specific media range that matches the handler.
+ */
+public interface QualityNegotiator extends ContentNegotiator {
+
+  /**
+   * @param negotiations As for {@link #shouldCall}.
+   * @param request The current http request to match against.
+   * @return A value from 0 to 1, where 0 means the handler should not be called (that is,
+   *  where {@link #shouldCall} would return false), and higher values are preferred.
+   */
+  float quality(Map<String, String> negotiations, Request request);
+}
@@ -1,11 +1,14 @@
 package com.google.sitebricks.http.negotiate;
 
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Multimap;
 import com.google.sitebricks.headless.Request;
 
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
 
 /**
  * ContentNegotiator that supports one regex match value, for example
@@ -14,6 +17,10 @@ import java.util.Map;
  * match requests with HTTP Referer headers from google, yahoo, or bing
  */
 public class RegexNegotiator implements ContentNegotiator {
+  private static final Pattern COMMA = Pattern.compile(",[ ]*");
+
+  // Negotiation values come from annotations, so there are only ever a few of them.
+  private final ConcurrentMap<String, Pattern> patterns = new MapMaker().makeMap();
 
   public boolean shouldCall(Map<String, String> negotiations, Request request) {
     Multimap<String, String> headers = request.headers();
@@ -23,16 +30,16 @@ public class RegexNegotiator implements ContentNegotiator {
       if (null == collectionOfHeader)
         continue;
       Iterator<String> headerValues = collectionOfHeader.iterator();
-      String match = negotiate.getValue();
+      Pattern match = compile(negotiate.getValue());
 
       boolean shouldFire = false;       // Guaranteed never to throw NPE
       while (headerValues.hasNext()) {
         String value = headerValues.next();
 
-        shouldFire |= value.matches(match);
+        shouldFire |= match.matcher(value).matches();
         
-        for (String val: value.split(",[ ]*")) {
-         shouldFire |= val.matches(match);
+        for (String val: COMMA.split(value)) {
+         shouldFire |= match.matcher(val).matches();
         }
       }
       if (!shouldFire) {
@@ -41,4 +48,14 @@ public class RegexNegotiator implements ContentNegotiator {
     }
     return true;
   }
+
+  private Pattern compile(String regex) {
+    Pattern pattern = patterns.get(regex);
+    if (null == pattern) {
+      pattern = Pattern.compile(regex);
+      patterns.put(regex, pattern);
+    }
+
+    return pattern;
+  }
 }
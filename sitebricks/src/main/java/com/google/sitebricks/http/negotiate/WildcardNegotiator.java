@@ -1,13 +1,15 @@
 package com.google.sitebricks.http.negotiate;
 
-import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.MapMaker;
 import com.google.sitebricks.headless.Request;
 
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * ContentNegotiator that supports comma separated and wildcard matches in Accept header style
@@ -15,85 +17,101 @@ import java.util.regex.Pattern;
  * with HTTP Accept header "text/*" and {@literal @}Accept("text/*") will match incoming
  * request with headers "Accept: text/html" or "Accept: text/plain"
  *
+ * Handlers are ranked by the weight (q-value) the client gives to the most specific media
+ * range that matches them, as per RFC 7231. So given "Accept: text/*;q=0.3, text/html;q=0.7",
+ * a handler for "text/html" is preferred over one for "text/plain", and neither is called
+ * for a range weighted "q=0". Handlers for media types the client does not mention at all
+ * are still called, but are preferred least.
+ *
  * Notes:
- *   Wildcard for subtypes such as "text/*, image/*" are supported but there is no
- *   wildcard matching on the main media types.   Negotiating on other HTTP request
- *   headers where "/*" might be useful is currently undefined.
+ *   Negotiating on other HTTP request headers where "/*" might be useful is currently
+ *   undefined.
  *
  *
  */
-public class WildcardNegotiator implements ContentNegotiator {
-  // Lifted TOKEN, TYPE_PATTERN  from com.google.gdata.util
-
-  private static String TOKEN =
-    "[\\p{ASCII}&&[^\\p{Cntrl} ;/=\\[\\]\\(\\)\\<\\>\\@\\,\\:\\\"\\?\\=]]+";
-
-  private static Pattern TYPE_PATTERN = Pattern.compile(
-    "(" + TOKEN + ")" +         // mediatype (G1)
-    "/" +                       // separator
-    "(" + TOKEN + ")" +         // subtype (G2)
-    "\\s*(.*)\\s*", Pattern.DOTALL);
-
-  private HashMultimap<String, String> createMultimatch(List<String> matchlist) {
-    HashMultimap<String, String> multimatch = HashMultimap.create();
-      for (String m : matchlist) {
-        Matcher mediaType = TYPE_PATTERN.matcher(m);
-
-        if (mediaType.matches()) {
-          String type = mediaType.group(1).toLowerCase();
-          String subtype = mediaType.group(2).toLowerCase();
-          multimatch.put(type, subtype);
+public class WildcardNegotiator implements QualityNegotiator {
+  private static final float UNMENTIONED = 0.0001f;
+
+  // Clients send only a handful of distinct headers, but there's no telling what they could send.
+  private static final int MAX_CACHED_HEADERS = 256;
+
+  // Negotiation values come from annotations, so there are only ever a few of them.
+  private final ConcurrentMap<String, List<MediaRange>> negotiations = new MapMaker().makeMap();
+
+  private final LoadingCache<String, List<MediaRange>> headers = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_HEADERS)
+      .build(new CacheLoader<String, List<MediaRange>>() {
+        @Override
+        public List<MediaRange> load(String header) {
+          return MediaRange.parseAll(header);
         }
-      }
-    return multimatch;
-  }
+      });
 
   public boolean shouldCall(Map<String, String> negotiations, Request request) {
-    Multimap<String, String> headers = request.headers();
+    return quality(negotiations, request) > 0;
+  }
+
+  public float quality(Map<String, String> negotiations, Request request) {
+    float quality = 1;
     for (Map.Entry<String, String> negotiate : negotiations.entrySet()) {
 
-      Collection<String> collectionOfHeader = headers.get(negotiate.getKey());
+      Collection<String> collectionOfHeader = request.headers().get(negotiate.getKey());
       if (null == collectionOfHeader)
         continue;
-      Iterator<String> headerValues = collectionOfHeader.iterator();
-      boolean shouldFire = false;
-
-      List<String> matches = Arrays.asList(negotiate.getValue().split(",[ ]*"));
-      HashMultimap<String,String> mediaMatches = createMultimatch(matches);
-
-      while (headerValues.hasNext()) {
-        String value = headerValues.next();
-
-        List<String> values = Arrays.asList(value.split(",[ ]*"));
-        HashMultimap<String,String> mediaValues = createMultimatch(values);
-
-        if (!mediaMatches.isEmpty()) {
-          Set<String> typeIntersection = Sets.intersection(mediaMatches.keySet(), mediaValues.keySet());
-          if (typeIntersection.isEmpty()) {
-            shouldFire |= typeIntersection.isEmpty();
-          } else {
-            for (String mediaType: typeIntersection) {
-              Set<String> subtypeMatches = mediaMatches.get(mediaType);
-              Set<String> subtypeValues = mediaValues.get(mediaType);
-              
-              shouldFire |= (subtypeMatches.contains("*")
-                  || subtypeValues.contains("*")
-                  || !Sets.intersection(subtypeMatches, subtypeValues).isEmpty());
-            }
-          }
-        } else {
-          shouldFire |= !(Collections.disjoint(Arrays.asList(value.split(",[ ]*")), matches));
-        }
+
+      // Everything has to pass for us to say OK, and the weakest match decides.
+      List<MediaRange> offered = compile(negotiate.getValue());
+      float best = 0;
+      for (String value : collectionOfHeader) {
+        best = Math.max(best, quality(offered, headers.getUnchecked(value)));
       }
-      if (!shouldFire) {
-        return false;
+      if (0 == best) {
+        return 0;
       }
+
+      quality = Math.min(quality, best);
     }
-    return true;
+    return quality;
   }
-}
 
-// TODO - http://www.w3.org/Protocols/rfc2616/rfc2616-sec14.html
-//      Accept: text/*;q=0.3, text/html;q=0.7, text/html;level=1, text/html;level=2;q=0.4, */*;q=0.5
+  private List<MediaRange> compile(String negotiation) {
+    List<MediaRange> compiled = negotiations.get(negotiation);
+    if (null == compiled) {
+      compiled = MediaRange.parseAll(negotiation);
+      negotiations.put(negotiation, compiled);
+    }
 
-// TODO - other headers with slashes (but not signifying media types)
+    return compiled;
+  }
+
+  // The best weight given to any of the offered ranges by the most specific range accepting it.
+  private static float quality(List<MediaRange> offered, List<MediaRange> accepted) {
+    float best = 0;
+    boolean offersMediaTypes = false;
+    boolean mentioned = false;
+    for (MediaRange offer : offered) {
+      offersMediaTypes |= offer.isMediaType();
+
+      MediaRange match = null;
+      for (MediaRange range : accepted) {
+        if (offer.isMediaType() && offer.type().equals(range.type()))
+          mentioned = true;
+
+        if (range.matches(offer) && (null == match
+            || range.specificity() > match.specificity()
+            || (range.specificity() == match.specificity() && range.quality() > match.quality())))
+          match = range;
+      }
+
+      if (null != match) {
+        mentioned = true;
+        best = Math.max(best, match.quality());
+      }
+    }
+
+    if (0 == best && offersMediaTypes && !mentioned)
+      return UNMENTIONED;
+
+    return best;
+  }
+}
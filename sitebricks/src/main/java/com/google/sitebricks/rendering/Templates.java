@@ -1,6 +1,7 @@
 package com.google.sitebricks.rendering;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -8,9 +9,14 @@ import com.google.inject.Stage;
 import com.google.sitebricks.Renderable;
 import com.google.sitebricks.StringBuilderRespond;
 import com.google.sitebricks.compiler.Compilers;
+import com.google.sitebricks.compiler.ParallelCompiler;
+import com.google.sitebricks.routing.SystemMetrics;
 
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * @author dhanji@gmail.com (Dhanji R. Prasanna)
@@ -18,24 +24,42 @@ import java.util.concurrent.ConcurrentMap;
 @Singleton
 public class Templates {
   private final Compilers compilers;
+  private final SystemMetrics metrics;
   private final boolean reloadTemplates;
 
   private final ConcurrentMap<Class<?>, Renderable> templates = new MapMaker().makeMap();
+  private final Logger log = Logger.getLogger(Templates.class.getName());
 
   @Inject
-  public Templates(Compilers compilers, Stage stage) {
+  public Templates(Compilers compilers, SystemMetrics metrics, Stage stage) {
     this.compilers = compilers;
+    this.metrics = metrics;
     this.reloadTemplates = Stage.DEVELOPMENT == stage;
   }
 
   public void loadAll(Set<Descriptor> templates) {
-    // If in production mode, force load all the templates.
-    for (Descriptor template : templates) {
-      Renderable compiled = compilers.compile(template.clazz);
-      Preconditions.checkArgument(null != compiled, "No template found attached to: %s",
-          template.clazz);
+    // If in production mode, force load all the templates (in parallel).
+    List<ParallelCompiler.Task> loads = Lists.newArrayList();
+    for (final Descriptor template : templates) {
+      loads.add(new ParallelCompiler.Task(template.clazz) {
+        @Override
+        protected void compile() {
+          Renderable compiled = compilers.compile(template.clazz);
+          Preconditions.checkArgument(null != compiled, "No template found attached to: %s",
+              template.clazz);
 
-      this.templates.put(template.clazz, compiled);
+          Templates.this.templates.put(template.clazz, compiled);
+        }
+      });
+    }
+
+    List<RuntimeException> failures = ParallelCompiler.compileAll(loads, metrics);
+    if (!failures.isEmpty()) {
+      // Report them all at once, rather than one per restart.
+      for (RuntimeException failure : failures.subList(1, failures.size())) {
+        log.log(Level.SEVERE, "Could not load template", failure);
+      }
+      throw failures.get(0);
     }
   }
 
@@ -47,6 +71,15 @@ public class Templates {
       templates.put(clazz, compiled);
     } else {
       compiled = templates.get(clazz);
+
+      // Not loaded at startup (with lazy compilation), so load it now.
+      if (null == compiled) {
+        compiled = compilers.compile(clazz);
+        if (null != compiled) {
+          Renderable raced = templates.putIfAbsent(clazz, compiled);
+          compiled = (null == raced) ? compiled : raced;
+        }
+      }
     }
     Preconditions.checkArgument(null != compiled, "No template found attached to: %s", clazz);
 
@@ -62,6 +62,7 @@ public class DecorateWidget implements Renderable {
 
       // free some memory
       embedded.clear();
+      sbrespond.release();
     } finally {
       // we are finished with this extension
       if (previousTemplateClass == null) {
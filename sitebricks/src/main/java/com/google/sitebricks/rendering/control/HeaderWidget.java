@@ -35,7 +35,7 @@ class HeaderWidget implements Renderable {
     widgetChain.render(bound, respond);
 
     respond.withHtml()
-        .headerPlaceholder(); //TODO replace placeholder with an index?
+        .headerPlaceholder();
     respond.write("</head>");
   }
 
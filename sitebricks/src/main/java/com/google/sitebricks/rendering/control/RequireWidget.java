@@ -28,6 +28,7 @@ class RequireWidget implements Renderable {
 
     //special method interns tokens
     respond.require(inner.toString());
+    inner.release();
   }
 
   public <T extends Renderable> Set<T> collect(Class<T> clazz) {
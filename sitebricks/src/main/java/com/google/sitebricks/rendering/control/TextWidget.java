@@ -1,7 +1,9 @@
 package com.google.sitebricks.rendering.control;
 
+import com.google.sitebricks.RenderBuffers;
 import com.google.sitebricks.Renderable;
 import com.google.sitebricks.Respond;
+import com.google.sitebricks.StringBuilderRespond;
 import com.google.sitebricks.compiler.EvaluatorCompiler;
 import com.google.sitebricks.compiler.ExpressionCompileException;
 import com.google.sitebricks.compiler.Token;
@@ -17,7 +19,8 @@ import java.util.Set;
  */
 @ThreadSafe @SelfRendering
 class TextWidget implements Renderable {
-    private final List<Token> tokenizedTemplate;     //TODO store some metrics to allocate buffers later
+    private final List<Token> tokenizedTemplate;
+    private final RenderBuffers.SizeEstimate size = new RenderBuffers.SizeEstimate();
 
     TextWidget(String template, EvaluatorCompiler compiler) throws ExpressionCompileException {
 
@@ -27,13 +30,29 @@ class TextWidget implements Renderable {
 
     public void render(Object bound, Respond respond) {
 
-        //render template from tokens
-        StringBuilder builder = new StringBuilder();
+        //a page respond appends each write to its own buffer, so tokens can go straight there
+        if (respond instanceof StringBuilderRespond) {
+            for (Token token : tokenizedTemplate) {
+                respond.write(token.render(bound));
+            }
+            return;
+        }
+
+        //a lone token needs no buffer
+        if (tokenizedTemplate.size() == 1) {
+            respond.write(tokenizedTemplate.get(0).render(bound));
+            return;
+        }
+
+        //others get the whole text in one write, rendered into a pooled buffer
+        StringBuilder builder = RenderBuffers.acquire(size.get());
         for (Token token : tokenizedTemplate) {
             builder.append(token.render(bound));
         }
 
+        size.record(builder.length());
         respond.write(builder.toString());
+        RenderBuffers.release(builder);
     }
 
 
@@ -1,54 +1,84 @@
 package com.google.sitebricks.rendering.resource;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.TimeZone;
+import java.util.regex.Pattern;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
 
+import javax.servlet.http.HttpServletResponse;
+
+import net.jcip.annotations.Immutable;
 import net.jcip.annotations.ThreadSafe;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.MapMaker;
-import com.google.common.io.CharStreams;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.inject.Stage;
 import com.google.sitebricks.Export;
 import com.google.sitebricks.Renderable;
 import com.google.sitebricks.Respond;
+import com.google.sitebricks.client.transport.Raw;
+import com.google.sitebricks.headless.Reply;
+import com.google.sitebricks.headless.Request;
 
 /**
+ * Serves static resources exported with {@link Export} from the classpath. Each
+ * resource is read once, on first request, and kept in memory along with gzip and
+ * deflate encodings of it (where they are smaller). Conditional requests are
+ * answered with a 304 if the client's copy is current.
+ * <p>
+ * In {@link Stage#DEVELOPMENT} resources are read afresh on every request instead,
+ * so that edits show up without a restart (as templates do).
+ *
  * @author Dhanji R. Prasanna (dhanji@gmail com)
  */
 @ThreadSafe
 @Singleton
 class ClasspathResourcesService implements ResourcesService {
   private final Map<String, Resource> resources = new MapMaker().makeMap();
-
-  private static final AtomicReference<Map<String, String>> mimes =
-      new AtomicReference<Map<String, String>>();
+  private final boolean reloadResources;
 
   private static final String DEFAULT_MIME = "__defaultMimeType";
+  private static final String HTTP_DATE = "EEE, dd MMM yyyy HH:mm:ss zzz";
 
-  public ClasspathResourcesService() {
-    if (null == mimes.get()) {
-      final Properties properties = new Properties();
-      try {
-        properties.load(
-            ClasspathResourcesService.class.getResourceAsStream("mimetypes.properties"));
-      } catch (IOException e) {
-        throw new ResourceLoadingException("Can't find mimetypes.properties", e);
-      }
-
-      //noinspection unchecked
-      mimes.compareAndSet(null, (Map) properties);
-    }
+  @Inject
+  public ClasspathResourcesService(Stage stage) {
+    this.reloadResources = Stage.DEVELOPMENT == stage;
   }
 
   public void add(Class<?> clazz, Export export) {
     resources.put(export.at(), new Resource(export, clazz));
   }
 
+  public Reply<?> serve(Request<String> request) {
+    final Resource resource = resources.get(request.path());
+
+    //nothing registered
+    if (null == resource) {
+      return null;
+    }
+
+    return contentOf(resource).replyTo(request);
+  }
+
+  @Deprecated
   public Respond serve(String uri) {
     final Resource resource = resources.get(uri);
 
@@ -57,20 +87,56 @@ class ClasspathResourcesService implements ResourcesService {
       return null;
     }
 
-    //load and render resource to responder
-    return new StaticResourceRespond(resource);
+    return new StaticResourceRespond(resource.mimeType, contentOf(resource));
   }
 
+  private Content contentOf(Resource resource) {
+    return reloadResources ? resource.load() : resource.content();
+  }
 
   static String mimeOf(String file) {
-    final Map<String, String> mimeTypes = mimes.get();
-    for (Map.Entry<String, String> mime : mimeTypes.entrySet()) {
-      if (file.matches(mime.getKey()))
-        return mime.getValue();
+    for (MimeType mime : MimeTypes.PATTERNS) {
+      if (mime.pattern.matcher(file).matches())
+        return mime.type;
     }
 
     //no match, use the default?
-    return mimeTypes.get(DEFAULT_MIME);
+    return MimeTypes.DEFAULT;
+  }
+
+  // Loaded on first use. Initializing the class publishes both fields to every thread at once.
+  private static class MimeTypes {
+    private static final List<MimeType> PATTERNS;
+    private static final String DEFAULT;
+
+    static {
+      final Properties properties = new Properties();
+      try {
+        properties.load(
+            ClasspathResourcesService.class.getResourceAsStream("mimetypes.properties"));
+      } catch (IOException e) {
+        throw new ResourceLoadingException("Can't find mimetypes.properties", e);
+      }
+
+      ImmutableList.Builder<MimeType> patterns = ImmutableList.builder();
+      for (Map.Entry<Object, Object> mime : properties.entrySet()) {
+        patterns.add(
+            new MimeType(Pattern.compile((String) mime.getKey()), (String) mime.getValue()));
+      }
+      PATTERNS = patterns.build();
+      DEFAULT = properties.getProperty(DEFAULT_MIME);
+    }
+  }
+
+  @Immutable
+  private static class MimeType {
+    private final Pattern pattern;
+    private final String type;
+
+    private MimeType(Pattern pattern, String type) {
+      this.pattern = pattern;
+      this.type = type;
+    }
   }
 
   private static class Resource {
@@ -78,6 +144,9 @@ class ClasspathResourcesService implements ResourcesService {
     private final Class<?> clazz;
     private final String mimeType;
 
+    // Loaded on first request.
+    private volatile Content content;
+
     private Resource(Export export, Class<?> clazz) {
       this.export = export;
       this.clazz = clazz;
@@ -85,6 +154,38 @@ class ClasspathResourcesService implements ResourcesService {
       this.mimeType = mimeOf(export.resource());
     }
 
+    Content content() {
+      Content content = this.content;
+      if (null == content) {
+        // Racing threads may load it twice, but will load the same thing.
+        content = load();
+        this.content = content;
+      }
+
+      return content;
+    }
+
+    private Content load() {
+      final URL url = clazz.getResource(export.resource());
+      if (null == url)
+        throw new ResourceLoadingException(
+            "Couldn't find static resource (did you spell it right?) specified by: " + this);
+
+      try {
+        URLConnection connection = url.openConnection();
+        InputStream stream = connection.getInputStream();
+        try {
+          return new Content(mimeType, ByteStreams.toByteArray(stream),
+              connection.getLastModified());
+        } finally {
+          stream.close();
+        }
+      } catch (IOException e) {
+        throw new ResourceLoadingException(
+            "Error loading static resource specified by: " + this, e);
+      }
+    }
+
     public String toString() {
       return new StringBuilder()
           .append("Resource {")
@@ -97,41 +198,160 @@ class ClasspathResourcesService implements ResourcesService {
     }
   }
 
-  private static class StaticResourceRespond implements Respond {
-    private final Resource resource;
+  /**
+   * The bytes of a static resource, in each of the encodings we serve it in.
+   */
+  @Immutable
+  private static class Content {
+    private final String mimeType;
+    private final Encoding identity;
+    private final Encoding gzip;
+    private final Encoding deflate;
+    private final long lastModified;
+    private final String lastModifiedHeader;
+
+    Content(String mimeType, byte[] bytes, long lastModified) throws IOException {
+      this.mimeType = mimeType;
+
+      // Resources with no known timestamp are taken to date from when they were first served.
+      if (lastModified <= 0)
+        lastModified = System.currentTimeMillis();
+
+      // HTTP dates are only accurate to the second.
+      this.lastModified = lastModified / 1000 * 1000;
+      this.lastModifiedHeader = httpDateFormat().format(new Date(this.lastModified));
+
+      String hash = Hashing.md5().hashBytes(bytes).toString();
+      this.identity = new Encoding(null, bytes, hash);
+      this.gzip = compressed("gzip", bytes, hash);
+      this.deflate = compressed("deflate", bytes, hash);
+    }
 
-    public StaticResourceRespond(Resource resource) {
-      this.resource = resource;
+    // Only keeps an encoding that actually saves something (images, say, seldom do).
+    private static Encoding compressed(String name, byte[] bytes, String hash) throws IOException {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length);
+      OutputStream out = "gzip".equals(name)
+          ? new GZIPOutputStream(buffer)
+          : new DeflaterOutputStream(buffer);
+      out.write(bytes);
+      out.close();
+
+      return (buffer.size() < bytes.length)
+          ? new Encoding(name, buffer.toByteArray(), hash + '-' + name)
+          : null;
     }
 
-    public String getContentType() {
-      return resource.mimeType;
+    Reply<?> replyTo(Request<String> request) {
+      Encoding encoding = negotiate(request.header("Accept-Encoding"));
+
+      ImmutableMap.Builder<String, String> headers = ImmutableMap.builder();
+      headers.put("ETag", encoding.etag);
+      headers.put("Last-Modified", lastModifiedHeader);
+      if (null != gzip || null != deflate)
+        headers.put("Vary", "Accept-Encoding");
+
+      if (isCurrent(request, encoding)) {
+        return Reply.saying()
+            .status(HttpServletResponse.SC_NOT_MODIFIED)
+            .type(mimeType)
+            .headers(headers.build());
+      }
+
+      if (null != encoding.name)
+        headers.put("Content-Encoding", encoding.name);
+      headers.put("Content-Length", Integer.toString(encoding.bytes.length));
+
+      return Reply.with(encoding.bytes)
+          .as(Raw.class)
+          .type(mimeType)
+          .headers(headers.build());
     }
 
-    @Override
-    public String toString() {
-      //load and render
-      List list;
-      try {
-        final InputStream stream = resource.clazz.getResourceAsStream(resource.export.resource());
+    // Picks gzip over deflate over identity, as the client allows.
+    private Encoding negotiate(String acceptEncoding) {
+      if (null == acceptEncoding)
+        return identity;
+
+      boolean acceptsGzip = false;
+      boolean acceptsDeflate = false;
+      for (String coding : acceptEncoding.split(",")) {
+        String[] parameters = coding.split(";");
+        String name = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+        boolean accepted = true;
+        for (int i = 1; i < parameters.length; i++) {
+          String parameter = parameters[i].trim();
+          if (parameter.startsWith("q=")) {
+            try {
+              accepted = Float.parseFloat(parameter.substring(2)) > 0;
+            } catch (NumberFormatException e) {
+              accepted = false;
+            }
+          }
+        }
+
+        if ("gzip".equals(name) || "x-gzip".equals(name) || "*".equals(name))
+          acceptsGzip |= accepted;
+        else if ("deflate".equals(name))
+          acceptsDeflate |= accepted;
+      }
 
-        if (null == stream)
-          throw new ResourceLoadingException(
-              "Couldn't find static resource (did you spell it right?) specified by: "
-                  + resource);
+      if (acceptsGzip && null != gzip)
+        return gzip;
+      if (acceptsDeflate && null != deflate)
+        return deflate;
 
-        list = CharStreams.readLines(new InputStreamReader(stream));
-      } catch (IOException e) {
-        throw new ResourceLoadingException(
-            "Error loading static resource specified by: " + resource, e);
+      return identity;
+    }
+
+    // If-None-Match takes precedence over If-Modified-Since, when both are sent.
+    private boolean isCurrent(Request<String> request, Encoding encoding) {
+      String ifNoneMatch = request.header("If-None-Match");
+      if (null != ifNoneMatch) {
+        for (String etag : ifNoneMatch.split(",")) {
+          etag = etag.trim();
+          if (etag.startsWith("W/"))
+            etag = etag.substring(2);
+
+          if ("*".equals(etag) || encoding.etag.equals(etag))
+            return true;
+        }
+
+        return false;
       }
 
-      StringBuilder buffer = new StringBuilder();
-      for (Object o : list) {
-        buffer.append((String) o);
+      String ifModifiedSince = request.header("If-Modified-Since");
+      if (null != ifModifiedSince) {
+        try {
+          return lastModified <= httpDateFormat().parse(ifModifiedSince).getTime();
+        } catch (ParseException e) {
+          // Ignore malformed dates, as per RFC 2616.
+        }
       }
 
-      return buffer.toString();
+      return false;
+    }
+  }
+
+  /**
+   * Renders a static resource as text, for callers of the deprecated {@link #serve(String)}.
+   */
+  private static class StaticResourceRespond implements Respond {
+    private final String mimeType;
+    private final Content content;
+
+    public StaticResourceRespond(String mimeType, Content content) {
+      this.mimeType = mimeType;
+      this.content = content;
+    }
+
+    public String getContentType() {
+      return mimeType;
+    }
+
+    @Override
+    public String toString() {
+      // Decoded as it always was, with the platform charset.
+      return new String(content.identity.bytes);
     }
 
     public void write(String text) {
@@ -186,10 +406,28 @@ class ClasspathResourcesService implements ResourcesService {
     public List<String> getErrors() {
         return null;
     }
-  
+
     @Override
     public void setErrors(List<String> errors) {
     }
-  
+  }
+
+  @Immutable
+  private static class Encoding {
+    private final String name;
+    private final byte[] bytes;
+    private final String etag;
+
+    Encoding(String name, byte[] bytes, String hash) {
+      this.name = name;
+      this.bytes = bytes;
+      this.etag = '"' + hash + '"';
+    }
+  }
+
+  private static SimpleDateFormat httpDateFormat() {
+    SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE, Locale.US);
+    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+    return format;
   }
 }
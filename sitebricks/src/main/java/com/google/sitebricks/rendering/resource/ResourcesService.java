@@ -1,8 +1,10 @@
 package com.google.sitebricks.rendering.resource;
 
 import com.google.inject.ImplementedBy;
-import com.google.sitebricks.Respond;
 import com.google.sitebricks.Export;
+import com.google.sitebricks.Respond;
+import com.google.sitebricks.headless.Reply;
+import com.google.sitebricks.headless.Request;
 
 /**
  * @author Dhanji R. Prasanna (dhanji@gmail com)
@@ -11,5 +13,18 @@ import com.google.sitebricks.Export;
 public interface ResourcesService {
     void add(Class<?> clazz, Export export);
 
+    /**
+     * @return A reply with the static resource exported at the request's path (or a 304,
+     *     if the client's copy is current), or null if nothing is exported there.
+     */
+    Reply<?> serve(Request<String> request);
+
+    /**
+     * @return The text of the static resource exported at the given uri, or null if
+     *     nothing is exported there.
+     * @deprecated Use {@link #serve(Request)}, which sends the resource's bytes as they
+     *     are, compressed where the client allows, and answers conditional requests.
+     */
+    @Deprecated
     Respond serve(String uri);
 }
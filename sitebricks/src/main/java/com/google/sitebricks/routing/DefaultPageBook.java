@@ -6,6 +6,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -24,7 +25,6 @@ import org.jetbrains.annotations.Nullable;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.HashMultimap;
-import com.google.common.collect.Lists;
 import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
@@ -32,6 +32,7 @@ import com.google.inject.BindingAnnotation;
 import com.google.inject.Inject;
 import com.google.inject.Injector;
 import com.google.inject.Key;
+import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.name.Named;
@@ -52,6 +53,7 @@ import com.google.sitebricks.http.Select;
 import com.google.sitebricks.http.Trace;
 import com.google.sitebricks.http.negotiate.ContentNegotiator;
 import com.google.sitebricks.http.negotiate.Negotiation;
+import com.google.sitebricks.http.negotiate.QualityNegotiator;
 import com.google.sitebricks.rendering.Strings;
 import com.google.sitebricks.rendering.control.DecorateWidget;
 import com.google.sitebricks.transport.Form;
@@ -67,9 +69,11 @@ public class DefaultPageBook implements PageBook {
 
   @GuardedBy("lock") // All three following fields
   private final Map<String, List<PageTuple>> pages = Maps.newHashMap();
-  private final List<PageTuple> universalMatchingPages = Lists.newArrayList();
   private final Map<String, PageTuple> pagesByName = Maps.newHashMap();
 
+  // Compiled routing index over every registered uri template (written under lock).
+  private final PathTrie<PageTuple> routes = new PathTrie<PageTuple>();
+
   private final ConcurrentMap<Class<?>, PageTuple> classToPageMap =
       new MapMaker()
           .weakKeys()
@@ -149,11 +153,10 @@ public class DefaultPageBook implements PageBook {
     // Is Universal?
     synchronized (lock) {
       String key = firstPathElement(page.getUri());
-      if (isVariable(key)) {
-        universalMatchingPages.add(page);
-      } else {
+      if (!isVariable(key)) {
         multiput(pages, key, page);
       }
+      routes.add(page.getUri(), page);
     }
 
     // Actions are not backed by classes.
@@ -198,11 +201,10 @@ public class DefaultPageBook implements PageBook {
 
     synchronized (lock) {
       //is universal? (i.e. first element is a variable)
-      if (isVariable(key))
-        universalMatchingPages.add(pageTuple);
-      else {
+      if (!isVariable(key)) {
         multiput(pages, key, pageTuple);
       }
+      routes.add(uri, pageTuple);
     }
 
     // Does not need to be inside lock, as it is concurrent.
@@ -268,28 +270,8 @@ public class DefaultPageBook implements PageBook {
 
   @Nullable
   public Page get(String uri) {
-    final String key = firstPathElement(uri);
-
-    List<PageTuple> tuple = pages.get(key);
-
-    //first try static first piece
-    if (null != tuple) {
-
-      //first try static first piece
-      for (PageTuple pageTuple : tuple) {
-        if (pageTuple.matcher.matches(uri))
-          return pageTuple;
-      }
-    }
-
-    //now try dynamic first piece (how can we make this faster?)
-    for (PageTuple pageTuple : universalMatchingPages) {
-      if (pageTuple.matcher.matches(uri))
-        return pageTuple;
-    }
-
-    //nothing matched
-    return null;
+    // Static segments are preferred over variables, first registered wins on a tie.
+    return routes.match(uri);
   }
 
   public Page forName(String name) {
@@ -566,14 +548,12 @@ public class DefaultPageBook implements PageBook {
         return null;
       }
 
-      // NOTE(dhanji): This slurps the entire Map. It could potentially be optimized...
-      Multimap<String, String> params = request.params();
-
       // Extract injectable pieces of the pathInfo.
       final Map<String, String> map = matcher.findMatches(pathInfo);
 
-      // Find method(s) to dispatch to.
-      Collection<String> events = params.get(select.value());
+      // Find method(s) to dispatch to. Params are a view over the servlet request (the same
+      // one the request binder used), so this is a single lookup rather than a copy.
+      Collection<String> events = request.params().get(select.value());
       if (null != events) {
         boolean matched = false;
         for (String event : events) {
@@ -582,12 +562,10 @@ public class DefaultPageBook implements PageBook {
           Object redirect = null;
 
           if (null != tuples) {
-            for (Action action : tuples) {
-              if (action.shouldCall(request)) {
-                matched = true;
-                redirect = action.call(request, page, map);
-                break;
-              }
+            Action action = select(tuples, request);
+            if (null != action) {
+              matched = true;
+              redirect = action.call(request, page, map);
             }
           }
 
@@ -619,14 +597,38 @@ public class DefaultPageBook implements PageBook {
       Collection<Action> tuple = methods.get(httpMethod);
       Object redirect = null;
       if (null != tuple) {
-        for (Action action : tuple) {
-          if (action.shouldCall(request)) {
-            redirect = action.call(request, page, pathMap);
+        Action action = select(tuple, request);
+        if (null != action)
+          redirect = action.call(request, page, pathMap);
+      }
+      return redirect;
+    }
+
+    /**
+     * Picks the handler that best suits the request, in one pass. Handlers whose negotiator
+     * can rank them are compared by quality, others count as a perfect match if they should
+     * be called at all. Ties go to the first handler seen.
+     */
+    @Nullable
+    private static Action select(Collection<Action> actions, Request request) {
+      Action best = null;
+      float bestQuality = 0;
+      for (Action action : actions) {
+        float quality = (action instanceof MethodTuple)
+            ? ((MethodTuple) action).quality(request)
+            : (action.shouldCall(request) ? 1 : 0);
+
+        if (quality > bestQuality) {
+          best = action;
+          bestQuality = quality;
+
+          // Nothing can beat this one.
+          if (quality >= 1)
             break;
-          }
         }
       }
-      return redirect;
+
+      return best;
     }
 
     public Class<?> pageClass() {
@@ -684,9 +686,14 @@ public class DefaultPageBook implements PageBook {
   }
 
   private static class MethodTuple implements Action {
+    private static final Object[] NO_ARGS = new Object[0];
+
     private final Method method;
-    private final Injector injector;
-    private final List<Object> args;
+    private final EventInvokers.Invoker invoker;
+    private final Object[] args;
+
+    // Providers for injected arguments, resolved up front (null in other slots).
+    private final Provider<?>[] providers;
     private final Map<String, String> negotiates;
     private final ContentNegotiator negotiator;
 	  private final TypeConverter converter;
@@ -694,15 +701,20 @@ public class DefaultPageBook implements PageBook {
 
     private MethodTuple(Method method, Injector injector) {
       this.method = method;
-      this.injector = injector;
-      this.args = reflect(method);
+      this.invoker = EventInvokers.of(method);
+      this.args = reflect(method, injector).toArray();
+      this.providers = new Provider<?>[args.length];
+      for (int i = 0; i < args.length; i++) {
+        if (args[i] instanceof Key)
+          providers[i] = injector.getProvider((Key<?>) args[i]);
+      }
       this.negotiates = discoverNegotiates(method, injector);
       this.negotiator = injector.getInstance(ContentNegotiator.class);
       this.converter = injector.getInstance(TypeConverter.class);
       this.returnAs = method.getAnnotation(As.class);
     }
 
-    private List<Object> reflect(Method method) {
+    private List<Object> reflect(Method method, Injector injector) {
 
       final Annotation[][] annotationsGrid = method.getParameterAnnotations();
       
@@ -785,24 +797,34 @@ public class DefaultPageBook implements PageBook {
       return negotiator.shouldCall(negotiates, request);
     }
 
+    /**
+     * @return How well this method tuple suits the request, from 0 (not at all) to 1.
+     */
+    float quality(Request request) {
+      if (negotiator instanceof QualityNegotiator)
+        return ((QualityNegotiator) negotiator).quality(negotiates, request);
+
+      return shouldCall(request) ? 1 : 0;
+    }
+
 
     @Override
     public Object call(Request request, Object page, Map<String, String> map) throws IOException {
-      List<Object> arguments = new ArrayList<Object>();
-      for (Object arg : args) {
+      Object[] arguments = (args.length == 0) ? NO_ARGS : new Object[args.length];
+      for (int i = 0; i < arguments.length; i++) {
+        Object arg = args[i];
         if (arg instanceof AsParameter) {
           AsParameter as = (AsParameter) arg;
-          arguments.add(request.read(as.type).as(as.transport));
+          arguments[i] = request.read(as.type).as(as.transport);
         } else if (arg instanceof NamedParameter) {
           NamedParameter np = (NamedParameter) arg;
           String text = map.get(np.getName());
-          Object value = converter.convert(text, np.getType());
-          arguments.add(value);
+          arguments[i] = converter.convert(text, np.getType());
         } else
-          arguments.add(injector.getInstance((Key<?>) arg));
+          arguments[i] = providers[i].get();
       }
 
-      Object result = call(page, method, arguments.toArray());
+      Object result = call(page, arguments);
       if (returnAs != null && result instanceof Reply) {
         ((Reply) result).as(returnAs.value());
       }
@@ -814,10 +836,9 @@ public class DefaultPageBook implements PageBook {
       return this.method;
     }
 
-    private static Object call(Object page, final Method method,
-                               Object[] args) {
+    private Object call(Object page, Object[] args) {
       try {
-        return method.invoke(page, args);
+        return invoker.invoke(page, args);
       } catch (IllegalAccessException e) {
         throw new EventDispatchException(
             "Could not access event method (appears to be a security problem): " + method, e);
@@ -901,7 +922,7 @@ public class DefaultPageBook implements PageBook {
 
     @Override
     public String toString() {
-        return "MethodTuple [method=" + method + ", args=" + args + "]";
+        return "MethodTuple [method=" + method + ", args=" + Arrays.toString(args) + "]";
     }
 
   }
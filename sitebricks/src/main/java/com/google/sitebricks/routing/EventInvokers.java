@@ -0,0 +1,186 @@
+package com.google.sitebricks.routing;
+
+import com.google.sitebricks.GeneratedClasses;
+import net.jcip.annotations.Immutable;
+import org.mvel2.asm.ClassWriter;
+import org.mvel2.asm.Label;
+import org.mvel2.asm.MethodVisitor;
+import org.mvel2.asm.Opcodes;
+import org.mvel2.asm.Type;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Makes invokers for event handler methods. Where a handler, its class and its parameter
+ * types are all public, the invoker is a class generated for that handler, which calls it
+ * directly. Otherwise handlers are called reflectively, as before. Either way, invokers fail
+ * just as {@link Method#invoke} does.
+ */
+public final class EventInvokers {
+  private static final Logger log = Logger.getLogger(EventInvokers.class.getName());
+
+  private static final AtomicInteger invokerCount = new AtomicInteger();
+
+  private EventInvokers() {
+  }
+
+  /**
+   * Calls one event handler on a page. Anything the handler throws is wrapped in an
+   * {@link InvocationTargetException}, and arguments of the wrong type are rejected with an
+   * {@link IllegalArgumentException}, as with {@link Method#invoke}.
+   * Implemented by generated classes, do NOT implement.
+   */
+  public static interface Invoker {
+    Object invoke(Object page, Object[] args)
+        throws InvocationTargetException, IllegalAccessException;
+  }
+
+  static Invoker of(Method method) {
+    Invoker invoker = generate(method);
+    return (null == invoker) ? new ReflectiveInvoker(method) : new CheckedInvoker(invoker);
+  }
+
+  private static Invoker generate(Method method) {
+    if (Modifier.isStatic(method.getModifiers()) || !Modifier.isPublic(method.getModifiers())
+        || !GeneratedClasses.isPublic(method.getDeclaringClass()))
+      return null;
+
+    // The invoker casts each argument, so it needs to be able to see their types.
+    for (Class<?> type : method.getParameterTypes()) {
+      while (type.isArray())
+        type = type.getComponentType();
+      if (!type.isPrimitive() && !GeneratedClasses.isPublic(type))
+        return null;
+    }
+
+    ClassLoader parent = method.getDeclaringClass().getClassLoader();
+    if (null == parent || !GeneratedClasses.canSee(parent, Invoker.class))
+      return null;
+
+    String name = EventInvokers.class.getName() + "$Generated" + invokerCount.incrementAndGet();
+    try {
+      return (Invoker) GeneratedClasses.define(parent, name, bytecodeFor(name, method))
+          .newInstance();
+    } catch (Exception e) {
+      log.log(Level.FINE, "Could not generate an invoker for " + method, e);
+    } catch (LinkageError e) {
+      log.log(Level.FINE, "Could not generate an invoker for " + method, e);
+    }
+
+    return null;
+  }
+
+  // public final class <name> implements Invoker {
+  //   public Object invoke(Object page, Object[] args) {
+  //     Page p = (Page) page; A a = (A) args[0]; ...
+  //     try { return p.handler(a, ...); } catch (Throwable t) { throw new InvocationTargetException(t); }
+  //   }
+  // }
+  private static byte[] bytecodeFor(String name, Method method) {
+    String internalName = name.replace('.', '/');
+    ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    writer.visit(Opcodes.V1_5, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER,
+        internalName, null, "java/lang/Object",
+        new String[] { Type.getInternalName(Invoker.class) });
+
+    MethodVisitor init = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+    init.visitCode();
+    init.visitVarInsn(Opcodes.ALOAD, 0);
+    init.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V");
+    init.visitInsn(Opcodes.RETURN);
+    init.visitMaxs(0, 0);
+    init.visitEnd();
+
+    MethodVisitor invoke = writer.visitMethod(Opcodes.ACC_PUBLIC, "invoke",
+        "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null,
+        new String[] { "java/lang/reflect/InvocationTargetException" });
+    invoke.visitCode();
+
+    // Only the call itself is covered, a bad argument is not the handler's exception.
+    Label callStart = new Label();
+    Label callEnd = new Label();
+    Label handlerThrew = new Label();
+    invoke.visitTryCatchBlock(callStart, callEnd, handlerThrew, "java/lang/Throwable");
+
+    String owner = Type.getInternalName(method.getDeclaringClass());
+    invoke.visitVarInsn(Opcodes.ALOAD, 1);
+    invoke.visitTypeInsn(Opcodes.CHECKCAST, owner);
+
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    for (int i = 0; i < parameterTypes.length; i++) {
+      invoke.visitVarInsn(Opcodes.ALOAD, 2);
+      invoke.visitLdcInsn(i);
+      invoke.visitInsn(Opcodes.AALOAD);
+      GeneratedClasses.unbox(invoke, parameterTypes[i]);
+    }
+
+    invoke.visitLabel(callStart);
+    invoke.visitMethodInsn(
+        method.getDeclaringClass().isInterface() ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL,
+        owner, method.getName(), Type.getMethodDescriptor(method));
+    invoke.visitLabel(callEnd);
+
+    Class<?> returnType = method.getReturnType();
+    if (void.class == returnType)
+      invoke.visitInsn(Opcodes.ACONST_NULL);
+    else
+      GeneratedClasses.box(invoke, returnType);
+    invoke.visitInsn(Opcodes.ARETURN);
+
+    String wrapper = Type.getInternalName(InvocationTargetException.class);
+    invoke.visitLabel(handlerThrew);
+    invoke.visitVarInsn(Opcodes.ASTORE, 3);
+    invoke.visitTypeInsn(Opcodes.NEW, wrapper);
+    invoke.visitInsn(Opcodes.DUP);
+    invoke.visitVarInsn(Opcodes.ALOAD, 3);
+    invoke.visitMethodInsn(Opcodes.INVOKESPECIAL, wrapper, "<init>", "(Ljava/lang/Throwable;)V");
+    invoke.visitInsn(Opcodes.ATHROW);
+    invoke.visitMaxs(0, 0);
+    invoke.visitEnd();
+
+    writer.visitEnd();
+    return writer.toByteArray();
+  }
+
+  // Anything a generated invoker throws itself comes from a page or argument of the wrong type.
+  @Immutable
+  private static class CheckedInvoker implements Invoker {
+    private final Invoker generated;
+
+    private CheckedInvoker(Invoker generated) {
+      this.generated = generated;
+    }
+
+    public Object invoke(Object page, Object[] args)
+        throws InvocationTargetException, IllegalAccessException {
+      try {
+        return generated.invoke(page, args);
+      } catch (ClassCastException e) {
+        throw new IllegalArgumentException("argument type mismatch", e);
+      } catch (NullPointerException e) {
+        throw new IllegalArgumentException(e);
+      } catch (ArrayIndexOutOfBoundsException e) {
+        throw new IllegalArgumentException("wrong number of arguments", e);
+      }
+    }
+  }
+
+  @Immutable
+  private static class ReflectiveInvoker implements Invoker {
+    private final Method method;
+
+    private ReflectiveInvoker(Method method) {
+      this.method = method;
+    }
+
+    public Object invoke(Object page, Object[] args)
+        throws InvocationTargetException, IllegalAccessException {
+      return method.invoke(page, args);
+    }
+  }
+}
@@ -1,15 +1,27 @@
 package com.google.sitebricks.routing;
 
 import com.google.common.collect.MapMaker;
+import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.sitebricks.Bricks;
 import com.google.sitebricks.compiler.CompileError;
+import com.google.sitebricks.stat.Stat;
 import net.jcip.annotations.ThreadSafe;
 
+import java.lang.annotation.Annotation;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 /**
@@ -21,9 +33,17 @@ import java.util.logging.Logger;
 @ThreadSafe
 @Singleton
 class InMemorySystemMetrics implements SystemMetrics {
+  // Beyond this many http methods per page, the rest are lumped together. Only
+  // matters if the http methods Sitebricks listens for are not known.
+  private static final int MAX_METHODS = 16;
+  private static final String OTHER_METHODS = "OTHER";
+
   private final ConcurrentMap<Class<?>, Metric> pages = new MapMaker().weakKeys().makeMap();
   private final AtomicBoolean active = new AtomicBoolean(false);
 
+  // The http methods pages can answer (e.g. "post"), anything else is counted as OTHER.
+  private volatile Map<String, Class<? extends Annotation>> httpMethods;
+
   private final Logger log = Logger.getLogger(SystemMetrics.class.getName());
 
   public void logPageRenderTime(Class<?> page, long time) {
@@ -33,6 +53,67 @@ class InMemorySystemMetrics implements SystemMetrics {
     metric.lastRenderTime.set(time);
   }
 
+  @Inject(optional = true)
+  void setHttpMethods(@Bricks Map<String, Class<? extends Annotation>> httpMethods) {
+    this.httpMethods = httpMethods;
+  }
+
+  public void logPhaseTime(Class<?> page, String method, Phase phase, long nanos) {
+    putIfAbsent(page).histogramFor(method, phase, httpMethods).record(nanos);
+  }
+
+  // Published by the stat module, if it is installed (the annotation is ignored otherwise).
+  @Stat(value = "sitebricks-latencies",
+      description = "Latency percentiles by page, http method and phase of the request")
+  public Map<String, String> latencies() {
+    Map<String, String> latencies = Maps.newTreeMap();
+    for (Map.Entry<Class<?>, Metric> page : pages.entrySet()) {
+      for (Map.Entry<String, AtomicReferenceArray<LatencyHistogram>> method
+          : page.getValue().methods.entrySet()) {
+        for (Phase phase : Phase.values()) {
+          LatencyHistogram histogram = method.getValue().get(phase.ordinal());
+          if (null == histogram)
+            continue;
+
+          LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+          if (snapshot.count() > 0)
+            latencies.put(page.getKey().getName() + ' ' + method.getKey() + ' '
+                + phase.name().toLowerCase(Locale.ENGLISH), snapshot.toString());
+        }
+      }
+    }
+
+    return latencies;
+  }
+
+  public void logCompileTime(Class<?> page, long nanos) {
+    putIfAbsent(page).compileNanos.addAndGet(nanos);
+  }
+
+  @Stat(value = "sitebricks-compile-times",
+      description = "Time taken to compile each page's template at startup")
+  public Map<String, String> compileTimes() {
+    List<Map.Entry<Class<?>, Metric>> compiled = Lists.newArrayList();
+    for (Map.Entry<Class<?>, Metric> page : pages.entrySet()) {
+      if (page.getValue().compileNanos.get() > 0)
+        compiled.add(page);
+    }
+    Collections.sort(compiled, new Comparator<Map.Entry<Class<?>, Metric>>() {
+      @Override
+      public int compare(Map.Entry<Class<?>, Metric> a, Map.Entry<Class<?>, Metric> b) {
+        long difference = b.getValue().compileNanos.get() - a.getValue().compileNanos.get();
+        return (difference > 0) ? 1 : (difference < 0) ? -1 : 0;
+      }
+    });
+
+    Map<String, String> times = Maps.newLinkedHashMap();
+    for (Map.Entry<Class<?>, Metric> page : compiled) {
+      times.put(page.getKey().getName(),
+          TimeUnit.NANOSECONDS.toMicros(page.getValue().compileNanos.get()) + "us");
+    }
+    return times;
+  }
+
   public void logErrorsAndWarnings(Class<?> page, List<CompileError> errors, List<CompileError> warnings) {
     Metric metric = putIfAbsent(page);
 
@@ -81,7 +162,45 @@ class InMemorySystemMetrics implements SystemMetrics {
   private static class Metric {
     private final AtomicLong lastRenderTime = new AtomicLong(0);
     private final AtomicReference<ErrorTuple> lastErrors = new AtomicReference<ErrorTuple>();
+    private final AtomicLong compileNanos = new AtomicLong();
+
+    // One histogram per phase, for each http method. A phase's histogram is only
+    // created once it is timed, since some pages never render and some never bind.
+    private final ConcurrentMap<String, AtomicReferenceArray<LatencyHistogram>> methods =
+        new MapMaker().makeMap();
+
+    private LatencyHistogram histogramFor(String method, Phase phase,
+                                          Map<String, Class<? extends Annotation>> httpMethods) {
+      AtomicReferenceArray<LatencyHistogram> histograms = histogramsFor(method, httpMethods);
+
+      LatencyHistogram histogram = histograms.get(phase.ordinal());
+      if (null == histogram) {
+        histograms.compareAndSet(phase.ordinal(), null, new LatencyHistogram());
+        histogram = histograms.get(phase.ordinal());
+      }
+      return histogram;
+    }
 
+    private AtomicReferenceArray<LatencyHistogram> histogramsFor(String method,
+        Map<String, Class<? extends Annotation>> httpMethods) {
+      AtomicReferenceArray<LatencyHistogram> histograms = methods.get(method);
+      if (null != histograms)
+        return histograms;
+
+      // Don't let clients make up methods to fill the map with.
+      if ((null == httpMethods)
+          ? methods.size() >= MAX_METHODS
+          : !httpMethods.containsKey(method.toLowerCase(Locale.ENGLISH))) {
+        method = OTHER_METHODS;
+        histograms = methods.get(method);
+        if (null != histograms)
+          return histograms;
+      }
+
+      histograms = new AtomicReferenceArray<LatencyHistogram>(Phase.values().length);
+      AtomicReferenceArray<LatencyHistogram> raced = methods.putIfAbsent(method, histograms);
+      return (null == raced) ? histograms : raced;
+    }
   }
 
   //wrapper helps avoid locking when setting errors and warnings for a page atomically
@@ -0,0 +1,118 @@
+package com.google.sitebricks.routing;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies, in microseconds. Each power of two is split
+ * into {@link #SUB_BUCKETS} linear buckets (as HdrHistogram does), so any percentile
+ * read from it is within an eighth of the true value, using a fixed few hundred counters.
+ * <p>
+ * There is one of these for every phase of every http method of every page that is
+ * requested, so the counters are kept in a single array rather than striped by thread.
+ * Concurrent requests for the same page, method and phase contend on it, which costs
+ * far less than the request itself.
+ */
+@ThreadSafe
+class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  // Latencies past 2^37 micros (a day and a half or so) are counted in the last bucket.
+  private static final int MAX_EXPONENT = 36;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  public void record(long nanos) {
+    counts.incrementAndGet(indexOf(TimeUnit.NANOSECONDS.toMicros(nanos)));
+  }
+
+  public Snapshot snapshot() {
+    long[] counts = new long[BUCKETS];
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      counts[i] = this.counts.get(i);
+      total += counts[i];
+    }
+
+    return new Snapshot(counts, total);
+  }
+
+  static int indexOf(long micros) {
+    if (micros < SUB_BUCKETS)
+      return (int) Math.max(0, micros);
+    if (micros > MAX_VALUE)
+      micros = MAX_VALUE;
+
+    // The top bit picks the bucket group, and the next few bits the bucket within it.
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return The largest latency (in micros) that would be counted in the given bucket.
+   */
+  static long highestValueAt(int index) {
+    if (index < SUB_BUCKETS)
+      return index;
+
+    int group = index / SUB_BUCKETS;
+    long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << (group - 1);
+
+    return lowest + (1L << (group - 1)) - 1;
+  }
+
+  /**
+   * The counts of a histogram at some moment. Counts recorded while the snapshot
+   * was being taken may or may not be included.
+   */
+  @Immutable
+  static class Snapshot {
+    private final long[] counts;
+    private final long total;
+
+    private Snapshot(long[] counts, long total) {
+      this.counts = counts;
+      this.total = total;
+    }
+
+    public long count() {
+      return total;
+    }
+
+    /**
+     * @param percentile A value from 0 to 100.
+     * @return The latency (in micros) below which the given percentage of
+     *     recorded latencies fall.
+     */
+    public long percentile(double percentile) {
+      if (0 == total)
+        return 0;
+
+      long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank)
+          return highestValueAt(i);
+      }
+
+      return highestValueAt(counts.length - 1);
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + total
+          + ", p50=" + percentile(50) + "us"
+          + ", p99=" + percentile(99) + "us"
+          + ", p999=" + percentile(99.9) + "us";
+    }
+  }
+}
@@ -8,6 +8,12 @@ import java.util.Map;
 interface PathMatcher {
     boolean matches(String incoming);
 
+    /**
+     * Same as {@link #matches(String)} but against the region {@code [start, end)}
+     * of the incoming string, so callers needn't cut out a substring.
+     */
+    boolean matches(String incoming, int start, int end);
+
     String name();
 
     Map<String, String> findMatches(String incoming);
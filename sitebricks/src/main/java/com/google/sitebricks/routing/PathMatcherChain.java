@@ -12,9 +12,33 @@ import java.util.*;
 class PathMatcherChain implements PathMatcher {
     private final List<PathMatcher> path;
     private static final String PATH_SEPARATOR = "/";
+    private static final char PATH_SEPARATOR_CHAR = '/';
+
+    // Distinct variable names in this chain, and the slot each matcher binds to (or -1).
+    private final String[] variables;
+    private final int[] slots;
 
     public PathMatcherChain(String path) {
         this.path = toMatchChain(path);
+
+        List<String> variables = new ArrayList<String>();
+        this.slots = new int[this.path.size()];
+        for (int i = 0; i < slots.length; i++) {
+            final String name = this.path.get(i).name();
+            if (null == name) {
+                slots[i] = -1;
+                continue;
+            }
+
+            // Repeated names bind to the same slot, so the last piece wins (as it did with put()).
+            int slot = variables.indexOf(name);
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(name);
+            }
+            slots[i] = slot;
+        }
+        this.variables = variables.toArray(new String[variables.size()]);
     }
 
     //converts a string path to a tree of heterogenous matchers
@@ -34,41 +58,152 @@ class PathMatcherChain implements PathMatcher {
     }
 
     public boolean matches(String incoming) {
-        final Map<String, String> map = findMatches(incoming);
-        return null != map;
+        return scan(incoming, null);
+    }
+
+    public boolean matches(String incoming, int start, int end) {
+        return matches(incoming.substring(start, end));
     }
 
-    //TODO this whole path matching algorithm is in linear time, could easily be constant time
+    /**
+     * Returns a read-only view of the path variables in the given uri, or null if
+     * it does not match. The view only records offsets into the incoming uri, each
+     * variable's value is cut out of it the first time it is actually read.
+     */
     public Map<String, String> findMatches(String incoming) {
-        String[] pieces = incoming.split(PATH_SEPARATOR);
-        int i = 0;
+        if (variables.length == 0)
+            return scan(incoming, null) ? Collections.<String, String>emptyMap() : null;
 
-        //too many matchers, short circuit
-        if (path.size() > pieces.length)
+        int[] offsets = new int[variables.length * 2];
+        if (!scan(incoming, offsets))
             return null;
 
-        Map<String, String> values = new HashMap<String, String>();
-        for (PathMatcher pathMatcher : path) {
+        return new PathVariables(incoming, variables, offsets);
+    }
+
+    // Walks the incoming uri by index, with the same segment semantics as split(PATH_SEPARATOR)
+    // (i.e. trailing separators are dropped). Variable offsets are recorded if asked for.
+    private boolean scan(String incoming, int[] offsets) {
+        int end = incoming.length();
+        while (end > 0 && PATH_SEPARATOR_CHAR == incoming.charAt(end - 1))
+            end--;
 
-            //sanity to prevent fencepost
-            if (i == pieces.length)
-                return pathMatcher.matches("") ? values : null;   //go greedy on index paths
+        // An empty string still has one (empty) piece, whereas "/" has none.
+        int start = (incoming.length() == 0) ? 0 : (end == 0 ? -1 : 0);
 
-            String piece = pieces[i];
+        for (int i = 0; i < slots.length; i++) {
+            //too many matchers, short circuit
+            if (start < 0)
+                return false;
 
-            if (!pathMatcher.matches(piece))
-                return null;
+            int slash = incoming.indexOf(PATH_SEPARATOR_CHAR, start);
+            if (slash < 0 || slash > end)
+                slash = end;
+
+            if (!path.get(i).matches(incoming, start, slash))
+                return false;
 
             //store variable as needed
-            final String name = pathMatcher.name();
-            if (null != name)
-                values.put(name, piece);
+            final int slot = slots[i];
+            if (null != offsets && slot >= 0) {
+                offsets[slot * 2] = start;
+                offsets[slot * 2 + 1] = slash;
+            }
 
             //next piece
-            i++;
+            start = (slash < end) ? slash + 1 : -1;
         }
 
-        return (i == pieces.length) ? values : null;
+        // Unmatched pieces left over.
+        return start < 0;
+    }
+
+    /**
+     * A flyweight map of path variable names to values, backed by offsets into the
+     * matched uri. Values are materialized lazily, and at most once.
+     */
+    static class PathVariables extends AbstractMap<String, String> {
+        private final String uri;
+        private final String[] names;
+        private final int[] offsets;
+        private String[] values;
+
+        PathVariables(String uri, String[] names, int[] offsets) {
+            this.uri = uri;
+            this.names = names;
+            this.offsets = offsets;
+        }
+
+        @Override
+        public String get(Object key) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(key))
+                    return valueAt(i);
+            }
+
+            return null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            for (String name : names) {
+                if (name.equals(key))
+                    return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public int size() {
+            return names.length;
+        }
+
+        private String valueAt(int i) {
+            if (null == values)
+                values = new String[names.length];
+
+            String value = values[i];
+            if (null == value) {
+                value = uri.substring(offsets[i * 2], offsets[i * 2 + 1]);
+                values[i] = value;
+            }
+
+            return value;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<Entry<String, String>>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<Entry<String, String>>() {
+                        private int index;
+
+                        public boolean hasNext() {
+                            return index < names.length;
+                        }
+
+                        public Entry<String, String> next() {
+                            if (!hasNext())
+                                throw new NoSuchElementException();
+
+                            int i = index++;
+                            return new SimpleImmutableEntry<String, String>(names[i], valueAt(i));
+                        }
+
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return names.length;
+                }
+            };
+        }
     }
 
     @Immutable
@@ -83,7 +218,11 @@ class PathMatcherChain implements PathMatcher {
             return path.equals(incoming);
         }
 
-        //TODO this whole path matching algorithm is in linear time, could easily be constant time
+        public boolean matches(String incoming, int start, int end) {
+            int length = end - start;
+            return path.length() == length && incoming.regionMatches(start, path, 0, length);
+        }
+
         @NotNull
         public Map<String, String> findMatches(String incoming) {
             return Collections.emptyMap();
@@ -107,6 +246,10 @@ class PathMatcherChain implements PathMatcher {
             return true;
         }
 
+        public boolean matches(String incoming, int start, int end) {
+            return true;
+        }
+
         @NotNull
         public Map<String, String> findMatches(String incoming) {
             return Collections.emptyMap();
@@ -124,6 +267,10 @@ class PathMatcherChain implements PathMatcher {
             return false;
         }
 
+        public boolean matches(String incoming, int start, int end) {
+            return false;
+        }
+
         @NotNull
         public Map<String, String> findMatches(String incoming) {
             return Collections.emptyMap();
@@ -0,0 +1,206 @@
+package com.google.sitebricks.routing;
+
+import net.jcip.annotations.Immutable;
+import net.jcip.annotations.ThreadSafe;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compiled routing index over URI templates. Each node holds a table of static
+ * child segments and at most one variable edge (shared by every {@code :name}
+ * at that depth, regardless of the variable's name).
+ * <p>
+ * Matching walks the incoming URI by index in a single pass, without splitting it
+ * or allocating substrings. Precedence is deterministic: at every segment a static
+ * child is preferred over the variable edge (backtracking if the static branch
+ * dead-ends), and among templates that are identical up to variable names, the
+ * one registered first wins.
+ * <p>
+ * Segment semantics mirror {@link PathMatcherChain}, i.e. {@code String.split("/")}:
+ * trailing slashes are insignificant and empty inner segments are significant.
+ * <p>
+ * Writers must be externally synchronized; readers may proceed concurrently.
+ */
+@ThreadSafe
+class PathTrie<T> {
+  private static final char SEPARATOR = '/';
+  private static final char VARIABLE = ':';
+
+  private final Node<T> root = new Node<T>();
+
+  /**
+   * Registers a value against the given URI template. A value registered later
+   * against an equivalent template is shadowed by the earlier one.
+   */
+  public void add(String template, T value) {
+    Node<T> node = root;
+
+    int end = trimmedLength(template);
+    int start = (template.length() == 0) ? 0 : (end == 0 ? -1 : 0);
+    while (start >= 0) {
+      int slash = template.indexOf(SEPARATOR, start);
+      if (slash < 0 || slash > end)
+        slash = end;
+
+      String segment = template.substring(start, slash);
+      node = (segment.length() > 0 && VARIABLE == segment.charAt(0))
+          ? node.variableChild()
+          : node.staticChild(segment);
+
+      start = (slash < end) ? slash + 1 : -1;
+    }
+
+    node.addValue(value);
+  }
+
+  /**
+   * Returns the highest-precedence value whose template matches the given URI,
+   * or null if there is none.
+   */
+  @Nullable
+  public T match(String uri) {
+    int end = trimmedLength(uri);
+    int start = (uri.length() == 0) ? 0 : (end == 0 ? -1 : 0);
+
+    return match(root, uri, start, end);
+  }
+
+  @Nullable
+  private static <T> T match(Node<T> node, String uri, int start, int end) {
+    // All segments consumed.
+    if (start < 0)
+      return node.value();
+
+    int slash = uri.indexOf(SEPARATOR, start);
+    if (slash < 0 || slash > end)
+      slash = end;
+    int next = (slash < end) ? slash + 1 : -1;
+
+    // Static segments take precedence over variables.
+    Node<T> child = node.table.get(uri, start, slash);
+    if (null != child) {
+      T value = match(child, uri, next, end);
+      if (null != value)
+        return value;
+    }
+
+    Node<T> variable = node.variable;
+    if (null != variable)
+      return match(variable, uri, next, end);
+
+    return null;
+  }
+
+  // Length of the uri, ignoring any trailing separators (as split() does).
+  private static int trimmedLength(String uri) {
+    int end = uri.length();
+    while (end > 0 && SEPARATOR == uri.charAt(end - 1))
+      end--;
+
+    return end;
+  }
+
+  private static class Node<T> {
+    private final Map<String, Node<T>> statics = new LinkedHashMap<String, Node<T>>();
+
+    private volatile StaticTable<T> table = StaticTable.empty();
+    private volatile Node<T> variable;
+    private volatile T first;
+
+    Node<T> staticChild(String segment) {
+      Node<T> child = statics.get(segment);
+      if (null == child) {
+        child = new Node<T>();
+        statics.put(segment, child);
+
+        // Republish the compiled lookup table.
+        table = new StaticTable<T>(statics);
+      }
+
+      return child;
+    }
+
+    Node<T> variableChild() {
+      if (null == variable)
+        variable = new Node<T>();
+
+      return variable;
+    }
+
+    void addValue(T value) {
+      // Equivalent templates registered later are shadowed.
+      if (null == first)
+        first = value;
+    }
+
+    T value() {
+      return first;
+    }
+  }
+
+  /**
+   * An open-addressed hash table of static segments that can be probed with a
+   * region of a larger string, so no substring is ever needed to look up a child.
+   */
+  @Immutable
+  private static class StaticTable<T> {
+    private static final StaticTable<Object> EMPTY =
+        new StaticTable<Object>(new LinkedHashMap<String, Node<Object>>());
+
+    private final String[] keys;
+    private final Node<T>[] children;
+    private final int mask;
+
+    @SuppressWarnings("unchecked")
+    StaticTable(Map<String, Node<T>> statics) {
+      int capacity = 2;
+      while (capacity < statics.size() * 2)
+        capacity <<= 1;
+
+      this.keys = new String[capacity];
+      this.children = new Node[capacity];
+      this.mask = capacity - 1;
+
+      for (Map.Entry<String, Node<T>> entry : statics.entrySet()) {
+        String key = entry.getKey();
+        int index = spread(key.hashCode()) & mask;
+        while (null != keys[index])
+          index = (index + 1) & mask;
+
+        keys[index] = key;
+        children[index] = entry.getValue();
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> StaticTable<T> empty() {
+      return (StaticTable<T>) EMPTY;
+    }
+
+    @Nullable
+    Node<T> get(String uri, int start, int end) {
+      // Same hash as String.hashCode() of the region, but computed in place.
+      int hash = 0;
+      for (int i = start; i < end; i++)
+        hash = 31 * hash + uri.charAt(i);
+
+      int length = end - start;
+      int index = spread(hash) & mask;
+      String key;
+      while (null != (key = keys[index])) {
+        if (key.length() == length && uri.regionMatches(start, key, 0, length))
+          return children[index];
+
+        index = (index + 1) & mask;
+      }
+
+      return null;
+    }
+
+    private static int spread(int hash) {
+      return hash ^ (hash >>> 16);
+    }
+  }
+}
@@ -4,6 +4,7 @@ import com.google.inject.ImplementedBy;
 import com.google.sitebricks.compiler.CompileError;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Keeps track of various global performance and error metrics.
@@ -12,6 +13,17 @@ import java.util.List;
  */
 @ImplementedBy(InMemorySystemMetrics.class)
 public interface SystemMetrics {
+    /**
+     * Request attribute under which the routing dispatcher leaves the class of the
+     * page it dispatched to, so that the time taken to write it out can be logged.
+     */
+    String PAGE_ATTRIBUTE = "sb_metrics_page";
+
+    /**
+     * The parts of a page request that are timed separately.
+     */
+    enum Phase { BIND, EVENT, RENDER, WRITE }
+
     /**
      * Records the last page render time for the given page (in millis).
      * This method is concurrent and does not guarantee that the last
@@ -19,6 +31,32 @@ public interface SystemMetrics {
      */
     void logPageRenderTime(Class<?> page, long time);
 
+    /**
+     * Records how long (in nanos) the given phase of a request to the given page
+     * took. This method is thread-safe and does not block.
+     */
+    void logPhaseTime(Class<?> page, String method, Phase phase, long nanos);
+
+    /**
+     * @return A snapshot of latency percentiles for each page, http method and
+     * phase logged so far, keyed by {@code "page METHOD phase"}. If the stat module
+     * is installed, this is published as the {@code sitebricks-latencies} stat.
+     */
+    Map<String, String> latencies();
+
+    /**
+     * Records how long (in nanos) compiling the template for the given page took at
+     * startup. This method is thread-safe and does not block.
+     */
+    void logCompileTime(Class<?> page, long nanos);
+
+    /**
+     * @return The time each page's template took to compile at startup, slowest first,
+     * keyed by page class name. If the stat module is installed, this is published as
+     * the {@code sitebricks-compile-times} stat.
+     */
+    Map<String, String> compileTimes();
+
     /**
      * This sets the current errors and warnings list as given, globally.
      * This method is thread-safe.
@@ -3,18 +3,23 @@ package com.google.sitebricks.routing;
 import java.io.IOException;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.ConstraintViolation;
 import javax.validation.ConstraintViolationException;
 import javax.validation.ValidationException;
 
 import net.jcip.annotations.Immutable;
 
+import com.google.common.collect.MapMaker;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
-import com.google.sitebricks.Respond;
+import com.google.inject.name.Named;
+import com.google.sitebricks.RenderBuffers;
+import com.google.sitebricks.StreamingRespond;
 import com.google.sitebricks.StringBuilderRespond;
 import com.google.sitebricks.binding.FlashCache;
 import com.google.sitebricks.binding.RequestBinder;
@@ -40,10 +45,23 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
 
   @Inject
   Provider<HttpServletRequest> httpServletRequestProvider;
+
+  @Inject
+  Provider<HttpServletResponse> httpServletResponseProvider;
+
+  @Inject(optional = true) @Named(StreamingRespond.STREAMING)
+  private boolean streaming = false;
+
+  // How large each page tends to render, so its buffers can be presized.
+  private final ConcurrentMap<Class<?>, RenderBuffers.SizeEstimate> renderSizes =
+      new MapMaker().weakKeys().makeMap();
   
   @Inject
   private ValidationConverter validationConvertor;
 
+  @Inject
+  private SystemMetrics metrics;
+
   @Inject
   public WidgetRoutingDispatcher(PageBook book, RequestBinder<String> binder,
                                  ResourcesService resourcesService,
@@ -60,10 +78,10 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
     String uri = request.path();
 
     //first try dispatching as a static resource service
-    Respond respond = resourcesService.serve(uri);
+    Reply<?> resource = resourcesService.serve(request);
 
-    if (null != respond)
-      return respond;
+    if (null != resource)
+      return resource;
 
     // Otherwise try to dispatch as a widget/page
     // Check if there is a page chain link sitting here
@@ -83,6 +101,9 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
     if (null == page)
       return null;
 
+    // So the time taken to write the response out can be logged against this page.
+    httpServletRequestProvider.get().setAttribute(SystemMetrics.PAGE_ATTRIBUTE, page.pageClass());
+
     final Object instance = page.instantiate();
     if (page.isHeadless()) {
       return bindAndReply(request, page, instance);
@@ -94,7 +115,9 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
 
   private Object bindAndReply(Request request, Page page, Object instance) throws IOException {
     // bind request (sets request params, etc).
+    long start = System.nanoTime();
     binder.bind(request, instance);
+    start = logPhaseTime(request, page, SystemMetrics.Phase.BIND, start);
     
     Object response = null;
     try {
@@ -107,13 +130,16 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
         List<String> errors = validationConvertor.to(scv);
         response =  Reply.with(errors).as(Json.class).badRequest();
     }
+    logPhaseTime(request, page, SystemMetrics.Phase.EVENT, start);
     return response;
   }
 
   private Object bindAndRespond(Request request, PageBook.Page page, Object instance)
       throws IOException {
     //bind request
+    long start = System.nanoTime();
     binder.bind(request, instance);
+    start = logPhaseTime(request, page, SystemMetrics.Phase.BIND, start);
 
     // fire get/post events
     Object redirect = null;
@@ -127,9 +153,13 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
         Set<? extends ConstraintViolation<?>> scv = (Set<? extends ConstraintViolation<?>>) cve.getConstraintViolations();
         errors = validationConvertor.to(scv);
     }
+    start = logPhaseTime(request, page, SystemMetrics.Phase.EVENT, start);
         
     //render to respond
-    Respond respond = new StringBuilderRespond(instance);
+    RenderBuffers.SizeEstimate size = sizeOf(page);
+    StringBuilderRespond respond = streaming
+        ? new StreamingRespond(instance, httpServletResponseProvider.get())
+        : new StringBuilderRespond(instance, size.get());
     respond.setErrors(errors);
     if (null != redirect) {
 
@@ -156,11 +186,40 @@ class WidgetRoutingDispatcher implements RoutingDispatcher {
       }
     } else {
       page.widget().render(instance, respond);
+
+      // A streamed page only holds what has not been sent yet, which says nothing of its size.
+      if (!streaming)
+        size.record(respond.length());
+      logPhaseTime(request, page, SystemMetrics.Phase.RENDER, start);
     }
     
     return respond;
   }
 
+  // Returns the time the phase ended, which is when the next one starts.
+  private long logPhaseTime(Request request, Page page, SystemMetrics.Phase phase, long start) {
+    long end = System.nanoTime();
+
+    // Pages registered through the SPI may have no class to log against.
+    Class<?> pageClass = page.pageClass();
+    if (null != pageClass && metrics.isActive())
+      metrics.logPhaseTime(pageClass, request.method(), phase, end - start);
+    return end;
+  }
+
+  private RenderBuffers.SizeEstimate sizeOf(Page page) {
+    Class<?> pageClass = page.pageClass();
+    RenderBuffers.SizeEstimate size = renderSizes.get(pageClass);
+    if (null == size) {
+      size = new RenderBuffers.SizeEstimate();
+      RenderBuffers.SizeEstimate raced = renderSizes.putIfAbsent(pageClass, size);
+      if (null != raced)
+        size = raced;
+    }
+
+    return size;
+  }
+
   // We're sure the request parameter map is a Map<String, String[]>
   @SuppressWarnings("unchecked")
   private Object fireEvent(Request request, PageBook.Page page, Object instance)
@@ -0,0 +1,223 @@
+package com.google.sitebricks;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ensures generated accessors read the same values MVEL does.
+ */
+public class AccessorEvaluatorTest {
+  private static final String EXPRESSIONS = "expressions";
+
+  @DataProvider(name = EXPRESSIONS)
+  public Object[][] expressions() {
+    return new Object[][] {
+        { "name" },
+        { "${name}" },
+        { "age" },
+        { "alive" },
+        { "height" },
+        { "address.city" },
+        { "address.city.length()" },
+        { "address.zip" },
+        { "address.tags" },
+        { "address.tags.size()" },
+        { "field" },
+        { "counts.one" },
+        { "name + ' ' + age" },
+        { "age > 20" },
+        { "class" },
+    };
+  }
+
+  @Test(dataProvider = EXPRESSIONS)
+  public final void agreesWithMvel(String expression) {
+    Person person = new Person();
+
+    Object expected = new MvelEvaluator().evaluate(expression, person);
+    AccessorEvaluator evaluator = new AccessorEvaluator();
+
+    // Twice, once to generate the accessor, and once to use it.
+    assert equal(expected, evaluator.evaluate(expression, person)) : expression;
+    assert equal(expected, evaluator.evaluate(expression, person)) : expression;
+    assert equal(new MvelEvaluator().read("name", person), evaluator.read("name", person));
+  }
+
+  @Test
+  public final void accessorsAreResolvedPerBeanClass() {
+    AccessorEvaluator evaluator = new AccessorEvaluator();
+
+    assert "Dhanji".equals(evaluator.evaluate("name", new Person()));
+    assert "Other".equals(evaluator.evaluate("name", new Other()));
+    assert "Dhanji".equals(evaluator.evaluate("name", new Person()));
+  }
+
+  @Test
+  public final void propertyPathsAreReadByGeneratedAccessor() {
+    Object caller = new AccessorEvaluator().evaluate("caller", new Traced());
+
+    assert caller.toString().startsWith(AccessorEvaluator.class.getName() + "$Generated") : caller;
+  }
+
+  @Test
+  public final void accessorsShareALoaderPerBeanLoader() {
+    AccessorEvaluator evaluator = new AccessorEvaluator();
+    Class<?> one = (Class<?>) evaluator.evaluate("callerClass", new Traced());
+    Class<?> other = (Class<?>) evaluator.evaluate("self.callerClass", new Traced());
+
+    assert one != other;
+    assert one.getClassLoader() == other.getClassLoader();
+    assert Traced.class.getClassLoader() == one.getClassLoader().getParent();
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public final void nullInPathIsReported() {
+    Person person = new Person();
+    person.address = null;
+
+    new AccessorEvaluator().evaluate("address.city", person);
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public final void inaccessiblePathsAreLeftToMvel() {
+    new AccessorEvaluator().evaluate("hidden.city", new Person());
+  }
+
+  @Test
+  public final void writeConvertsValues() {
+    Person person = new Person();
+    AccessorEvaluator evaluator = new AccessorEvaluator();
+
+    evaluator.write("age", person, "31");
+    evaluator.write("address.city", person, "Sydney");
+
+    assert 31 == person.getAge();
+    assert "Sydney".equals(evaluator.evaluate("address.city", person));
+  }
+
+  @Test
+  public final void writeFailsAsMvelDoes() {
+    for (String property : new String[] { "age", "nothing" }) {
+      Class<?> expected = failureOf(new MvelEvaluator(), property, "abc");
+
+      assert null != expected : property;
+      assert expected == failureOf(new AccessorEvaluator(), property, "abc") : property;
+    }
+  }
+
+  private static Class<?> failureOf(Evaluator evaluator, String expr, Object value) {
+    try {
+      evaluator.write(expr, new Person(), value);
+    } catch (RuntimeException e) {
+      return e.getClass();
+    }
+    return null;
+  }
+
+  private static boolean equal(Object a, Object b) {
+    return (null == a) ? null == b : a.equals(b);
+  }
+
+  public static class Person {
+    public String field = "public field";
+    private String name = "Dhanji";
+    private int age = 27;
+    private Address address = new Address();
+    private final Map<String, Integer> counts = new HashMap<String, Integer>();
+
+    public Person() {
+      counts.put("one", 1);
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public int getAge() {
+      return age;
+    }
+
+    public void setAge(int age) {
+      this.age = age;
+    }
+
+    public boolean isAlive() {
+      return true;
+    }
+
+    public double getHeight() {
+      return 6.1;
+    }
+
+    public Address getAddress() {
+      return address;
+    }
+
+    public Map<String, Integer> getCounts() {
+      return counts;
+    }
+
+    public HiddenAddress getHidden() {
+      return new HiddenAddress();
+    }
+  }
+
+  public static class Address {
+    private String city = "Melbourne";
+
+    public String getCity() {
+      return city;
+    }
+
+    public void setCity(String city) {
+      this.city = city;
+    }
+
+    public Integer getZip() {
+      return null;
+    }
+
+    public List<String> getTags() {
+      return Arrays.asList("home", "work");
+    }
+  }
+
+  public static class Other {
+    public String getName() {
+      return "Other";
+    }
+  }
+
+  public static class Traced {
+    public String getCaller() {
+      return new Throwable().getStackTrace()[1].getClassName();
+    }
+
+    public Class<?> getCallerClass() {
+      return new Callers().caller();
+    }
+
+    public Traced getSelf() {
+      return this;
+    }
+  }
+
+  private static class Callers extends SecurityManager {
+    // This class, then Traced, then whichever class called Traced.
+    Class<?> caller() {
+      return getClassContext()[2];
+    }
+  }
+
+  // Its getter is public, but the class is not.
+  static class HiddenAddress {
+    public String getCity() {
+      return "Hidden";
+    }
+  }
+}
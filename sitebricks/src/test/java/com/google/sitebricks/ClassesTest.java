@@ -0,0 +1,99 @@
+package com.google.sitebricks;
+
+import com.google.inject.matcher.Matchers;
+import com.google.sitebricks.http.Get;
+import com.google.sitebricks.rendering.EmbedAs;
+import com.google.sitebricks.rendering.With;
+import com.google.sitebricks.routing.PageBookImplTest;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+public class ClassesTest {
+  private static final String CLASS_FILES = "classFiles";
+
+  @DataProvider(name = CLASS_FILES)
+  public Object[][] classFiles() {
+    return new Object[][] {
+        { AtPage.class, true },
+        { EmbeddedWithArguments.class, true },
+        { ShowOnlyOnMethod.class, false },
+        { Unannotated.class, false },
+        { WideConstants.class, true },
+        { ClassesTest.class, false },
+    };
+  }
+
+  @Test(dataProvider = CLASS_FILES)
+  public final void classFileAnnotationsMatchReflection(Class<?> clazz, boolean annotated)
+      throws IOException {
+    @SuppressWarnings("unchecked")
+    ClassFileAnnotations annotations =
+        ClassFileAnnotations.anyOf(At.class, EmbedAs.class, With.class, Show.class);
+
+    InputStream in = clazz.getResourceAsStream(clazz.getName()
+        .substring(clazz.getName().lastIndexOf('.') + 1) + ".class");
+    try {
+      assert annotated == annotations.presentIn(in) : clazz;
+    } finally {
+      in.close();
+    }
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public final void nonClassFilesAreRejected() throws IOException {
+    @SuppressWarnings("unchecked")
+    ClassFileAnnotations annotations = ClassFileAnnotations.anyOf(At.class);
+    annotations.presentIn(ClassesTest.class.getResourceAsStream("MyHtml.html"));
+  }
+
+  @Test
+  public final void scanFindsTheSameClassesAsLoadingThemAll() {
+    List<Package> packages = Arrays.asList(ClassesTest.class.getPackage(),
+        PageBookImplTest.class.getPackage());
+
+    @SuppressWarnings("unchecked")
+    Set<Class<?>> scanned = Classes.annotatedWithAny(At.class, EmbedAs.class).in(packages);
+    Set<Class<?>> loaded = Classes.matching(Matchers.annotatedWith(At.class)
+        .or(Matchers.annotatedWith(EmbedAs.class))).in(packages);
+
+    assert scanned.contains(AtPage.class) : scanned;
+    assert scanned.contains(EmbeddedWithArguments.class) : scanned;
+    assert !scanned.contains(Unannotated.class) : scanned;
+    assert loaded.equals(scanned) : scanned;
+  }
+
+  @At("/classes/test") @Deprecated
+  public static class AtPage {
+  }
+
+  @SuppressWarnings({ "unused", "rawtypes" })
+  @EmbedAs("Embedded")
+  public static class EmbeddedWithArguments {
+  }
+
+  public static class ShowOnlyOnMethod {
+    @Show("index.html") @Get
+    public void get() {
+    }
+  }
+
+  public static class Unannotated {
+    At at;
+  }
+
+  @With({ "first", "second" })
+  public static class WideConstants {
+    static final long BIG = Long.MAX_VALUE - 1;
+    static final double PI = 3.1415926535;
+    static final String NAME = "name";
+
+    long big = BIG;
+    double pi = PI;
+  }
+}
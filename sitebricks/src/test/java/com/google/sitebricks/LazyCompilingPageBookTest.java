@@ -0,0 +1,229 @@
+package com.google.sitebricks;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.sitebricks.compiler.Compilers;
+import com.google.sitebricks.routing.PageBook;
+import com.google.sitebricks.routing.SystemMetrics;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+
+public class LazyCompilingPageBookTest {
+  private PageBook.Page home;
+  private PageBook.Page search;
+  private PageBook.Page menu;
+  private PageBook.Page chained;
+  private final Object redirect = new Object();
+  private PageBook book;
+
+  // Pages in the order they were compiled (a new list per test, as background compiles
+  // from earlier tests may still be running).
+  private List<Class<?>> compiled;
+
+  @BeforeMethod
+  public final void pre() {
+    compiled = Collections.synchronizedList(Lists.<Class<?>>newArrayList());
+    home = page(String.class);
+    search = page(Integer.class);
+    menu = page(Long.class);
+
+    // What a page-chaining redirect gets: the home page, bound to an instance.
+    chained = page(String.class);
+
+    book = createNiceMock(PageBook.class);
+    expect(book.get("/home")).andReturn(home).anyTimes();
+    expect(book.get("/search")).andReturn(search).anyTimes();
+    expect(book.forName("menu")).andReturn(menu).anyTimes();
+    expect(book.forInstance(redirect)).andReturn(chained).anyTimes();
+    expect(book.forClass(String.class)).andReturn(home).anyTimes();
+    expect(book.decorate(Long.class)).andReturn(menu).anyTimes();
+    makeThreadSafe(book, true);
+    replay(book);
+  }
+
+  @Test
+  public final void concurrentFirstRequestsCompileOnce() throws Exception {
+    final CountDownLatch compiling = new CountDownLatch(1);
+    final CountDownLatch finish = new CountDownLatch(1);
+    final LazyCompilingPageBook lazy = lazy(new RecordingCompilers() {
+      @Override
+      public void compilePage(PageBook.Page page) {
+        if (page == home) {
+          compiling.countDown();
+          await(finish);
+        }
+        super.compilePage(page);
+      }
+    });
+    lazy.compileLater(Sets.newLinkedHashSet(ImmutableList.of(home, search)),
+        ImmutableList.of("/home"));
+
+    // The background thread starts on /home, the requests must wait for it.
+    await(compiling);
+    final List<PageBook.Page> served = Collections.synchronizedList(
+        Lists.<PageBook.Page>newArrayList());
+    List<Thread> requests = Lists.newArrayList();
+    for (int i = 0; i < 4; i++) {
+      Thread request = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          served.add(lazy.get("/home"));
+        }
+      });
+      request.start();
+      requests.add(request);
+    }
+    finish.countDown();
+    for (Thread request : requests) {
+      request.join(10000);
+    }
+
+    assert ImmutableList.of(home, home, home, home).equals(served) : served;
+    assert compiled.contains(String.class) : compiled;
+    assert compiled.indexOf(String.class) == compiled.lastIndexOf(String.class) : compiled;
+  }
+
+  @Test
+  public final void configuredPagesCompileFirst() throws Exception {
+    LazyCompilingPageBook lazy = lazy(new RecordingCompilers());
+    lazy.compileLater(Sets.newLinkedHashSet(ImmutableList.of(home, search, menu)),
+        ImmutableList.of("/search", "/nowhere"));
+
+    // Requests get compiled pages, whether or not the background got to them yet.
+    assert menu == lazy.forName("menu");
+    assert search == lazy.get("/search");
+    assert home == lazy.get("/home");
+
+    assert Sets.newHashSet(String.class, Integer.class, Long.class)
+        .equals(Sets.newHashSet(compiled)) : compiled;
+    assert 3 == compiled.size() : compiled;
+  }
+
+  @Test
+  public final void backgroundFollowsConfiguredOrder() throws Exception {
+    final CountDownLatch done = new CountDownLatch(3);
+    LazyCompilingPageBook lazy = lazy(new RecordingCompilers() {
+      @Override
+      public void compilePage(PageBook.Page page) {
+        super.compilePage(page);
+        done.countDown();
+      }
+    });
+    lazy.compileLater(Sets.newLinkedHashSet(ImmutableList.of(home, search, menu)),
+        ImmutableList.of("/search"));
+    await(done);
+
+    assert ImmutableList.of(Integer.class, String.class, Long.class).equals(compiled) : compiled;
+  }
+
+  @Test
+  public final void compilersDoNotWaitOnOtherPages() throws Exception {
+    // Holds up the background thread on its first page, so it never gets to the menu.
+    final CountDownLatch release = new CountDownLatch(1);
+    final List<PageBook.Page> lookedUp = Lists.newArrayList();
+    final LazyCompilingPageBook[] lazy = new LazyCompilingPageBook[1];
+    lazy[0] = lazy(new RecordingCompilers() {
+      @Override
+      public void compilePage(PageBook.Page page) {
+        if (page == search)
+          await(release);
+
+        // Home embeds the menu, which is looked up (but not compiled) from here.
+        if (page == home)
+          lookedUp.add(lazy[0].forName("menu"));
+        super.compilePage(page);
+      }
+    });
+    lazy[0].compileLater(Sets.newLinkedHashSet(ImmutableList.of(search, home, menu)),
+        ImmutableList.<String>of());
+
+    try {
+      assert home == lazy[0].get("/home");
+      assert ImmutableList.of(menu).equals(lookedUp) : lookedUp;
+      assert ImmutableList.<Class<?>>of(String.class).equals(compiled) : compiled;
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test
+  public final void pageChainingCompilesTheTargetPage() {
+    // Holds up the background thread, so that only the redirect can compile home.
+    final CountDownLatch release = new CountDownLatch(1);
+    LazyCompilingPageBook lazy = lazy(new RecordingCompilers() {
+      @Override
+      public void compilePage(PageBook.Page page) {
+        if (page == search)
+          await(release);
+        super.compilePage(page);
+      }
+    });
+    lazy.compileLater(Sets.newLinkedHashSet(ImmutableList.of(search, home, menu)),
+        ImmutableList.<String>of());
+
+    try {
+      // The chained page is rendered straight from the flash cache, without another lookup.
+      assert chained == lazy.forInstance(redirect);
+      assert ImmutableList.<Class<?>>of(String.class).equals(compiled) : compiled;
+
+      assert menu == lazy.decorate(Long.class);
+      assert ImmutableList.<Class<?>>of(String.class, Long.class).equals(compiled) : compiled;
+    } finally {
+      release.countDown();
+    }
+  }
+
+  private LazyCompilingPageBook lazy(Compilers compilers) {
+    SystemMetrics metrics = createNiceMock(SystemMetrics.class);
+    makeThreadSafe(metrics, true);
+    replay(metrics);
+    return new LazyCompilingPageBook(book, metrics, compilers);
+  }
+
+  private static PageBook.Page page(Class<?> pageClass) {
+    PageBook.Page page = createNiceMock(PageBook.Page.class);
+    @SuppressWarnings("unchecked")
+    Class<Object> type = (Class<Object>) pageClass;
+    expect((Class<Object>) page.pageClass()).andReturn(type).anyTimes();
+    makeThreadSafe(page, true);
+    replay(page);
+    return page;
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      assert latch.await(10, TimeUnit.SECONDS) : "Timed out";
+    } catch (InterruptedException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private class RecordingCompilers implements Compilers {
+    private final List<Class<?>> compiled = LazyCompilingPageBookTest.this.compiled;
+
+    @Override
+    public void analyze(Class<?> page) {
+    }
+
+    @Override
+    public void compilePage(PageBook.Page page) {
+      compiled.add(page.pageClass());
+    }
+
+    @Override
+    public Renderable compile(Class<?> templateClass) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -0,0 +1,144 @@
+package com.google.sitebricks;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+import com.google.sitebricks.rendering.EmbedAs;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Set;
+
+public class PageIndexTest {
+  private File sources;
+  private File classes;
+
+  @BeforeMethod
+  public final void pre() {
+    sources = Files.createTempDir();
+    classes = Files.createTempDir();
+  }
+
+  @AfterMethod
+  public final void post() {
+    delete(sources);
+    delete(classes);
+  }
+
+  @Test
+  public final void processorListsAnnotatedClasses() throws IOException {
+    compile("Home", "@com.google.sitebricks.At(\"/\") public class Home {\n"
+        + "  @com.google.sitebricks.rendering.EmbedAs(\"Menu\") public static class Menu {}\n"
+        + "  @com.google.sitebricks.Show(\"a.html\") public void get() {}\n"
+        + "}");
+    compile("Plain", "public class Plain { com.google.sitebricks.At at; }");
+
+    assert ImmutableSet.of("pages.Home", "pages.Home$Menu").equals(index()) : index();
+  }
+
+  @Test
+  public final void laterCompilationsAddToTheIndex() throws IOException {
+    compile("Home", "@com.google.sitebricks.At(\"/\") public class Home {}");
+    compile("Search", "@com.google.sitebricks.At(\"/search\")\n"
+        + "@com.google.sitebricks.headless.Service public class Search {}");
+
+    assert ImmutableSet.of("pages.Home", "pages.Search").equals(index()) : index();
+  }
+
+  @Test
+  public final void scannerUsesTheIndexWhereThereIsOne() throws IOException {
+    // An empty package directory, with an index listing a page, an unannotated class and
+    // a class that no longer exists.
+    new File(classes, "com/google/sitebricks").mkdirs();
+    File index = new File(classes, PageIndex.RESOURCE);
+    index.getParentFile().mkdirs();
+    Files.write("# test index\n"
+        + ClassesTest.AtPage.class.getName() + '\n'
+        + ClassesTest.Unannotated.class.getName() + '\n'
+        + "com.google.sitebricks.NoSuchPage\n", index, Charsets.UTF_8);
+
+    ClassLoader original = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(
+        new URLClassLoader(new URL[] { classes.toURI().toURL() }, null));
+    try {
+      @SuppressWarnings("unchecked")
+      Set<Class<?>> found = Classes.annotatedWithAny(At.class, EmbedAs.class)
+          .in(PageIndexTest.class.getPackage());
+
+      assert ImmutableSet.<Class<?>>of(ClassesTest.AtPage.class).equals(found) : found;
+    } finally {
+      Thread.currentThread().setContextClassLoader(original);
+    }
+  }
+
+  @Test
+  public final void scannerIgnoresAnIndexOlderThanItsClasses() throws IOException {
+    // An index that misses a page compiled after it was written.
+    File index = new File(classes, PageIndex.RESOURCE);
+    index.getParentFile().mkdirs();
+    Files.write(ClassesTest.Unannotated.class.getName() + '\n', index, Charsets.UTF_8);
+
+    String page = ClassesTest.AtPage.class.getName().replace('.', '/') + ".class";
+    File classFile = new File(classes, page);
+    classFile.getParentFile().mkdirs();
+    Files.copy(Files.newInputStreamSupplier(new File(
+        PageIndexTest.class.getProtectionDomain().getCodeSource().getLocation().getPath(), page)),
+        classFile);
+    assert classFile.setLastModified(index.lastModified() + 10000);
+
+    ClassLoader original = Thread.currentThread().getContextClassLoader();
+    Thread.currentThread().setContextClassLoader(
+        new URLClassLoader(new URL[] { classes.toURI().toURL() }, null));
+    try {
+      @SuppressWarnings("unchecked")
+      Set<Class<?>> found = Classes.annotatedWithAny(At.class, EmbedAs.class)
+          .in(PageIndexTest.class.getPackage());
+
+      assert ImmutableSet.<Class<?>>of(ClassesTest.AtPage.class).equals(found) : found;
+    } finally {
+      Thread.currentThread().setContextClassLoader(original);
+    }
+  }
+
+  private void compile(String name, String source) throws IOException {
+    File file = new File(sources, "pages/" + name + ".java");
+    file.getParentFile().mkdirs();
+    Files.write("package pages;\n" + source, file, Charsets.UTF_8);
+
+    JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+    int result = javac.run(null, null, null,
+        "-classpath", System.getProperty("java.class.path") + File.pathSeparator + classes,
+        "-processor", PageIndexProcessor.class.getName(),
+        "-d", classes.getPath(),
+        file.getPath());
+    assert 0 == result : "Could not compile " + name;
+  }
+
+  private static void delete(File file) {
+    File[] children = file.listFiles();
+    if (null != children) {
+      for (File child : children) {
+        delete(child);
+      }
+    }
+    file.delete();
+  }
+
+  private Set<String> index() throws IOException {
+    InputStream in = new FileInputStream(new File(classes, PageIndex.RESOURCE));
+    try {
+      return PageIndex.read(in);
+    } finally {
+      in.close();
+    }
+  }
+}
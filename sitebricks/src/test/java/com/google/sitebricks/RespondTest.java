@@ -1,5 +1,18 @@
 package com.google.sitebricks;
 
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
 import org.testng.annotations.Test;
 
 /**
@@ -27,4 +40,151 @@ public class RespondTest {
 
         assert ("" + null).equals(respond.toString());
     }
+
+    @Test
+    public final void respondInsertsHeadAtPlaceholder() {
+        final Respond respond = new StringBuilderRespond(new Object());
+        respond.write("<html><head>");
+        respond.withHtml().headerPlaceholder();
+        respond.write("</head><body>$1</body></html>");
+        respond.writeToHead("<title>$0</title>");
+        respond.require("<script src='a.js'></script>");
+
+        assert ("<html><head><title>$0</title><script src='a.js'></script>"
+            + "</head><body>$1</body></html>").equals(respond.toString()) : respond.toString();
+    }
+
+    @Test
+    public final void streamingRespondWritesHeadThenBody() throws IOException {
+        final StringWriter out = new StringWriter();
+        final HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+        expect(response.getWriter()).andReturn(new PrintWriter(out)).anyTimes();
+        replay(response);
+
+        final StreamingRespond respond = new StreamingRespond(new Object(), response);
+        final StringBuilder expected = new StringBuilder("<html><head><title>t</title></head><body>");
+
+        respond.write("<html><head>");
+        respond.withHtml().headerPlaceholder();
+        respond.write("</head><body>");
+        respond.writeToHead("<title>t</title>");
+
+        assert !respond.isCommitted();
+        assert out.toString().isEmpty();
+
+        // Write enough of the body that the head has to be committed.
+        for (int i = 0; i < StreamingRespond.CHUNK_SIZE; i++) {
+            respond.write(A_STRING);
+            respond.write(A_CHAR);
+            respond.write(A_CHAR);
+            respond.chew();
+            expected.append(A_STRING).append(A_CHAR);
+        }
+        assert respond.isCommitted();
+        assert out.toString().startsWith("<html><head><title>t</title></head><body>");
+
+        // Late head content goes inline, and requires are not repeated.
+        respond.writeToHead("<style/>");
+        respond.require("<script/>");
+        respond.require("<script/>");
+        respond.write("</body></html>");
+        expected.append("<style/><script/></body></html>");
+
+        respond.flush();
+        assert expected.toString().equals(out.toString());
+    }
+
+    @Test
+    public final void streamingRespondBuffersSmallPages() throws IOException {
+        final StringWriter out = new StringWriter();
+        final HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+        expect(response.getWriter()).andReturn(new PrintWriter(out)).anyTimes();
+        replay(response);
+
+        final StreamingRespond respond = new StreamingRespond(new Object(), response);
+        respond.write("<html><head>");
+        respond.withHtml().headerPlaceholder();
+        respond.write("</head><body>hi</body></html>");
+        respond.require("<script/>");
+
+        assert !respond.isCommitted();
+        respond.flush();
+        assert "<html><head><script/></head><body>hi</body></html>".equals(out.toString());
+    }
+
+    @Test
+    public final void streamingRespondChewsNothingOnceFlushed() throws IOException {
+        final StringWriter out = new StringWriter();
+        final HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+        expect(response.getWriter()).andReturn(new PrintWriter(out)).anyTimes();
+        replay(response);
+
+        final StreamingRespond respond = new StreamingRespond(new Object(), response);
+        respond.write("<html><body>hi");
+        respond.flush();
+        respond.chew();
+        respond.write("</body></html>");
+        respond.flush();
+
+        assert "<html><body>hi</body></html>".equals(out.toString()) : out;
+    }
+
+    @Test
+    public final void respondWritesToWriterAndReleasesBuffers() throws IOException {
+        final StringBuilderRespond respond = new StringBuilderRespond(new Object(), 64);
+        respond.write("<html><head>");
+        respond.withHtml().headerPlaceholder();
+        respond.write("</head><body>hi</body></html>");
+        respond.writeToHead("<title>t</title>");
+
+        final StringWriter out = new StringWriter();
+        respond.writeTo(out);
+        assert "<html><head><title>t</title></head><body>hi</body></html>".equals(out.toString());
+        assert respond.length() == out.toString().length();
+
+        // The next respond on this thread reuses the released buffers, empty.
+        respond.release();
+        final StringBuilderRespond next = new StringBuilderRespond(new Object(), 64);
+        assert next.length() == 0;
+        assert "".equals(next.toString());
+    }
+
+    @Test
+    public final void sizeEstimateGrowsQuicklyAndDecaysSlowly() {
+        final RenderBuffers.SizeEstimate estimate = new RenderBuffers.SizeEstimate();
+        estimate.record(10000);
+        assert estimate.get() == 10000;
+
+        estimate.record(2000);
+        assert estimate.get() == 9000 : estimate.get();
+
+        final StringBuilder buffer = RenderBuffers.acquire(estimate.get());
+        assert buffer.capacity() >= 9000;
+        assert buffer.length() == 0;
+    }
+
+    @Test
+    public final void threadsKeepALimitedAmountOfBuffer() throws InterruptedException {
+        final StringBuilder oversized = new StringBuilder(RenderBuffers.MAX_RETAINED + 1);
+        final StringBuilder first = new StringBuilder(RenderBuffers.MAX_POOLED / 2);
+        final StringBuilder second = new StringBuilder(RenderBuffers.MAX_POOLED / 2);
+        final StringBuilder overBudget = new StringBuilder(16);
+        final List<StringBuilder> reused = new ArrayList<StringBuilder>();
+
+        // A fresh thread, so its pool starts out empty.
+        Thread thread = new Thread(new Runnable() {
+            public void run() {
+                for (StringBuilder buffer : Arrays.asList(oversized, first, second, overBudget))
+                    RenderBuffers.release(buffer);
+                for (int i = 0; i < 4; i++)
+                    reused.add(RenderBuffers.acquire(16));
+            }
+        });
+        thread.start();
+        thread.join(10000);
+
+        // StringBuilders are equal only to themselves.
+        assert reused.contains(first) && reused.contains(second) : reused.size();
+        assert !reused.contains(oversized) && !reused.contains(overBudget);
+    }
 }
@@ -0,0 +1,72 @@
+package com.google.sitebricks;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Multimap;
+
+public class ServletMultimapTest {
+
+  @Test
+  public final void parametersAreViewedNotCopied() {
+    Map<String, String[]> parameters = ImmutableMap.of(
+        "name", new String[] { "Dhanji" },
+        "event", new String[] { "save", "publish" });
+    Multimap<String, String> params = ServletMultimap.ofParameters(parameters);
+
+    assert Arrays.asList("save", "publish").equals(params.get("event")) : params;
+    assert params.get("missing").isEmpty();
+    assert 3 == params.size();
+    assert params.containsEntry("name", "Dhanji");
+    assert params.containsValue("publish");
+    assert !params.containsKey("missing");
+
+    Multimap<String, String> copy = ImmutableMultimap.<String, String>builder()
+        .put("name", "Dhanji")
+        .putAll("event", "save", "publish")
+        .build();
+    assert copy.equals(params) : params;
+    assert params.equals(copy) : params;
+    assert copy.hashCode() == params.hashCode();
+    assert copy.entries().containsAll(params.entries());
+    assert 2 == params.keys().count("event");
+  }
+
+  @Test(expectedExceptions = UnsupportedOperationException.class)
+  public final void parametersAreReadOnly() {
+    Map<String, String[]> parameters = ImmutableMap.of("name", new String[] { "Dhanji" });
+    ServletMultimap.ofParameters(parameters).put("name", "Jason");
+  }
+
+  @Test
+  public final void onlyRequestedHeadersAreRead() {
+    HttpServletRequest request = createMock(HttpServletRequest.class);
+    expect(request.getHeaderNames())
+        .andReturn(Iterators.asEnumeration(Arrays.asList("Accept", "User-Agent").iterator()));
+    expect(request.getHeaders("Accept"))
+        .andReturn(Iterators.asEnumeration(Arrays.asList("text/html", "*/*").iterator()));
+    replay(request);
+
+    Multimap<String, String> headers = ServletMultimap.ofHeaders(request);
+    assert Arrays.asList("text/html", "*/*").equals(headers.get("Accept")) : headers;
+
+    // Values are remembered, and absent headers are never asked of the request.
+    assert Arrays.asList("text/html", "*/*").equals(headers.get("Accept")) : headers;
+    assert headers.get("Cookie").isEmpty();
+    assert headers.containsKey("User-Agent");
+
+    verify(request);
+  }
+}
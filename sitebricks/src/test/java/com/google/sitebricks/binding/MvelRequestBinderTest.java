@@ -184,6 +184,80 @@ public class MvelRequestBinderTest {
     assert new AnObject().equals(o) : "Invalid binding was allowed!";
   }
 
+  @Test
+  public final void bindRepeatedlyWithUnknownProperties() {
+    final MvelRequestBinder binder = new MvelRequestBinder(Guice.createInjector()
+        .getInstance(Evaluator.class), new Provider<FlashCache>() {
+      public FlashCache get() {
+        return new HttpSessionFlashCache();
+      }
+    });
+
+    // The same binder should keep binding known properties once unknown ones are remembered.
+    for (int i = 0; i < 3; i++) {
+      final HttpServletRequest request = createMock(HttpServletRequest.class);
+      final String name = "Dhanji" + i;
+
+      expect(request.getParameterMap())
+          .andReturn(new HashMap<String, String[]>() {{
+            put("name", new String[]{name});
+            put("nonexistent", new String[]{"true"});
+            put("hei-ght", new String[]{"6.0"});
+            put("age", new String[]{"27"});
+          }});
+
+      replay(request);
+
+      final AnObject o = new AnObject();
+      binder.bind(TestRequestCreator.from(request, null), o);
+
+      assert name.equals(o.getName());
+      assert 27 == o.getAge();
+      assert 0.0 == o.getHeight();
+
+      verify(request);
+    }
+  }
+
+  @Test
+  public final void bindAfterAMalformedValue() {
+    final MvelRequestBinder binder = new MvelRequestBinder(Guice.createInjector()
+        .getInstance(Evaluator.class), new Provider<FlashCache>() {
+      public FlashCache get() {
+        return new HttpSessionFlashCache();
+      }
+    });
+
+    final HttpServletRequest malformed = createMock(HttpServletRequest.class);
+    expect(malformed.getParameterMap())
+        .andReturn(new HashMap<String, String[]>() {{
+          put("age", new String[]{"abc"});
+        }});
+    replay(malformed);
+
+    RuntimeException thrown = null;
+    try {
+      binder.bind(TestRequestCreator.from(malformed, null), new AnObject());
+    } catch (RuntimeException e) {
+      thrown = e;
+    }
+    assert null != thrown && thrown.getCause() instanceof NumberFormatException : thrown;
+
+    // A bad value from one client must not stop the property binding for the next.
+    final HttpServletRequest request = createMock(HttpServletRequest.class);
+    expect(request.getParameterMap())
+        .andReturn(new HashMap<String, String[]>() {{
+          put("age", new String[]{"27"});
+        }});
+    replay(request);
+
+    final AnObject o = new AnObject();
+    binder.bind(TestRequestCreator.from(request, null), o);
+
+    assert 27 == o.getAge();
+    verify(malformed, request);
+  }
+
   @SuppressWarnings({"UnusedDeclaration"})  
   public static class AnObject {
     private String name;
@@ -207,6 +207,20 @@ public class FreemarkerTemplateCompilerTest {
         .equals(value) : "Did not write expected output, instead: " + value;
   }
 
+  @Test
+  public final void compiledTemplateRendersEachPageObject() {
+    Renderable widget =
+        new FreemarkerTemplateCompiler()
+            .compile(TestBackingType.class, template("<p>${name} #${id}</p>"));
+
+    for (int i = 0; i < 3; i++) {
+      final Respond respond = RespondersForTesting.newRespond();
+      widget.render(new TestBackingType("Dhanji" + i, "content", i), respond);
+
+      assertEquals(respond.toString(), "<p>Dhanji" + i + " #" + i + "</p>");
+    }
+  }
+
   public static class TestBackingType {
     private String name;
     private String clazz;
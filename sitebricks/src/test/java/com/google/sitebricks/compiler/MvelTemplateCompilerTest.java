@@ -0,0 +1,85 @@
+package com.google.sitebricks.compiler;
+
+import com.google.sitebricks.MemoryTemplateSource;
+import com.google.sitebricks.Renderable;
+import com.google.sitebricks.Respond;
+import com.google.sitebricks.RespondersForTesting;
+import com.google.sitebricks.Template;
+import com.google.sitebricks.compiler.template.MvelTemplateCompiler;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+
+public class MvelTemplateCompilerTest {
+
+  @Test
+  public final void rendersIntoRespond() {
+    Renderable widget = new MvelTemplateCompiler().compile(Page.class, template(
+        "<ul>@foreach{item : items}<li>@{item}</li>@end{}</ul>"));
+
+    Respond respond = RespondersForTesting.newRespond();
+    widget.render(new Page("a", "b"), respond);
+
+    assertEquals(respond.toString(), "<ul><li>a</li><li>b</li></ul>");
+  }
+
+  @Test
+  public final void declaredVariablesDoNotLeakBetweenRenders() {
+    Renderable widget = new MvelTemplateCompiler().compile(Page.class, template(
+        "@{isdef total ? 'leaked' : 'fresh'}@code{total = items.size()}"));
+
+    for (int i = 0; i < 2; i++) {
+      Respond respond = RespondersForTesting.newRespond();
+      widget.render(new Page("a"), respond);
+
+      assertEquals(respond.toString(), "fresh");
+    }
+  }
+
+  @Test
+  public final void nestedRendersDoNotShareVariables() {
+    final Renderable inner = new MvelTemplateCompiler().compile(Page.class, template(
+        "@code{x = 'inner'}@{x}"));
+    Renderable outer = new MvelTemplateCompiler().compile(Outer.class, template(
+        "@code{x = 'outer'}@{render()}@{x}"));
+
+    Respond respond = RespondersForTesting.newRespond();
+    outer.render(new Outer(inner, respond), respond);
+
+    assertEquals(respond.toString(), "innerouter");
+  }
+
+  private static Template template(String text) {
+    return new Template("template.mvel", text, new MemoryTemplateSource());
+  }
+
+  public static class Page {
+    private final List<String> items;
+
+    public Page(String... items) {
+      this.items = Arrays.asList(items);
+    }
+
+    public List<String> getItems() {
+      return items;
+    }
+  }
+
+  public static class Outer {
+    private final Renderable inner;
+    private final Respond respond;
+
+    public Outer(Renderable inner, Respond respond) {
+      this.inner = inner;
+      this.respond = respond;
+    }
+
+    public String render() {
+      inner.render(new Page(), respond);
+      return "";
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.google.sitebricks.compiler;
+
+import com.google.common.collect.Lists;
+import com.google.sitebricks.routing.SystemMetrics;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.makeThreadSafe;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+public class ParallelCompilerTest {
+  private static final String CORES = "cores";
+
+  @DataProvider(name = CORES)
+  public Object[][] cores() {
+    return new Object[][] {
+        { 1 },
+        { 4 },
+    };
+  }
+
+  @Test(dataProvider = CORES)
+  public final void failuresAreCollectedInOrder(int cores) {
+    final List<Class<?>> compiled = Lists.newArrayList();
+    final RuntimeException first = new IllegalStateException("first");
+    final RuntimeException second = new IllegalArgumentException("second");
+
+    SystemMetrics metrics = createMock(SystemMetrics.class);
+    metrics.logCompileTime(eq(String.class), anyLong());
+    metrics.logCompileTime(eq(Integer.class), anyLong());
+    metrics.logCompileTime(eq(Long.class), anyLong());
+    makeThreadSafe(metrics, true);
+    replay(metrics);
+
+    List<RuntimeException> failures = ParallelCompiler.compileAll(Lists.newArrayList(
+        new ParallelCompiler.Task(String.class) {
+          @Override
+          protected void compile() {
+            throw first;
+          }
+        },
+        new ParallelCompiler.Task(Integer.class) {
+          @Override
+          protected void compile() {
+            synchronized (compiled) {
+              compiled.add(Integer.class);
+            }
+          }
+        },
+        new ParallelCompiler.Task(Long.class) {
+          @Override
+          protected void compile() {
+            throw second;
+          }
+        }), metrics, cores);
+
+    assert Lists.newArrayList(first, second).equals(failures) : failures;
+    assert Lists.<Class<?>>newArrayList(Integer.class).equals(compiled) : compiled;
+    verify(metrics);
+  }
+
+  @Test
+  public final void templatesCompileConcurrently() {
+    // Neither task can finish until both have started.
+    final CountDownLatch started = new CountDownLatch(2);
+    SystemMetrics metrics = createMock(SystemMetrics.class);
+    metrics.logCompileTime(eq(String.class), anyLong());
+    metrics.logCompileTime(eq(Integer.class), anyLong());
+    makeThreadSafe(metrics, true);
+    replay(metrics);
+
+    List<ParallelCompiler.Task> tasks = Lists.newArrayList();
+    for (Class<?> page : new Class<?>[] { String.class, Integer.class }) {
+      tasks.add(new ParallelCompiler.Task(page) {
+        @Override
+        protected void compile() {
+          started.countDown();
+          try {
+            if (!started.await(10, TimeUnit.SECONDS))
+              throw new IllegalStateException("Compiled one at a time");
+          } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+    }
+
+    List<RuntimeException> failures = ParallelCompiler.compileAll(tasks, metrics, 2);
+    assert failures.isEmpty() : failures;
+    verify(metrics);
+  }
+}
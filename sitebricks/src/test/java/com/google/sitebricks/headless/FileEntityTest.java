@@ -0,0 +1,160 @@
+package com.google.sitebricks.headless;
+
+import com.google.common.io.Files;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+/**
+ * Sends files (and ranges of them) through the headless reply pipeline.
+ */
+public class FileEntityTest {
+  private static final String RANGES = "ranges";
+  private static final String CONTENT = "0123456789";
+
+  private File file;
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    file = File.createTempFile("sitebricks", ".txt");
+    Files.write(CONTENT.getBytes(), file);
+  }
+
+  @AfterMethod
+  public final void post() {
+    file.delete();
+  }
+
+  @DataProvider(name = RANGES)
+  public Object[][] ranges() {
+    return new Object[][] {
+        { null, null },
+        { "bytes=0-9", new long[] { 0, 9 } },
+        { "bytes=2-4", new long[] { 2, 4 } },
+        { "bytes=2-", new long[] { 2, 9 } },
+        { "bytes=5-100", new long[] { 5, 9 } },
+        { "bytes=-3", new long[] { 7, 9 } },
+        { "bytes=-30", new long[] { 0, 9 } },
+        { "bytes=10-", new long[0] },
+        { "bytes=-0", new long[0] },
+        { "bytes=4-2", null },
+        { "bytes=0-1,4-5", null },
+        { "bytes=a-b", null },
+        { "lines=1-2", null },
+    };
+  }
+
+  @Test(dataProvider = RANGES)
+  public final void parseRange(String header, long[] expected) {
+    assert Arrays.equals(expected, FileEntity.range(header, CONTENT.length()))
+        : header + " " + Arrays.toString(FileEntity.range(header, CONTENT.length()));
+  }
+
+  @Test
+  public final void sendWholeFile() throws IOException {
+    FakeServletOutputStream out = new FakeServletOutputStream();
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    expect(response.getOutputStream()).andReturn(out);
+    response.setContentType("application/octet-stream");
+    response.setHeader("Content-Length", "10");
+    response.setStatus(HttpServletResponse.SC_OK);
+    replay(response);
+
+    render(request(null, null), response);
+
+    verify(response);
+    assert CONTENT.equals(out.toString());
+  }
+
+  @Test
+  public final void sendRange() throws IOException {
+    FakeServletOutputStream out = new FakeServletOutputStream();
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    expect(response.getOutputStream()).andReturn(out);
+    response.setHeader("Content-Range", "bytes 2-4/10");
+    response.setHeader("Content-Length", "3");
+    response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+    replay(response);
+
+    render(request("bytes=2-4", null), response);
+
+    verify(response);
+    assert "234".equals(out.toString());
+  }
+
+  @Test
+  public final void unsatisfiableRange() throws IOException {
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    response.setHeader("Content-Range", "bytes */10");
+    response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+    replay(response);
+
+    render(request("bytes=20-", null), response);
+
+    verify(response);
+  }
+
+  @Test
+  public final void staleIfRangeSendsWholeFile() throws IOException {
+    FakeServletOutputStream out = new FakeServletOutputStream();
+    HttpServletResponse response = createNiceMock(HttpServletResponse.class);
+    expect(response.getOutputStream()).andReturn(out);
+    response.setStatus(HttpServletResponse.SC_OK);
+    replay(response);
+
+    render(request("bytes=2-4", "\"stale\""), response);
+
+    verify(response);
+    assert CONTENT.equals(out.toString());
+  }
+
+  private void render(final HttpServletRequest request, HttpServletResponse response)
+      throws IOException {
+    new ReplyBasedHeadlessRenderer(Guice.createInjector(new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(HttpServletRequest.class).toInstance(request);
+      }
+    })).render(response, Reply.with(new FileEntity(file)));
+  }
+
+  private static HttpServletRequest request(String range, String ifRange) {
+    HttpServletRequest request = createMock(HttpServletRequest.class);
+    expect(request.getHeader("If-Range")).andReturn(ifRange).anyTimes();
+    expect(request.getHeader("Range")).andReturn(range).anyTimes();
+    replay(request);
+
+    return request;
+  }
+
+  private static class FakeServletOutputStream extends ServletOutputStream {
+    private final ByteArrayOutputStream bout = new ByteArrayOutputStream();
+
+    @Override
+    public void write(int b) throws IOException {
+      bout.write(b);
+    }
+
+    @Override
+    public String toString() {
+      return bout.toString();
+    }
+  }
+}
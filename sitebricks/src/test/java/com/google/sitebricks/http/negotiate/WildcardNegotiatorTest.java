@@ -5,6 +5,7 @@ import com.google.common.collect.Iterators;
 import com.google.common.collect.Multimap;
 import com.google.common.collect.Multimaps;
 import com.google.sitebricks.TestRequestCreator;
+import com.google.sitebricks.headless.Request;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -17,6 +18,7 @@ import static org.easymock.EasyMock.createMock;
 
 public class WildcardNegotiatorTest {
   private static final String HEADERS_AND_NEGOTIATIONS = "HEADERS_NEGS";
+  private static final String ACCEPTS_AND_QUALITIES = "ACCEPTS_QUALITIES";
 
   @DataProvider(name = HEADERS_AND_NEGOTIATIONS)
   public Object[][] headersAndNegotiations() {
@@ -113,6 +115,53 @@ public class WildcardNegotiatorTest {
   public final void variousHeadersAndNegotiations(Map<String, String> negotiations,
                                                   final Multimap<String, String> headers,
                                                   boolean shouldPass) {
+    assert shouldPass == new WildcardNegotiator().shouldCall(negotiations, requestWith(headers));
+  }
+
+  @DataProvider(name = ACCEPTS_AND_QUALITIES)
+  public Object[][] acceptsAndQualities() {
+    String accept = "text/*;q=0.3, text/html;q=0.7, image/png;q=0, */*;q=0.5";
+    return new Object[][] {
+        // The most specific range decides, not the order or the highest weight.
+        { "text/html", accept, 0.7f },
+        { "text/plain", accept, 0.3f },
+        { "application/json", accept, 0.5f },
+        { "image/png", accept, 0f },
+
+        // The best offered type wins.
+        { "image/png, text/plain", accept, 0.3f },
+        { "text/plain, text/html", accept, 0.7f },
+
+        // No weight means full weight, and weights are clamped.
+        { "text/html", "text/html", 1f },
+        { "text/html", "text/html;q=7", 1f },
+        { "text/html", "text/html;q=oops", 1f },
+    };
+  }
+
+  @Test(dataProvider = ACCEPTS_AND_QUALITIES)
+  public final void handlersAreWeightedByTheMostSpecificRange(String offered, String accept,
+                                                               float quality) {
+    WildcardNegotiator negotiator = new WildcardNegotiator();
+    Request request = requestWith(Multimaps.forMap(ImmutableMap.of("Accept", accept)));
+    Map<String, String> negotiations = ImmutableMap.of("Accept", offered);
+
+    assert quality == negotiator.quality(negotiations, request)
+        : offered + " was weighted " + negotiator.quality(negotiations, request);
+    assert (quality > 0) == negotiator.shouldCall(negotiations, request);
+  }
+
+  @Test
+  public final void unmentionedMediaTypesArePreferredLeast() {
+    WildcardNegotiator negotiator = new WildcardNegotiator();
+    Request request = requestWith(Multimaps.forMap(ImmutableMap.of("Accept", "text/html;q=0.1")));
+
+    float unmentioned = negotiator.quality(ImmutableMap.of("Accept", "image/png"), request);
+    assert unmentioned > 0 : unmentioned;
+    assert unmentioned < negotiator.quality(ImmutableMap.of("Accept", "text/html"), request);
+  }
+
+  private static Request requestWith(final Multimap<String, String> headers) {
     HttpServletRequest request = new HttpServletRequestWrapper(createMock(HttpServletRequest.class)) {
       @Override
       public Enumeration getHeaders(String name) {
@@ -124,7 +173,6 @@ public class WildcardNegotiatorTest {
       }
     };
 
-    assert shouldPass == new WildcardNegotiator().shouldCall(negotiations, TestRequestCreator.from(
-        request, null));
+    return TestRequestCreator.from(request, null);
   }
-}
\ No newline at end of file
+}
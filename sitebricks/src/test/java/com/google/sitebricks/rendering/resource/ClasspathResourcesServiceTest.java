@@ -0,0 +1,209 @@
+package com.google.sitebricks.rendering.resource;
+
+import com.google.common.collect.Maps;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.inject.Guice;
+import com.google.inject.Stage;
+import com.google.sitebricks.Export;
+import com.google.sitebricks.Respond;
+import com.google.sitebricks.headless.Reply;
+import com.google.sitebricks.headless.ReplyBasedHeadlessRenderer;
+import com.google.sitebricks.headless.Request;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+
+/**
+ * Serves a static resource through the headless renderer, as the routing dispatcher does.
+ */
+public class ClasspathResourcesServiceTest {
+  private static final String AT = "/static.js";
+  private static final String EDITED_AT = "/edited.txt";
+
+  private ClasspathResourcesService service;
+  private byte[] original;
+
+  @BeforeMethod
+  public final void pre() throws IOException {
+    service = new ClasspathResourcesService(Stage.PRODUCTION);
+    service.add(ClasspathResourcesServiceTest.class, Exported.class.getAnnotation(Export.class));
+
+    original = ByteStreams.toByteArray(
+        ClasspathResourcesServiceTest.class.getResourceAsStream("static.js"));
+  }
+
+  @Test
+  public final void serveBytesAsIs() throws IOException {
+    FakeResponse response = render(service.serve(request(AT, null, null, null)));
+
+    assert 200 == response.status;
+    assert "text/javascript".equals(response.contentType);
+    assert null == response.headers.get("Content-Encoding");
+    assert null != response.headers.get("ETag");
+    assert null != response.headers.get("Last-Modified");
+
+    // Including newlines.
+    assert Arrays.equals(original, response.body.toByteArray());
+  }
+
+  @Test
+  public final void serveGzippedWhenAccepted() throws IOException {
+    FakeResponse response = render(service.serve(request(AT, "deflate;q=0.5, gzip", null, null)));
+
+    assert "gzip".equals(response.headers.get("Content-Encoding"));
+    assert "Accept-Encoding".equals(response.headers.get("Vary"));
+    assert Arrays.equals(original, ByteStreams.toByteArray(
+        new GZIPInputStream(new ByteArrayInputStream(response.body.toByteArray()))));
+  }
+
+  @Test
+  public final void notGzippedWhenRefused() throws IOException {
+    FakeResponse response = render(service.serve(request(AT, "gzip;q=0", null, null)));
+
+    assert null == response.headers.get("Content-Encoding");
+    assert Arrays.equals(original, response.body.toByteArray());
+  }
+
+  @Test
+  public final void notModifiedWhenEtagMatches() throws IOException {
+    String etag = render(service.serve(request(AT, null, null, null))).headers.get("ETag");
+    FakeResponse response = render(service.serve(request(AT, null, etag, null)));
+
+    assert 304 == response.status;
+    assert 0 == response.body.size();
+
+    // Each encoding has its own etag.
+    assert 200 == render(service.serve(request(AT, "gzip", etag, null))).status;
+  }
+
+  @Test
+  public final void notModifiedSinceLastModified() throws IOException {
+    String lastModified =
+        render(service.serve(request(AT, null, null, null))).headers.get("Last-Modified");
+
+    assert 304 == render(service.serve(request(AT, null, null, lastModified))).status;
+    assert 200 == render(service.serve(
+        request(AT, null, null, "Thu, 01 Jan 1970 00:00:00 GMT"))).status;
+    assert 200 == render(service.serve(request(AT, null, null, "yesterday"))).status;
+  }
+
+  @Test
+  public final void editsAreOnlyServedInDevelopment() throws IOException, URISyntaxException {
+    // Sits next to the compiled test, where the exporting class will look for it.
+    File edited = new File(new File(ClasspathResourcesServiceTest.class.getResource("static.js")
+        .toURI()).getParentFile(), "edited.txt");
+    Files.write("before", edited, Charsets.UTF_8);
+    try {
+      ClasspathResourcesService development = new ClasspathResourcesService(Stage.DEVELOPMENT);
+      development.add(ClasspathResourcesServiceTest.class,
+          Edited.class.getAnnotation(Export.class));
+      service.add(ClasspathResourcesServiceTest.class, Edited.class.getAnnotation(Export.class));
+
+      assert "before".equals(bodyOf(development.serve(request(EDITED_AT, null, null, null))));
+      assert "before".equals(bodyOf(service.serve(request(EDITED_AT, null, null, null))));
+
+      Files.write("after", edited, Charsets.UTF_8);
+      assert "after".equals(bodyOf(development.serve(request(EDITED_AT, null, null, null))));
+      assert "before".equals(bodyOf(service.serve(request(EDITED_AT, null, null, null))));
+    } finally {
+      assert edited.delete();
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public final void serveTextByUri() {
+    Respond respond = service.serve(AT);
+
+    assert "text/javascript".equals(respond.getContentType());
+    assert new String(original).equals(respond.toString());
+    assert null == service.serve("/nothing.js");
+  }
+
+  @Test
+  public final void nothingExported() {
+    assert null == service.serve(request("/nothing.js", null, null, null));
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Request<String> request(String path, String acceptEncoding, String ifNoneMatch,
+                                         String ifModifiedSince) {
+    Request<String> request = createNiceMock(Request.class);
+    expect(request.path()).andReturn(path).anyTimes();
+    expect(request.header("Accept-Encoding")).andReturn(acceptEncoding).anyTimes();
+    expect(request.header("If-None-Match")).andReturn(ifNoneMatch).anyTimes();
+    expect(request.header("If-Modified-Since")).andReturn(ifModifiedSince).anyTimes();
+    replay(request);
+
+    return request;
+  }
+
+  private static String bodyOf(Reply<?> reply) throws IOException {
+    return new String(render(reply).body.toByteArray(), Charsets.UTF_8.name());
+  }
+
+  private static FakeResponse render(Reply<?> reply) throws IOException {
+    FakeResponse fake = new FakeResponse();
+    HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(
+        HttpServletResponse.class.getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+        fake);
+
+    new ReplyBasedHeadlessRenderer(Guice.createInjector()).render(response, reply);
+    return fake;
+  }
+
+  private static class FakeResponse implements InvocationHandler {
+    private final Map<String, String> headers = Maps.newHashMap();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private int status = 200;
+    private String contentType;
+
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      String name = method.getName();
+      if ("setHeader".equals(name))
+        headers.put((String) args[0], (String) args[1]);
+      else if ("setStatus".equals(name))
+        status = (Integer) args[0];
+      else if ("setContentType".equals(name))
+        contentType = (String) args[0];
+      else if ("getContentType".equals(name))
+        return contentType;
+      else if ("getOutputStream".equals(name))
+        return new ServletOutputStream() {
+          @Override
+          public void write(int b) {
+            body.write(b);
+          }
+        };
+
+      return null;
+    }
+  }
+
+  @Export(at = AT, resource = "static.js")
+  private static class Exported {
+  }
+
+  @Export(at = EDITED_AT, resource = "edited.txt")
+  private static class Edited {
+  }
+}
@@ -0,0 +1,133 @@
+package com.google.sitebricks.routing;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ensures generated event invokers call handlers just as reflection does.
+ */
+public class EventInvokersTest {
+  private static final String PAGES = "pages";
+
+  @Test
+  public final void publicHandlersAreCalledByGeneratedInvoker() throws Exception {
+    EventInvokers.Invoker invoker = EventInvokers.of(method(PublicPage.class, "caller"));
+
+    Object caller = invoker.invoke(new PublicPage(), new Object[0]);
+    assert ((String) caller).startsWith(EventInvokers.class.getName() + "$Generated") : caller;
+  }
+
+  @Test
+  public final void argumentsAreUnboxedAndResultsBoxed() throws Exception {
+    Method add = method(PublicPage.class, "add");
+    PublicPage page = new PublicPage();
+
+    Object result = EventInvokers.of(add).invoke(page,
+        new Object[] { 2, 3L, Arrays.asList("a", "b"), new String[] { "c" } });
+
+    assert Long.valueOf(9).equals(result) : result;
+  }
+
+  @Test
+  public final void voidHandlersReturnNull() throws Exception {
+    PublicPage page = new PublicPage();
+
+    assert null == EventInvokers.of(method(PublicPage.class, "get")).invoke(page, new Object[0]);
+    assert page.called;
+  }
+
+  @DataProvider(name = PAGES)
+  public Object[][] pages() {
+    return new Object[][] {
+        { new PublicPage() },
+        { new HiddenPage() },
+    };
+  }
+
+  @Test(dataProvider = PAGES)
+  public final void handlerExceptionsAreWrapped(Object page) throws Exception {
+    try {
+      EventInvokers.of(method(page.getClass(), "fail")).invoke(page, new Object[0]);
+      assert false : "Expected the handler's exception";
+    } catch (InvocationTargetException e) {
+      assert e.getCause() instanceof IllegalStateException : e.getCause();
+    }
+  }
+
+  @Test(dataProvider = PAGES)
+  public final void badArgumentsAreRejectedAsWithReflection(Object page) throws Exception {
+    EventInvokers.Invoker invoker = EventInvokers.of(method(page.getClass(), "take"));
+
+    for (Object[] args : new Object[][] { { "1" }, { null }, { } }) {
+      try {
+        invoker.invoke(page, args);
+        assert false : "Expected the arguments to be rejected: " + Arrays.toString(args);
+      } catch (IllegalArgumentException e) {
+        // Expected, and not a problem with the handler.
+      }
+    }
+    assert 1 == (Integer) invoker.invoke(page, new Object[] { 1 });
+  }
+
+  @Test
+  public final void hiddenHandlersAreCalledReflectively() throws Exception {
+    EventInvokers.Invoker invoker = EventInvokers.of(method(HiddenPage.class, "get"));
+
+    assert !invoker.getClass().getName().contains("$Generated") : invoker;
+    assert "hidden".equals(invoker.invoke(new HiddenPage(), new Object[0]));
+  }
+
+  private static Method method(Class<?> page, String name) {
+    for (Method method : page.getDeclaredMethods()) {
+      if (method.getName().equals(name)) {
+        method.setAccessible(true);
+        return method;
+      }
+    }
+
+    throw new AssertionError(name);
+  }
+
+  public static class PublicPage {
+    private boolean called;
+
+    public String caller() {
+      return new Throwable().getStackTrace()[1].getClassName();
+    }
+
+    public long add(int a, long b, List<String> c, String[] d) {
+      return a + b + c.size() + d.length + 1;
+    }
+
+    public void get() {
+      called = true;
+    }
+
+    public void fail() {
+      throw new IllegalStateException();
+    }
+
+    public int take(int number) {
+      return number;
+    }
+  }
+
+  static class HiddenPage {
+    String get() {
+      return "hidden";
+    }
+
+    void fail() {
+      throw new IllegalStateException();
+    }
+
+    int take(int number) {
+      return number;
+    }
+  }
+}
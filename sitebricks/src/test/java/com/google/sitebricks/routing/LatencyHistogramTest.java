@@ -0,0 +1,120 @@
+package com.google.sitebricks.routing;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.sitebricks.http.Get;
+import com.google.sitebricks.stat.StatDescriptor;
+import com.google.sitebricks.stat.StatModule;
+import com.google.sitebricks.stat.StatsSnapshotter;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.lang.annotation.Annotation;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks the bucketing and percentiles of latency histograms, and that they are
+ * published as stats.
+ */
+public class LatencyHistogramTest {
+  private static final String LATENCIES = "latencies";
+
+  @DataProvider(name = LATENCIES)
+  public Object[][] latencies() {
+    return new Object[][] {
+        { 0L },
+        { 1L },
+        { 7L },
+        { 8L },
+        { 15L },
+        { 16L },
+        { 999L },
+        { 1000L },
+        { 123456L },
+        { 1L << 30 },
+    };
+  }
+
+  @Test(dataProvider = LATENCIES)
+  public final void bucketsAreWithinAnEighth(long micros) {
+    int index = LatencyHistogram.indexOf(micros);
+    long highest = LatencyHistogram.highestValueAt(index);
+
+    assert index < LatencyHistogram.BUCKETS : index;
+    assert highest >= micros : highest;
+    assert highest - micros <= micros / LatencyHistogram.SUB_BUCKETS : highest;
+
+    // Neighboring buckets are contiguous.
+    assert index == 0 || LatencyHistogram.highestValueAt(index - 1) < micros;
+  }
+
+  @Test
+  public final void outliersAreClamped() {
+    assert LatencyHistogram.BUCKETS - 1 == LatencyHistogram.indexOf(Long.MAX_VALUE);
+    assert 0 == LatencyHistogram.indexOf(-5);
+  }
+
+  @Test
+  public final void percentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MICROSECONDS.toNanos(i));
+    }
+
+    LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+    assert 1000 == snapshot.count();
+    assertNear(500, snapshot.percentile(50));
+    assertNear(990, snapshot.percentile(99));
+    assertNear(999, snapshot.percentile(99.9));
+    assertNear(1000, snapshot.percentile(100));
+
+    assert 0 == new LatencyHistogram().snapshot().percentile(99);
+  }
+
+  @Test
+  public final void latenciesArePublishedAsStats() {
+    Injector injector = Guice.createInjector(new StatModule("/stats"));
+    SystemMetrics metrics = injector.getInstance(SystemMetrics.class);
+
+    metrics.logPhaseTime(LatencyHistogramTest.class, "GET", SystemMetrics.Phase.RENDER, 5000);
+
+    ImmutableMap<StatDescriptor, Object> stats =
+        injector.getInstance(StatsSnapshotter.class).snapshot();
+    for (Map.Entry<StatDescriptor, Object> stat : stats.entrySet()) {
+      if ("sitebricks-latencies".equals(stat.getKey().getName())) {
+        Map<?, ?> latencies = (Map<?, ?>) stat.getValue();
+
+        assert 1 == latencies.size() : latencies;
+        assert latencies.get(LatencyHistogramTest.class.getName() + " GET render")
+            .toString().startsWith("count=1, p50=5") : latencies;
+        return;
+      }
+    }
+
+    assert false : "Latencies were not published: " + stats;
+  }
+
+  @Test
+  public final void unknownMethodsAreLumpedTogether() {
+    InMemorySystemMetrics metrics = new InMemorySystemMetrics();
+    metrics.setHttpMethods(ImmutableMap.<String, Class<? extends Annotation>>of("get", Get.class));
+
+    metrics.logPhaseTime(LatencyHistogramTest.class, "GET", SystemMetrics.Phase.BIND, 5000);
+    metrics.logPhaseTime(LatencyHistogramTest.class, "BREW", SystemMetrics.Phase.BIND, 5000);
+    metrics.logPhaseTime(LatencyHistogramTest.class, "WHEN", SystemMetrics.Phase.BIND, 5000);
+
+    // Phases that were never timed are left out.
+    String page = LatencyHistogramTest.class.getName();
+    Map<String, String> latencies = metrics.latencies();
+    assert 2 == latencies.size() : latencies;
+    assert latencies.get(page + " GET bind").startsWith("count=1,") : latencies;
+    assert latencies.get(page + " OTHER bind").startsWith("count=2,") : latencies;
+  }
+
+  private static void assertNear(long expected, long actual) {
+    assert actual >= expected && actual <= expected + expected / LatencyHistogram.SUB_BUCKETS
+        : expected + " vs " + actual;
+  }
+}
@@ -6,18 +6,21 @@ import static org.easymock.EasyMock.replay;
 
 import java.io.IOException;
 import java.util.Date;
+import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
 
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import com.google.common.collect.Iterators;
+import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.name.Named;
@@ -31,6 +34,9 @@ import com.google.sitebricks.headless.Request;
 import com.google.sitebricks.http.Get;
 import com.google.sitebricks.http.Post;
 import com.google.sitebricks.http.Select;
+import com.google.sitebricks.http.negotiate.Accept;
+import com.google.sitebricks.http.negotiate.ContentNegotiator;
+import com.google.sitebricks.http.negotiate.WildcardNegotiator;
 import com.google.sitebricks.rendering.EmbedAs;
 
 /**
@@ -40,6 +46,7 @@ public class PageBookImplTest {
   private static final String FIRST_PATH_ELEMENTS = "firstPathElements";
   private static final String URI_TEMPLATES_AND_MATCHES = "uriTemplatesAndMatches";
   private static final String NOT_URIS_AND_TEMPLATES = "noturisandTemplates";
+  private static final String ACCEPTS_AND_HANDLERS = "acceptsAndHandlers";
   private static final String REDIRECTED_GET = "/redirected_get";
   private static final String REDIRECTED_POST = "/redirected_post";
 
@@ -721,6 +728,65 @@ public class PageBookImplTest {
     assert answer.equals(fPath) : "wrong path: " + fPath;
   }
 
+  @DataProvider(name = ACCEPTS_AND_HANDLERS)
+  public Object[][] acceptsAndHandlers() {
+    return new Object[][] {
+        { "text/html;q=0.5, application/json;q=0.9", "json" },
+
+        // The most specific range decides, types the client does not mention come last.
+        { "text/*;q=0.3, text/html;q=0.7", "html" },
+        { "text/*;q=0.8, text/html;q=0.2", "text" },
+
+        // Only json is left, as it is not mentioned at all (whereas text/* is refused).
+        { "text/*;q=0, image/png", "json" },
+
+        // Everything refused.
+        { "text/*;q=0, application/json;q=0", null },
+    };
+  }
+
+  @Test(dataProvider = ACCEPTS_AND_HANDLERS)
+  public final void handlersAreRankedByAcceptQuality(String accept, String expected)
+      throws IOException {
+    Injector negotiating = Guice.createInjector(new SitebricksModule(), new AbstractModule() {
+      @Override
+      protected void configure() {
+        bind(ContentNegotiator.class).to(WildcardNegotiator.class);
+      }
+    });
+    final PageBook pageBook = new DefaultPageBook(negotiating);
+    pageBook.at("/negotiated", MyNegotiatingPage.class);
+
+    final MyNegotiatingPage bound = new MyNegotiatingPage();
+    pageBook.get("/negotiated").doMethod("get", bound, "/negotiated", fakeRequestAccepting(accept));
+
+    assert (null == expected ? null == bound.called : expected.equals(bound.called))
+        : accept + " called " + bound.called;
+  }
+
+  private static Request fakeRequestAccepting(final String accept) {
+    HttpServletRequest request = new HttpServletRequestWrapper(createMock(HttpServletRequest.class)) {
+      @Override
+      public Map getParameterMap() {
+        return new HashMap<String, String[]>();
+      }
+
+      @Override
+      public Enumeration getHeaders(String name) {
+        return Iterators.asEnumeration("Accept".equals(name)
+            ? Iterators.singletonIterator(accept)
+            : Iterators.emptyIterator());
+      }
+
+      @Override
+      public Enumeration getHeaderNames() {
+        return Iterators.asEnumeration(Iterators.singletonIterator("Accept"));
+      }
+    };
+
+    return TestRequestCreator.from(request, null);
+  }
+
   private static class MockRespond implements Respond {
 
     public void write(String text) {
@@ -811,4 +877,24 @@ public class PageBookImplTest {
       return Reply.saying().forbidden();
     }
   }
+
+  @At("/negotiated")
+  public static class MyNegotiatingPage {
+    private String called;
+
+    @Get @Accept("text/html")
+    public void html() {
+      called = "html";
+    }
+
+    @Get @Accept("text/plain")
+    public void text() {
+      called = "text";
+    }
+
+    @Get @Accept("application/json")
+    public void json() {
+      called = "json";
+    }
+  }
 }
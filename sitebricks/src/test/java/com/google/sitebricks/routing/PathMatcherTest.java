@@ -146,4 +146,36 @@ public class PathMatcherTest {
         assert !new PathMatcherChain(path)
                 .matches(incoming);
     }
+
+    @Test
+    public final void findMatchVariablesAsLazyView() {
+        final Map<String, String> stringMap = new PathMatcherChain("/wiki/:title/page/:id")
+                .findMatches("/wiki/hello/page/12/");
+
+        assert stringMap instanceof PathMatcherChain.PathVariables;
+        assert stringMap.size() == 2;
+        assert "hello".equals(stringMap.get("title"));
+        assert "12".equals(stringMap.get("id"));
+        assert null == stringMap.get("page");
+        assert stringMap.equals(new HashMap<String, String>() {{
+            put("title", "hello");
+            put("id", "12");
+        }});
+    }
+
+    @Test
+    public final void findNoMatchVariables() {
+        assert new PathMatcherChain("/wiki/page").findMatches("/wiki/page").isEmpty();
+        assert null == new PathMatcherChain("/wiki/page").findMatches("/wiki/pag");
+        assert null == new PathMatcherChain("/wiki/:title").findMatches("/wiki");
+    }
+
+    @Test
+    public final void repeatedVariableBindsLastPiece() {
+        final Map<String, String> stringMap = new PathMatcherChain("/wiki/:id/:id")
+                .findMatches("/wiki/1/2");
+
+        assert stringMap.size() == 1;
+        assert "2".equals(stringMap.get("id"));
+    }
 }
@@ -0,0 +1,110 @@
+package com.google.sitebricks.routing;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+/**
+ * Ensures the compiled routing index agrees with {@link PathMatcherChain}.
+ */
+public class PathTrieTest {
+    private static final String MATCHING_PATHS = "matchingPaths";
+    private static final String NON_MATCHING_PATHS = "nonMatchingPaths";
+
+    @DataProvider(name = MATCHING_PATHS)
+    public Object[][] getMatchingPaths() {
+        return new Object[][] {
+            { "/wiki", "/wiki",  },
+            { "/wiki", "/wiki/",  },
+            { "/wiki", "/wiki//",  },
+            { "/", "/",  },
+            { "", "",  },
+            { "/wiki/:title", "/wiki/hello",  },
+            { "/wiki/:title", "/wiki/hoolig An+*",  },
+            { "/wiki/:title", "/wiki/hello/",  },
+            { "/wiki/:title/page/:id", "/wiki/sokdoasd/page/aoskpaokda",  },
+            { "/wiki/:title/dude", "/wiki//dude",  },
+            { "/:title/thing", "/wiki/thing",  },
+            { "/:title", "/aposkdapoksd",  },
+        };
+    }
+
+    @Test(dataProvider = MATCHING_PATHS)
+    public final void matchPathTemplate(final String path, final String incoming) {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add(path, path);
+
+        assert new PathMatcherChain(path).matches(incoming);
+        assert path.equals(trie.match(incoming)) : incoming;
+    }
+
+    @DataProvider(name = NON_MATCHING_PATHS)
+    public Object[][] getNonMatchingPaths() {
+        return new Object[][] {
+            { "/wiki/:title", "/clicky/hello",  },
+            { "/wiki/:title/page/:id", "/wiki/hello/dago/12",  },
+            { "/wiki/:title", "/wikia",  },
+            { "/wiki", "/",  },
+            { "/wiki", "",  },
+            { "/", "",  },
+            { "/wiki/hicki", "/wiki",  },
+            { "/wiki/:title", "/wiki/",  },
+            { "/wiki/:hickory/dickory", "/wiki/dickory",  },
+            { "/wiki/:title", "/wiki/hello/bye",  },
+            { "/:title", "/aposkdapoksd/12",  },
+        };
+    }
+
+    @Test(dataProvider = NON_MATCHING_PATHS)
+    public final void notMatchPathTemplate(final String path, final String incoming) {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add(path, path);
+
+        assert !new PathMatcherChain(path).matches(incoming);
+        assert null == trie.match(incoming) : incoming;
+    }
+
+    @Test
+    public final void staticSegmentsTakePrecedence() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add("/wiki/:title", "variable");
+        trie.add("/wiki/new", "static");
+        trie.add("/:section/new", "universal");
+
+        assert "static".equals(trie.match("/wiki/new"));
+        assert "variable".equals(trie.match("/wiki/old"));
+        assert "universal".equals(trie.match("/blog/new"));
+    }
+
+    @Test
+    public final void backtrackToVariableWhenStaticBranchDeadEnds() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add("/wiki/new/edit", "static");
+        trie.add("/wiki/:title/history", "variable");
+
+        assert "variable".equals(trie.match("/wiki/new/history"));
+        assert "static".equals(trie.match("/wiki/new/edit"));
+        assert null == trie.match("/wiki/new");
+    }
+
+    @Test
+    public final void firstRegisteredWinsAmongEquivalentTemplates() {
+        PathTrie<String> trie = new PathTrie<String>();
+        trie.add("/wiki/:title", "first");
+        trie.add("/wiki/:name", "second");
+
+        assert "first".equals(trie.match("/wiki/hello"));
+    }
+
+    @Test
+    public final void manyStaticSiblings() {
+        PathTrie<String> trie = new PathTrie<String>();
+        for (int i = 0; i < 500; i++) {
+            trie.add("/service" + i + "/:id", "service" + i);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            assert ("service" + i).equals(trie.match("/service" + i + "/12"));
+        }
+        assert null == trie.match("/service500/12");
+    }
+}
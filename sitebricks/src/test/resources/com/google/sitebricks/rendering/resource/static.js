@@ -0,0 +1,12 @@
+// A static resource, served as is (newlines included).
+function greet(name) {
+  return 'Hello, ' + name + '!';
+}
+
+function greetAll(names) {
+  var greetings = [];
+  for (var i = 0; i < names.length; i++) {
+    greetings.push(greet(names[i]));
+  }
+  return greetings;
+}